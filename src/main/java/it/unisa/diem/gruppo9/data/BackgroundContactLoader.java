@@ -0,0 +1,279 @@
+package it.unisa.diem.gruppo9.data;
+
+import it.unisa.diem.gruppo9.logic.Contact;
+import it.unisa.diem.gruppo9.logic.ContactManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * @file BackgroundContactLoader.java
+ * @brief Loads the contacts on a background thread and adds them to the list
+ * in batches.
+ *
+ * <p>
+ * The contacts are read and sorted on a daemon thread, so the JavaFX
+ * application thread is never blocked by the parsing of a large file. They are
+ * then added to the {@link ContactManager} on the application thread, in
+ * order: first a page, so that the first rows of the table appear as soon as
+ * the sort is done, then the others in larger batches. At most one batch is
+ * waiting to run on the application thread at any time and each batch
+ * schedules the next one, so the application thread handles the user input
+ * between two batches and is never flooded with tasks.
+ * </p>
+ * <p>
+ * The batches are added with {@link ContactManager#addLoaded(java.util.Collection)},
+ * so they are not recorded as changes by the storage. Contacts added by the
+ * user during the load are merged in their sorted position. Until the load is
+ * done, {@link ContactManager#loadContact()} does not read the files again.
+ * The version of the files is computed on the background thread before they
+ * are read and, when the last batch has been added, recorded as the version
+ * of the last load, so that the next {@link ContactManager#loadContact()}
+ * does not read the files again if they have not changed.
+ * </p>
+ *
+ * @see ContactManager.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+public class BackgroundContactLoader {
+
+    /**
+     * The default number of contacts of the first batch.
+     */
+    public static final int DEFAULT_FIRST_PAGE = 100;
+
+    /**
+     * The default number of contacts of the other batches.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 5000;
+
+    /**
+     * The manager the contacts are added to.
+     */
+    private final ContactManager manager;
+
+    /**
+     * Computes the version of the files the contacts are read from, e.g.
+     * {@link JournalDataManager#getVersion()}, or {@code null} if it is not
+     * known.
+     */
+    private final Callable<FileVersion> version;
+
+    /**
+     * Reads the contacts, e.g. {@link ContactManager#readContacts()}.
+     */
+    private final Callable<List<Contact>> source;
+
+    /**
+     * Runs the batches on the application thread, e.g.
+     * {@code Platform::runLater}.
+     */
+    private final Executor applicationThread;
+
+    /**
+     * The number of contacts of the first batch.
+     */
+    private final int firstPage;
+
+    /**
+     * The number of contacts of the other batches.
+     */
+    private final int batchSize;
+
+    /**
+     * Completed when every contact has been added.
+     */
+    private final CompletableFuture<ContactManager> done;
+
+    /**
+     * The sorted contacts read from the file, or {@code null} until they are
+     * read.
+     */
+    private volatile List<Contact> loaded;
+
+    /**
+     * The version of the files computed before they were read, or
+     * {@code null}.
+     */
+    private volatile FileVersion loadedVersion;
+
+    /**
+     * The number of contacts of {@code loaded} already added. It is accessed
+     * only on the application thread.
+     */
+    private int added;
+
+    /**
+     * The number of duplicates found in the batches added so far. It is
+     * accessed only on the application thread.
+     */
+    private int duplicates;
+
+    /**
+     * The thread that reads the contacts, or {@code null} before
+     * {@link #start()}.
+     */
+    private Thread reader;
+
+    /**
+     * Creates a loader with the default batch sizes.
+     *
+     * @param manager the manager the contacts are added to.
+     * @param source reads the contacts.
+     * @param applicationThread runs tasks on the application thread.
+     */
+    public BackgroundContactLoader(ContactManager manager, Callable<List<Contact>> source, Executor applicationThread) {
+        this(manager, null, source, applicationThread, DEFAULT_FIRST_PAGE, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a loader with the default batch sizes that records the version
+     * of the files loaded.
+     *
+     * @param manager the manager the contacts are added to.
+     * @param version computes the version of the files.
+     * @param source reads the contacts.
+     * @param applicationThread runs tasks on the application thread.
+     */
+    public BackgroundContactLoader(ContactManager manager, Callable<FileVersion> version,
+            Callable<List<Contact>> source, Executor applicationThread) {
+        this(manager, version, source, applicationThread, DEFAULT_FIRST_PAGE, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a loader.
+     *
+     * @pre {@code firstPage > 0} and {@code batchSize > 0}
+     *
+     * @param manager the manager the contacts are added to.
+     * @param source reads the contacts.
+     * @param applicationThread runs tasks on the application thread.
+     * @param firstPage the number of contacts of the first batch.
+     * @param batchSize the number of contacts of the other batches.
+     */
+    public BackgroundContactLoader(ContactManager manager, Callable<List<Contact>> source, Executor applicationThread,
+            int firstPage, int batchSize) {
+        this(manager, null, source, applicationThread, firstPage, batchSize);
+    }
+
+    /**
+     * Creates a loader that records the version of the files loaded.
+     *
+     * @pre {@code firstPage > 0} and {@code batchSize > 0}
+     *
+     * @param manager the manager the contacts are added to.
+     * @param version computes the version of the files, or {@code null} if it
+     * is not known.
+     * @param source reads the contacts.
+     * @param applicationThread runs tasks on the application thread.
+     * @param firstPage the number of contacts of the first batch.
+     * @param batchSize the number of contacts of the other batches.
+     */
+    public BackgroundContactLoader(ContactManager manager, Callable<FileVersion> version,
+            Callable<List<Contact>> source, Executor applicationThread, int firstPage, int batchSize) {
+        this.manager = manager;
+        this.version = version;
+        this.source = source;
+        this.applicationThread = applicationThread;
+        this.firstPage = firstPage;
+        this.batchSize = batchSize;
+        this.done = new CompletableFuture<>();
+    }
+
+    /**
+     * Starts reading the contacts on a background thread.
+     *
+     * @pre The method is invoked once.
+     *
+     * @return a future completed with the manager when every contact has been
+     * added, completed exceptionally if the contacts cannot be read, or
+     * cancelled by {@link #cancel()}.
+     */
+    public synchronized CompletableFuture<ContactManager> start() {
+        manager.setBackgroundLoad(done);
+        reader = new Thread(this::read, "contact-loader");
+        reader.setDaemon(true);
+        reader.start();
+        return done;
+    }
+
+    /**
+     * Stops the load, e.g. because the window has been closed. The contacts
+     * already added stay in the list, the others are not added.
+     */
+    public synchronized void cancel() {
+        if (done.cancel(false) && reader != null) {
+            reader.interrupt();
+        }
+    }
+
+    /**
+     * Tells whether the load has been cancelled.
+     *
+     * @return {@code true} after {@link #cancel()}, if the load was not
+     * completed yet.
+     */
+    public boolean isCancelled() {
+        return done.isCancelled();
+    }
+
+    /**
+     * Returns the number of duplicates found by this load (see
+     * {@link ContactManager#addAll(java.util.Collection)}), to be invoked on
+     * the application thread.
+     *
+     * @return the number of contacts of the batches added so far that were
+     * flagged or rejected as duplicates.
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Computes the version of the files, reads and sorts the contacts, then
+     * schedules the first batch.
+     */
+    private void read() {
+        try {
+            // computed before the files are read: if they change in between,
+            // the next load reads them again
+            loadedVersion = version == null ? null : version.call();
+            List<Contact> contacts = new ArrayList<>(source.call());
+            contacts.sort(manager.getComparator());
+            loaded = contacts;
+        } catch (Exception e) {
+            done.completeExceptionally(e);
+            return;
+        }
+        if (!done.isDone()) {
+            applicationThread.execute(this::addBatch);
+        }
+    }
+
+    /**
+     * Adds the next batch and schedules the following one, if any. It runs on
+     * the application thread.
+     */
+    private void addBatch() {
+        if (done.isDone()) {
+            return;
+        }
+        int end = Math.min(loaded.size(), added + (added == 0 ? firstPage : batchSize));
+        duplicates += manager.addLoaded(loaded.subList(added, end));
+        added = end;
+        if (added < loaded.size()) {
+            applicationThread.execute(this::addBatch);
+        } else {
+            loaded = null;
+            if (loadedVersion != null) {
+                manager.setDiskVersion(loadedVersion);
+            }
+            done.complete(manager);
+        }
+    }
+}
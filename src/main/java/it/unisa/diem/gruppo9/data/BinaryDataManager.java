@@ -0,0 +1,461 @@
+package it.unisa.diem.gruppo9.data;
+
+import it.unisa.diem.gruppo9.logic.Contact;
+import it.unisa.diem.gruppo9.logic.ContactManager;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * @file BinaryDataManager.java
+ * @brief A {@code DataManager} that stores the contacts in a binary snapshot.
+ *
+ * <p>
+ * The snapshot is made of a header, a table of fixed-width records, two
+ * orders of the records and a table of strings:
+ * </p>
+ * <ul>
+ * <li>the header holds the {@link #MAGIC} number, the format
+ * {@link #VERSION}, the number of records and the size in bytes of the
+ * string table, as four big-endian {@code int};</li>
+ * <li>each record holds, as {@code int}, the offsets in the string table of
+ * the surname, the name, the three phone numbers and the three emails of a
+ * contact, or -1 for a null surname; a missing phone number or email is
+ * written as the empty slot "-", as in "rubrica.csv";</li>
+ * <li>the two orders hold, as {@code int}, the positions of the records
+ * sorted by normalized sort key (the surname, or the name if the surname is
+ * null) and by normalized name, so that a {@link MappedContactStore} can
+ * search the mapped file by binary search without sorting it;</li>
+ * <li>the string table holds each distinct value once, as its length in bytes
+ * followed by its UTF-8 encoding.</li>
+ * </ul>
+ * <p>
+ * The records are written in the order of the comparator of the manager
+ * ({@link ContactManager#getComparator()}), so the contacts are loaded
+ * already sorted and their bulk insertion does not reorder them. Loading
+ * decodes each distinct string once and involves no parsing, which is what
+ * dominates the load of "rubrica.csv". The snapshots of version 1, without
+ * the two orders, are still loaded.
+ * </p>
+ *
+ * @see DataManager.java
+ * @see MappedContactStore.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-16
+ */
+public class BinaryDataManager implements DataManager {
+
+    /**
+     * The default snapshot file.
+     */
+    public static final String FILENAME = "rubrica.bin";
+
+    /**
+     * The first four bytes of a snapshot ("RBRC").
+     */
+    public static final int MAGIC = 0x52425243;
+
+    /**
+     * The version of the format written by this class.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * The size of the header in bytes.
+     */
+    public static final int HEADER_SIZE = 16;
+
+    /**
+     * The size of a record in bytes.
+     */
+    public static final int RECORD_SIZE = CsvContactReader.FIELDS * Integer.BYTES;
+
+    /**
+     * The manager whose contacts are saved.
+     */
+    private final ContactManager manager;
+
+    /**
+     * The snapshot file.
+     */
+    private final Path file;
+
+    /**
+     * Creates a binary storage on "rubrica.bin".
+     *
+     * @param manager the manager whose contacts are saved.
+     */
+    public BinaryDataManager(ContactManager manager) {
+        this(manager, Paths.get(FILENAME));
+    }
+
+    /**
+     * Creates a binary storage on the given file.
+     *
+     * @param manager the manager whose contacts are saved.
+     * @param file the snapshot file.
+     */
+    public BinaryDataManager(ContactManager manager, Path file) {
+        this.manager = manager;
+        this.file = file;
+    }
+
+    /**
+     * Writes the contacts of the manager to the snapshot.
+     *
+     * @post The snapshot is replaced atomically with one that contains the
+     * current contacts.
+     *
+     * @throws IOException if an error occurs during writing.
+     */
+    @Override
+    public void saveContact() throws IOException {
+        List<Contact> contacts = new ArrayList<>(manager.getListOfContacts());
+        long checksum = this.write(contacts);
+        manager.savedContacts(FileVersion.of(file, checksum), contacts);
+    }
+
+    /**
+     * Reads the contacts of the snapshot and applies them to the manager with
+     * {@link ContactManager#applyLoaded(FileVersion, Collection)}: an
+     * unchanged snapshot is not read again and a changed one is applied as a
+     * difference.
+     *
+     * @return the manager with the loaded contacts.
+     *
+     * @throws FileNotFoundException if the snapshot does not exist.
+     * @throws IOException if the file is not a snapshot of a supported version
+     * or an error occurs during reading.
+     */
+    @Override
+    public ContactManager loadContact() throws IOException, FileNotFoundException {
+        if (!Files.exists(file)) {
+            throw new FileNotFoundException(file.toString());
+        }
+        FileVersion version = FileVersion.ifChanged(manager.getDiskVersion(), file);
+        if (version != null) {
+            manager.applyLoaded(version, this.read());
+        }
+        return manager;
+    }
+
+    /**
+     * Replaces the snapshot with the contacts of a CSV contact file. A file
+     * that is not valid UTF-8 is read with the platform charset (see
+     * {@link CsvContactReader#readWithFallback}).
+     *
+     * @param csv the contact file, with its header line.
+     *
+     * @throws IOException if an error occurs during reading or writing.
+     */
+    public void importCsv(Path csv) throws IOException {
+        this.write(CsvContactReader.readWithFallback(charset -> this.readCsv(csv, charset)));
+    }
+
+    /**
+     * Reads the contacts of a CSV contact file with the given charset.
+     *
+     * @param csv the contact file, with its header line.
+     * @param charset the charset of the file.
+     * @return the contacts of the file, in file order.
+     *
+     * @throws IOException if an error occurs during reading.
+     */
+    private List<Contact> readCsv(Path csv, Charset charset) throws IOException {
+        List<Contact> contacts = new ArrayList<>();
+        try (CsvContactReader reader = new CsvContactReader(
+                CsvContactReader.newReader(Files.newInputStream(csv), charset), manager.getStringPool())) {
+            if (reader.skipRecord()) {
+                String[] fields = new String[CsvContactReader.FIELDS];
+                while (reader.readRecord(fields)) {
+                    contacts.add(manager.createContact(fields[0], fields[1],
+                            new String[]{fields[2], fields[3], fields[4]},
+                            new String[]{fields[5], fields[6], fields[7]}));
+                }
+            }
+        }
+        return contacts;
+    }
+
+    /**
+     * Writes the contacts of the snapshot to a CSV contact file.
+     *
+     * @param csv the contact file to be created or overwritten.
+     *
+     * @throws IOException if an error occurs during reading or writing.
+     */
+    public void exportCsv(Path csv) throws IOException {
+        List<Contact> contacts = this.read();
+        try (CsvContactWriter writer = new CsvContactWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8))) {
+            writer.writeHeader();
+            for (Contact c : contacts) {
+                writer.write(c);
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given contacts.
+     *
+     * @param contacts the contacts to be written.
+     * @return the CRC-32 checksum of the snapshot, computed while writing.
+     *
+     * @throws IOException if an error occurs during writing.
+     */
+    private long write(Collection<Contact> contacts) throws IOException {
+        List<Contact> sorted = new ArrayList<>(contacts);
+        sorted.sort(manager.getComparator());
+
+        Map<String, Integer> offsets = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] records = new int[sorted.size() * CsvContactReader.FIELDS];
+        int tableSize = 0;
+        int r = 0;
+        for (Contact c : sorted) {
+            String[] phoneNumber = c.getPhoneNumber();
+            String[] email = c.getEmail();
+            for (int i = 0; i < CsvContactReader.FIELDS; i++) {
+                String value = i == 0 ? c.getSurname() : i == 1 ? c.getName()
+                        : i < 5 ? valueAt(phoneNumber, i - 2) : valueAt(email, i - 5);
+                if (value == null) {
+                    // only the surname can be null: phone numbers and emails
+                    // are padded with empty slots by valueAt
+                    records[r++] = -1;
+                    continue;
+                }
+                Integer offset = offsets.get(value);
+                if (offset == null) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    offset = tableSize;
+                    offsets.put(value, offset);
+                    strings.add(bytes);
+                    tableSize += Integer.BYTES + bytes.length;
+                }
+                records[r++] = offset;
+            }
+        }
+        int[] byKey = orderOf(sorted, c -> sortKey(c.getSurname(), c.getName()));
+        int[] byName = orderOf(sorted, c -> nameKey(c.getName()));
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new CheckedOutputStream(Channels.newOutputStream(channel), crc), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sorted.size());
+            out.writeInt(tableSize);
+            for (int offset : records) {
+                out.writeInt(offset);
+            }
+            for (int position : byKey) {
+                out.writeInt(position);
+            }
+            for (int position : byName) {
+                out.writeInt(position);
+            }
+            for (byte[] bytes : strings) {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            // the snapshot must be on the disk before it replaces the old one,
+            // or a crash could leave a renamed but empty file
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return crc.getValue();
+    }
+
+    /**
+     * Reads the contacts of the snapshot.
+     *
+     * @return the contacts, in the order of the manager that wrote the
+     * snapshot.
+     *
+     * @throws IOException if the file is not a snapshot of a supported version,
+     * is corrupt or an error occurs during reading.
+     */
+    private List<Contact> read() throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + channel.size() + " bytes");
+            }
+            data = ByteBuffer.allocate((int) channel.size());
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+            }
+            data.flip();
+        }
+        int count = checkHeader(data);
+        int table = (int) tableOffset(data.getInt(4), count);
+
+        // the distinct strings, decoded once, and their offsets in increasing order
+        List<String> strings = new ArrayList<>();
+        int[] offsets = new int[16];
+        int position = table;
+        while (position < data.limit()) {
+            int length = position + Integer.BYTES <= data.limit() ? data.getInt(position) : -1;
+            if (length < 0 || length > data.limit() - position - Integer.BYTES) {
+                throw new IOException("Corrupt contact snapshot: bad string at offset " + (position - table));
+            }
+            if (strings.size() == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[strings.size()] = position - table;
+            strings.add(new String(data.array(), position + Integer.BYTES, length, StandardCharsets.UTF_8));
+            position += Integer.BYTES + length;
+        }
+        int distinct = strings.size();
+
+        List<Contact> contacts = new ArrayList<>(count);
+        String[] fields = new String[CsvContactReader.FIELDS];
+        for (int i = 0; i < count; i++) {
+            int record = HEADER_SIZE + i * RECORD_SIZE;
+            for (int f = 0; f < CsvContactReader.FIELDS; f++) {
+                int offset = data.getInt(record + f * Integer.BYTES);
+                if (offset < 0) {
+                    // the snapshots of version 1 have -1 for missing slots too
+                    fields[f] = f < 2 ? null : "-";
+                    continue;
+                }
+                int string = Arrays.binarySearch(offsets, 0, distinct, offset);
+                if (string < 0) {
+                    throw new IOException("Corrupt contact snapshot: no string at offset " + offset);
+                }
+                fields[f] = strings.get(string);
+            }
+            contacts.add(manager.createContact(fields[0], fields[1],
+                    new String[]{fields[2], fields[3], fields[4]},
+                    new String[]{fields[5], fields[6], fields[7]}));
+        }
+        return contacts;
+    }
+
+    /**
+     * Returns the positions of some contacts sorted by a key. The contacts
+     * are not sorted if they are already in the order of the key.
+     *
+     * @param contacts the contacts.
+     * @param key the key of a contact.
+     * @return the positions of the contacts.
+     */
+    private static int[] orderOf(List<Contact> contacts, Function<Contact, String> key) {
+        int size = contacts.size();
+        String[] keys = new String[size];
+        Integer[] sorted = new Integer[size];
+        boolean ordered = true;
+        for (int i = 0; i < size; i++) {
+            keys[i] = key.apply(contacts.get(i));
+            sorted[i] = i;
+            ordered = ordered && (i == 0 || keys[i - 1].compareTo(keys[i]) <= 0);
+        }
+        if (!ordered) {
+            Arrays.sort(sorted, Comparator.comparing(i -> keys[i]));
+        }
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = sorted[i];
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the normalized primary sort key of a contact, by which the
+     * first order of a snapshot is sorted.
+     *
+     * @param surname the surname, or {@code null}.
+     * @param name the name.
+     * @return the normalized surname, or name if the surname is null.
+     */
+    static String sortKey(String surname, String name) {
+        return Contact.normalize(surname != null ? surname : name);
+    }
+
+    /**
+     * Returns the normalized name of a contact, by which the second order of
+     * a snapshot is sorted.
+     *
+     * @param name the name, or {@code null}.
+     * @return the normalized name, or an empty string if it is null.
+     */
+    static String nameKey(String name) {
+        return name == null ? "" : Contact.normalize(name);
+    }
+
+    /**
+     * Returns the position of the string table of a snapshot.
+     *
+     * @param version the version of the snapshot.
+     * @param count the number of records.
+     * @return the size of the header, of the records and, from version 2, of
+     * the two orders.
+     */
+    static long tableOffset(int version, int count) {
+        long perRecord = version >= 2 ? RECORD_SIZE + 2 * Integer.BYTES : RECORD_SIZE;
+        return HEADER_SIZE + count * perRecord;
+    }
+
+    /**
+     * Checks the header of a snapshot.
+     *
+     * @param data the content of the snapshot, of version 1 or
+     * {@link #VERSION}.
+     * @return the number of records.
+     *
+     * @throws IOException if the data is not a snapshot of a supported
+     * version or is truncated.
+     */
+    static int checkHeader(ByteBuffer data) throws IOException {
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a contact snapshot");
+        }
+        int version = data.getInt(4);
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        int count = data.getInt(8);
+        int tableSize = data.getInt(12);
+        if (count < 0 || tableSize < 0 || tableOffset(version, count) + tableSize != data.limit()) {
+            throw new IOException("Truncated contact snapshot");
+        }
+        return count;
+    }
+
+    /**
+     * Returns an element of an array of phone numbers or emails.
+     *
+     * @param values the array.
+     * @param index the index of the element.
+     * @return the element, or the empty slot "-" if the array is shorter or
+     * the element is null.
+     */
+    private static String valueAt(String[] values, int index) {
+        return index < values.length && values[index] != null ? values[index] : "-";
+    }
+}
@@ -0,0 +1,441 @@
+package it.unisa.diem.gruppo9.data;
+
+import it.unisa.diem.gruppo9.logic.StringPool;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * @file CsvContactReader.java
+ * @brief A streaming reader for the records of "rubrica.csv".
+ *
+ * <p>
+ * The {@code CsvContactReader} reads the contact file record by record. It
+ * scans a character buffer for the {@code ;} and newline delimiters instead of
+ * reading each line into a {@code String} and splitting it with a regular
+ * expression, so the only objects created for a record are the field values,
+ * and not even those when a field is empty or is the {@code "-"} placeholder
+ * of a missing phone number or email. With a {@link StringPool} a value
+ * already seen in the file is not created again either.
+ * </p>
+ * <p>
+ * A field may be enclosed in double quotes, in which case it may contain
+ * delimiters, and a double quote inside it is written twice. Both {@code \n}
+ * and {@code \r\n} terminate a record, blank lines are skipped, missing fields
+ * are read as empty strings and extra fields are ignored.
+ * </p>
+ * <p>
+ * The contact files are written in UTF-8, but the files written before were
+ * encoded with the platform charset. {@link #readWithFallback(Decoding)}
+ * decodes a file as UTF-8 and, if it is not valid UTF-8, decodes it again
+ * with the platform charset, so that these files are still read correctly.
+ * </p>
+ *
+ * @see CsvContactWriter.java
+ * @see it.unisa.diem.gruppo9.logic.ContactManager
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-15
+ */
+public class CsvContactReader implements Closeable {
+
+    /**
+     * The number of fields of a record: surname, name, three phone numbers and
+     * three emails.
+     */
+    public static final int FIELDS = 8;
+
+    /**
+     * The placeholder stored for a missing phone number or email.
+     */
+    public static final String PLACEHOLDER = "-";
+
+    /**
+     * A read of a whole file that decodes its bytes with a given charset.
+     *
+     * @param <T> the result of the read.
+     */
+    @FunctionalInterface
+    public interface Decoding<T> {
+
+        /**
+         * Reads the file.
+         *
+         * @param charset the charset of the file.
+         * @return the result of the read.
+         *
+         * @throws CharacterCodingException if the file is not valid in
+         * {@code charset} and {@code charset} is UTF-8.
+         * @throws IOException if an error occurs during reading.
+         */
+        T read(Charset charset) throws IOException;
+    }
+
+    /**
+     * The source of the characters.
+     */
+    private final Reader in;
+
+    /**
+     * The pool of the field values, or {@code null}.
+     */
+    private final StringPool pool;
+
+    /**
+     * The characters read from {@code in} and not consumed yet.
+     */
+    private char[] buffer;
+
+    /**
+     * The position of the next character to be scanned in {@code buffer}.
+     */
+    private int position;
+
+    /**
+     * The number of valid characters in {@code buffer}.
+     */
+    private int limit;
+
+    /**
+     * The start of the field being scanned. The characters before it are
+     * discarded when {@code buffer} is refilled.
+     */
+    private int mark;
+
+    /**
+     * The position where the next unescaped character of a quoted field is
+     * written.
+     */
+    private int write;
+
+    /**
+     * {@code true} once {@code in} has no more characters.
+     */
+    private boolean eof;
+
+    /**
+     * Creates a reader of the records provided by {@code in}.
+     *
+     * @pre {@code in != null}
+     *
+     * @param in the source of the characters.
+     */
+    public CsvContactReader(Reader in) {
+        this(in, 64 * 1024);
+    }
+
+    /**
+     * Creates a reader of the records provided by {@code in} with the given
+     * initial buffer size.
+     *
+     * @pre {@code in != null} and {@code bufferSize > 0}
+     *
+     * @param in the source of the characters.
+     * @param bufferSize the initial size of the character buffer.
+     */
+    public CsvContactReader(Reader in, int bufferSize) {
+        this(in, bufferSize, null);
+    }
+
+    /**
+     * Creates a reader of the records provided by {@code in} that takes the
+     * field values from {@code pool}.
+     *
+     * @pre {@code in != null}
+     *
+     * @param in the source of the characters.
+     * @param pool the pool of the field values, or {@code null}.
+     */
+    public CsvContactReader(Reader in, StringPool pool) {
+        this(in, 64 * 1024, pool);
+    }
+
+    /**
+     * Creates a reader of the records provided by {@code in} with the given
+     * initial buffer size, that takes the field values from {@code pool}.
+     *
+     * @pre {@code in != null} and {@code bufferSize > 0}
+     *
+     * @param in the source of the characters.
+     * @param bufferSize the initial size of the character buffer.
+     * @param pool the pool of the field values, or {@code null}.
+     */
+    public CsvContactReader(Reader in, int bufferSize, StringPool pool) {
+        this.in = in;
+        this.buffer = new char[bufferSize];
+        this.pool = pool;
+    }
+
+    /**
+     * Reads the next record into {@code fields}.
+     * <p>
+     * A contact record has {@link #FIELDS} fields, but any number of fields
+     * can be read: the fields in excess of {@code fields.length} are ignored
+     * and the missing ones are read as empty strings.
+     * </p>
+     *
+     * @pre {@code fields.length > 0}
+     *
+     * @post If a record was read the elements of {@code fields} are its
+     * values.
+     *
+     * @param fields the array that receives the values of the record.
+     * @return {@code false} if there are no more records.
+     *
+     * @throws IOException if an error occurs during reading.
+     */
+    public boolean readRecord(String[] fields) throws IOException {
+        if (!this.skipBlankLines()) {
+            return false;
+        }
+        int count = 0;
+        while (true) {
+            String value = this.readField();
+            if (count < fields.length) {
+                fields[count++] = value;
+            }
+            if (!this.available()) {
+                break;
+            }
+            char delimiter = buffer[position++];
+            if (delimiter == '\n') {
+                break;
+            }
+            if (delimiter == '\r') {
+                if (this.available() && buffer[position] == '\n') {
+                    position++;
+                }
+                break;
+            }
+        }
+        Arrays.fill(fields, count, fields.length, "");
+        return true;
+    }
+
+    /**
+     * Skips the next record, e.g. the header of the file.
+     *
+     * @return {@code false} if there are no more records.
+     *
+     * @throws IOException if an error occurs during reading.
+     */
+    public boolean skipRecord() throws IOException {
+        return this.readRecord(new String[FIELDS]);
+    }
+
+    /**
+     * Closes the underlying reader.
+     *
+     * @throws IOException if an error occurs while closing.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads a file as UTF-8 or, if it is not valid UTF-8, with the platform
+     * charset.
+     * <p>
+     * The read is run again from the start of the file, so any result of the
+     * failed read must be discarded by {@code decoding}.
+     * </p>
+     *
+     * @pre {@code decoding} decodes with {@link #decoder(Charset)}.
+     *
+     * @param <T> the result of the read.
+     * @param decoding the read of the file.
+     * @return the result of the read.
+     *
+     * @throws IOException if an error occurs during reading.
+     */
+    public static <T> T readWithFallback(Decoding<T> decoding) throws IOException {
+        try {
+            return decoding.read(StandardCharsets.UTF_8);
+        } catch (CharacterCodingException e) {
+            Charset legacy = legacyCharset();
+            if (legacy.equals(StandardCharsets.UTF_8)) {
+                throw e;
+            }
+            return decoding.read(legacy);
+        }
+    }
+
+    /**
+     * Returns a decoder for a contact file: a UTF-8 decoder reports malformed
+     * input, so that a file in the platform charset is detected, while the
+     * decoder of any other charset, the last resort, replaces it.
+     *
+     * @param charset the charset of the file.
+     * @return a new decoder.
+     */
+    public static CharsetDecoder decoder(Charset charset) {
+        CodingErrorAction action = charset.equals(StandardCharsets.UTF_8)
+                ? CodingErrorAction.REPORT : CodingErrorAction.REPLACE;
+        return charset.newDecoder().onMalformedInput(action).onUnmappableCharacter(action);
+    }
+
+    /**
+     * Creates a reader that decodes a stream with {@link #decoder(Charset)}.
+     *
+     * @param in the stream.
+     * @param charset the charset of the stream.
+     * @return the reader.
+     */
+    public static Reader newReader(InputStream in, Charset charset) {
+        return new InputStreamReader(in, decoder(charset));
+    }
+
+    /**
+     * Returns the platform charset, in which the contact files were written
+     * before they were written in UTF-8. From Java 18 the default charset is
+     * UTF-8 whatever the platform, so the native encoding of the platform is
+     * preferred when it is known.
+     *
+     * @return the charset.
+     */
+    static Charset legacyCharset() {
+        String name = System.getProperty("native.encoding");
+        try {
+            if (name != null && Charset.isSupported(name)) {
+                return Charset.forName(name);
+            }
+        } catch (IllegalArgumentException e) {
+            // an illegal name: use the default charset
+        }
+        return Charset.defaultCharset();
+    }
+
+    /**
+     * Reads the value of a field, leaving {@code position} on the delimiter
+     * that follows it.
+     *
+     * @return the value of the field.
+     *
+     * @throws IOException if an error occurs during reading.
+     */
+    private String readField() throws IOException {
+        mark = position;
+        if (this.available() && buffer[position] == '"') {
+            return this.readQuotedField();
+        }
+        while (this.available()) {
+            char c = buffer[position];
+            if (c == ';' || c == '\n' || c == '\r') {
+                break;
+            }
+            position++;
+        }
+        return this.materialize(mark, position - mark);
+    }
+
+    /**
+     * Reads the value of a quoted field. The unescaped characters are written
+     * back in place, starting from the opening quote.
+     *
+     * @return the value of the field.
+     *
+     * @throws IOException if an error occurs during reading.
+     */
+    private String readQuotedField() throws IOException {
+        position++;
+        write = mark;
+        while (this.available()) {
+            char c = buffer[position++];
+            if (c == '"') {
+                if (!this.available() || buffer[position] != '"') {
+                    break;
+                }
+                position++;
+            }
+            buffer[write++] = c;
+        }
+        String value = this.materialize(mark, write - mark);
+        while (this.available() && buffer[position] != ';' && buffer[position] != '\n' && buffer[position] != '\r') {
+            position++;
+        }
+        return value;
+    }
+
+    /**
+     * Skips the empty lines before the next record.
+     *
+     * @return {@code false} if there are no more records.
+     *
+     * @throws IOException if an error occurs during reading.
+     */
+    private boolean skipBlankLines() throws IOException {
+        mark = position;
+        while (this.available()) {
+            char c = buffer[position];
+            if (c != '\n' && c != '\r') {
+                return true;
+            }
+            position++;
+            mark = position;
+        }
+        return false;
+    }
+
+    /**
+     * Creates the {@code String} of a field value, sharing the constants for
+     * the empty value and the placeholder, and the values of the pool.
+     *
+     * @param offset the start of the value in {@code buffer}.
+     * @param length the length of the value.
+     * @return the value.
+     */
+    private String materialize(int offset, int length) {
+        if (length == 0) {
+            return "";
+        }
+        if (length == 1 && buffer[offset] == '-') {
+            return PLACEHOLDER;
+        }
+        return pool == null ? new String(buffer, offset, length) : pool.intern(buffer, offset, length);
+    }
+
+    /**
+     * Makes sure that the character at {@code position} is in the buffer,
+     * refilling it if needed. The characters from {@code mark} on are kept,
+     * and the buffer is enlarged if they fill it.
+     *
+     * @return {@code false} if the end of the input has been reached.
+     *
+     * @throws IOException if an error occurs during reading.
+     */
+    private boolean available() throws IOException {
+        if (position < limit) {
+            return true;
+        }
+        if (eof) {
+            return false;
+        }
+        int kept = limit - mark;
+        if (kept == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        } else if (mark > 0) {
+            System.arraycopy(buffer, mark, buffer, 0, kept);
+        }
+        position -= mark;
+        write -= mark;
+        mark = 0;
+        limit = kept;
+        int n = in.read(buffer, limit, buffer.length - limit);
+        if (n <= 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+}
@@ -0,0 +1,180 @@
+package it.unisa.diem.gruppo9.data;
+
+import it.unisa.diem.gruppo9.logic.Contact;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * @file CsvContactWriter.java
+ * @brief Writes contacts in the format read by {@code CsvContactReader}.
+ *
+ * <p>
+ * Each contact is written as a record of {@link CsvContactReader#FIELDS}
+ * fields separated by {@code ;} and terminated by a newline, in the same
+ * format as {@link Contact#toString()}. A field that contains a delimiter or a
+ * double quote is enclosed in double quotes, with its double quotes written
+ * twice, so that it is read back unchanged and the file has no double quotes
+ * outside quoted fields.
+ * </p>
+ *
+ * @see CsvContactReader.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-15
+ */
+public class CsvContactWriter implements Closeable {
+
+    /**
+     * The header line of the contact file.
+     */
+    public static final String HEADER = "Surname;Name;Phone1;Phone2;Phone3;Email1;Email2;Email3";
+
+    /**
+     * The destination of the characters.
+     */
+    private final Writer out;
+
+    /**
+     * Creates a writer of records on {@code out}.
+     *
+     * @pre {@code out != null}
+     *
+     * @param out the destination of the characters.
+     */
+    public CsvContactWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the header line.
+     *
+     * @throws IOException if an error occurs during writing.
+     */
+    public void writeHeader() throws IOException {
+        out.write(HEADER);
+        out.write('\n');
+    }
+
+    /**
+     * Writes a contact as a record.
+     *
+     * @pre {@code c} is a valid contact.
+     * @post A null surname is written as an empty field.
+     *
+     * @param c the contact to be written.
+     *
+     * @throws IOException if an error occurs during writing.
+     */
+    public void write(Contact c) throws IOException {
+        this.writeField(c.getSurname());
+        out.write(';');
+        this.writeField(c.getName());
+        for (String phoneNumber : c.getPhoneNumber()) {
+            out.write(';');
+            this.writeField(phoneNumber);
+        }
+        for (String email : c.getEmail()) {
+            out.write(';');
+            this.writeField(email);
+        }
+        out.write('\n');
+    }
+
+    /**
+     * Writes a contact as a record preceded by an additional field, e.g. the
+     * kind of operation of a journal record.
+     *
+     * @pre {@code c} is a valid contact.
+     *
+     * @param tag the value of the first field.
+     * @param c the contact to be written.
+     *
+     * @throws IOException if an error occurs during writing.
+     */
+    public void write(String tag, Contact c) throws IOException {
+        this.writeField(tag);
+        out.write(';');
+        this.write(c);
+    }
+
+    /**
+     * Writes a record made of the given values.
+     *
+     * @param values the values of the fields.
+     *
+     * @throws IOException if an error occurs during writing.
+     */
+    public void writeRecord(String... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(';');
+            }
+            this.writeField(values[i]);
+        }
+        out.write('\n');
+    }
+
+    /**
+     * Flushes the underlying writer.
+     *
+     * @throws IOException if an error occurs during writing.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Closes the underlying writer.
+     *
+     * @throws IOException if an error occurs while closing.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Writes a field value, quoting it if needed.
+     *
+     * @param value the value to be written, possibly null.
+     *
+     * @throws IOException if an error occurs during writing.
+     */
+    private void writeField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (!needsQuotes(value)) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    /**
+     * Tells whether a value must be quoted to be read back unchanged.
+     *
+     * @param value the value to be written.
+     * @return {@code true} if {@code value} contains a delimiter or a double
+     * quote.
+     */
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ';' || c == '\n' || c == '\r' || c == '"') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,205 @@
+package it.unisa.diem.gruppo9.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * @file FileVersion.java
+ * @brief The fingerprint of the content of one or more files.
+ *
+ * <p>
+ * A {@code FileVersion} records the size, the modification time and the
+ * CRC-32 checksum of each file. Two versions are equal if every file has the
+ * same three values, so a {@link it.unisa.diem.gruppo9.logic.ContactManager}
+ * can tell whether the files it loaded have changed since and skip reading
+ * them again if not. The checksum detects the changes that keep the size and
+ * fall within the resolution of the modification time.
+ * </p>
+ * <p>
+ * Computing the checksum reads the whole file, so a check against a recorded
+ * version ({@link #ifChanged(FileVersion, Path...)}) compares the sizes and
+ * the modification times first, computes the checksums only where they match
+ * and reads every file at most once. After
+ * a file has been written, its checksum can be computed while writing and
+ * given to {@link #of(Path, long)}, so that the file is not read back.
+ * </p>
+ *
+ * @see it.unisa.diem.gruppo9.logic.ContactManager
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+public final class FileVersion {
+
+    /**
+     * The size of the buffer the files are read with to compute the checksum.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The size, the modification time and the checksum of each file, or -1
+     * three times for a missing file.
+     */
+    private final long[] values;
+
+    /**
+     * Creates a version from its values.
+     *
+     * @param values the size, the modification time and the checksum of each
+     * file.
+     */
+    private FileVersion(long[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Computes the version of files.
+     *
+     * @param files the files, which may not exist.
+     * @return the version of the files.
+     *
+     * @throws IOException if an error occurs while reading a file.
+     */
+    public static FileVersion of(Path... files) throws IOException {
+        return ifChanged(null, files);
+    }
+
+    /**
+     * Computes the version of files if it differs from a recorded one. The
+     * checksum of a file is computed to tell whether it changed only if its
+     * size and modification time are the recorded ones, since otherwise the
+     * file has changed anyway, and it is computed for the other files only
+     * once a change has been found.
+     *
+     * @param recorded the recorded version of the same files, or
+     * {@code null} if there is none.
+     * @param files the files, which may not exist.
+     * @return the version of the files, as {@link #of(Path...)} computes it,
+     * or {@code null} if it is equal to {@code recorded}.
+     *
+     * @throws IOException if an error occurs while reading a file.
+     */
+    public static FileVersion ifChanged(FileVersion recorded, Path... files) throws IOException {
+        long[] values = new long[files.length * 3];
+        Arrays.fill(values, -1);
+        boolean changed = recorded == null || recorded.values.length != values.length;
+        boolean[] hashed = new boolean[files.length];
+        for (int i = 0; i < files.length; i++) {
+            if (Files.exists(files[i])) {
+                values[i * 3] = Files.size(files[i]);
+                values[i * 3 + 1] = Files.getLastModifiedTime(files[i]).toMillis();
+            }
+            if (!changed && (values[i * 3] != recorded.values[i * 3]
+                    || values[i * 3 + 1] != recorded.values[i * 3 + 1])) {
+                changed = true;
+            }
+        }
+        for (int i = 0; i < files.length && !changed; i++) {
+            if (values[i * 3] >= 0) {
+                values[i * 3 + 2] = checksum(files[i], new CRC32());
+                hashed[i] = true;
+            }
+            changed = values[i * 3 + 2] != recorded.values[i * 3 + 2];
+        }
+        if (!changed) {
+            return null;
+        }
+        for (int i = 0; i < files.length; i++) {
+            if (values[i * 3] >= 0 && !hashed[i]) {
+                values[i * 3 + 2] = checksum(files[i], new CRC32());
+            }
+        }
+        return new FileVersion(values);
+    }
+
+    /**
+     * Computes the version of a file whose checksum is known, e.g. because
+     * it was computed while the file was written.
+     *
+     * @param file the file, which may not exist.
+     * @param checksum the CRC-32 checksum of the content of the file.
+     * @return the version of the file.
+     *
+     * @throws IOException if an error occurs while reading the attributes.
+     */
+    public static FileVersion of(Path file, long checksum) throws IOException {
+        long[] values = {-1, -1, -1};
+        if (Files.exists(file)) {
+            values[0] = Files.size(file);
+            values[1] = Files.getLastModifiedTime(file).toMillis();
+            values[2] = checksum;
+        }
+        return new FileVersion(values);
+    }
+
+    /**
+     * Updates a checksum with the content of a file.
+     *
+     * @param file the file.
+     * @param crc the checksum to be updated.
+     * @return the value of the checksum.
+     *
+     * @throws IOException if an error occurs while reading the file.
+     */
+    static long checksum(Path file, CRC32 crc) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the version of one of the files.
+     *
+     * @param index the index of the file among the ones the version was
+     * computed for.
+     * @return the version of the file.
+     */
+    FileVersion part(int index) {
+        return new FileVersion(Arrays.copyOfRange(values, index * 3, index * 3 + 3));
+    }
+
+    /**
+     * Combines the versions of files into the version of all of them.
+     *
+     * @param parts the versions of the files.
+     * @return the version of the files, equal to the one that
+     * {@link #of(Path...)} computes for all the files at once.
+     */
+    public static FileVersion combine(FileVersion... parts) {
+        long[] values = new long[0];
+        for (FileVersion part : parts) {
+            int length = values.length;
+            values = Arrays.copyOf(values, length + part.values.length);
+            System.arraycopy(part.values, 0, values, length, part.values.length);
+        }
+        return new FileVersion(values);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof FileVersion && Arrays.equals(values, ((FileVersion) obj).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+}
@@ -0,0 +1,615 @@
+package it.unisa.diem.gruppo9.data;
+
+import it.unisa.diem.gruppo9.logic.Contact;
+import it.unisa.diem.gruppo9.logic.ContactManager;
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import javafx.collections.ListChangeListener;
+
+/**
+ * @file JournalDataManager.java
+ * @brief A {@code DataManager} that saves only the changes to the contacts.
+ *
+ * <p>
+ * The {@code JournalDataManager} keeps the contacts in a snapshot, which is a
+ * regular "rubrica.csv" file, plus a journal file next to it. It listens to
+ * the list of a {@link ContactManager} and, when {@link #saveContact()} is
+ * invoked, appends to the journal one record for each contact added or
+ * deleted since the last save, and forces the journal to the disk. The cost
+ * of a save depends on the size of the change, not on the size of the
+ * address book. Since the changes are copied when they happen, a save can
+ * run on a background thread while the list keeps changing.
+ * </p>
+ * <p>
+ * When the journal exceeds a threshold it is compacted in the background: the
+ * snapshot and the journal are replayed, the result is written to a temporary
+ * file that atomically replaces the snapshot, and the journal is deleted. The
+ * first line of the journal records the size and the modification time of the
+ * snapshot it applies to, so a journal left behind by an interrupted
+ * compaction, or by a snapshot rewritten by other means, is ignored instead
+ * of being applied twice.
+ * </p>
+ *
+ * @see DataManager.java
+ * @see CsvContactWriter.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-16
+ */
+public class JournalDataManager implements DataManager {
+
+    /**
+     * The default size of the journal above which it is compacted.
+     */
+    public static final long DEFAULT_THRESHOLD = 1 << 20;
+
+    /**
+     * The tag of the first record of the journal.
+     */
+    private static final String BASE = "#base";
+
+    /**
+     * The tag of the record of an added contact.
+     */
+    private static final String ADD = "A";
+
+    /**
+     * The tag of the record of a deleted contact.
+     */
+    private static final String DELETE = "D";
+
+    /**
+     * The tag of the record of a contact edited in place, which replaces the
+     * contact of the previous record, a deletion, at its position.
+     */
+    private static final String EDIT = "E";
+
+    /**
+     * The manager whose contacts are saved.
+     */
+    private final ContactManager manager;
+
+    /**
+     * The snapshot file.
+     */
+    private final Path snapshot;
+
+    /**
+     * The journal file.
+     */
+    private final Path journal;
+
+    /**
+     * The size of the journal above which it is compacted.
+     */
+    private final long threshold;
+
+    /**
+     * The changes not saved yet: each element is a tag and a copy of the
+     * contact at the time of the change.
+     */
+    private final List<Object[]> pending;
+
+    /**
+     * Serializes the accesses to the files.
+     */
+    private final Object lock;
+
+    /**
+     * Runs the compactions.
+     */
+    private final ExecutorService compactor;
+
+    /**
+     * The version of the snapshot, computed when the snapshot is read or
+     * rewritten, or {@code null}. The snapshot is not read again to compute
+     * the version of the files after a save.
+     */
+    private FileVersion snapshotFingerprint;
+
+    /**
+     * The checksum of the journal, updated as the records are appended, or
+     * {@code null} if it must be computed again by reading the journal.
+     */
+    private CRC32 journalChecksum;
+
+    /**
+     * {@code true} if the contact being edited has been moved to another
+     * position. It is accessed only on the thread of the edit.
+     */
+    private boolean editMoved;
+
+    /**
+     * Creates a journaled storage on "rubrica.csv" and "rubrica.csv.journal".
+     *
+     * @param manager the manager whose contacts are saved.
+     */
+    public JournalDataManager(ContactManager manager) {
+        this(manager, Paths.get(ContactManager.FILENAME), Paths.get(ContactManager.FILENAME + ".journal"), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates a journaled storage on the given files.
+     *
+     * @pre The storage is created before the contacts are loaded, since only
+     * the changes that follow are recorded.
+     *
+     * @param manager the manager whose contacts are saved.
+     * @param snapshot the snapshot file.
+     * @param journal the journal file.
+     * @param threshold the size of the journal above which it is compacted.
+     */
+    public JournalDataManager(ContactManager manager, Path snapshot, Path journal, long threshold) {
+        this.manager = manager;
+        this.snapshot = snapshot;
+        this.journal = journal;
+        this.threshold = threshold;
+        this.pending = new ArrayList<>();
+        this.lock = new Object();
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "journal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        manager.getListOfContacts().addListener(this::recordChange);
+        manager.addEditListener(this::recordEdit);
+    }
+
+    /**
+     * Appends the changes made since the last save to the journal and forces
+     * it to the disk, then starts a compaction if the journal is too large.
+     *
+     * @post The journal and the snapshot together contain the current
+     * contacts.
+     *
+     * @throws IOException if an error occurs during writing.
+     */
+    @Override
+    public void saveContact() throws IOException {
+        List<Object[]> changes;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            changes = new ArrayList<>(pending);
+            pending.clear();
+        }
+        List<Contact> added = new ArrayList<>();
+        List<Contact> removed = new ArrayList<>();
+        for (Object[] change : changes) {
+            if (!DELETE.equals(change[0])) {
+                added.add((Contact) change[1]);
+            } else {
+                removed.add((Contact) change[1]);
+            }
+        }
+        long size;
+        synchronized (lock) {
+            FileVersion before = this.version(false);
+            try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                CsvContactWriter writer = new CsvContactWriter(new BufferedWriter(new OutputStreamWriter(
+                        new CheckedOutputStream(Channels.newOutputStream(channel), journalChecksum), StandardCharsets.UTF_8)));
+                if (channel.size() == 0) {
+                    String[] version = this.snapshotVersion();
+                    writer.writeRecord(BASE, version[0], version[1]);
+                }
+                for (Object[] change : changes) {
+                    writer.write((String) change[0], (Contact) change[1]);
+                }
+                writer.flush();
+                channel.force(true);
+                size = channel.size();
+            } catch (IOException | RuntimeException e) {
+                journalChecksum = null;
+                throw e;
+            }
+            manager.savedChanges(before, this.version(false), added, removed);
+        }
+        if (size > threshold) {
+            compactor.submit(() -> {
+                this.compact();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Replays the journal on top of the snapshot and applies the result to
+     * the manager with
+     * {@link ContactManager#applyLoaded(FileVersion, java.util.Collection)}.
+     * The files are not read if they have not changed since the last load or
+     * save, and only the difference is applied otherwise.
+     *
+     * @return the manager with the loaded contacts.
+     *
+     * @throws FileNotFoundException if neither the snapshot nor the journal
+     * exists.
+     * @throws IOException if an error occurs during reading.
+     */
+    @Override
+    public ContactManager loadContact() throws IOException, FileNotFoundException {
+        FileVersion version;
+        List<Contact> contacts;
+        synchronized (lock) {
+            if (!Files.exists(snapshot) && !Files.exists(journal)) {
+                throw new FileNotFoundException(snapshot.toString());
+            }
+            version = FileVersion.ifChanged(manager.getDiskVersion(), snapshot, journal);
+            if (version == null) {
+                return manager;
+            }
+            snapshotFingerprint = version.part(0);
+            journalChecksum = null;
+            contacts = this.replay();
+        }
+        manager.applyLoaded(version, contacts);
+        return manager;
+    }
+
+    /**
+     * Replays the journal on top of the snapshot without adding the result to
+     * the manager. The contacts are to be added with
+     * {@link ContactManager#addLoaded(java.util.Collection)}, so that they are
+     * not recorded as changes.
+     *
+     * @return the contacts of the snapshot and the journal.
+     *
+     * @throws FileNotFoundException if neither the snapshot nor the journal
+     * exists.
+     * @throws IOException if an error occurs during reading.
+     */
+    public List<Contact> readContacts() throws IOException, FileNotFoundException {
+        synchronized (lock) {
+            if (!Files.exists(snapshot) && !Files.exists(journal)) {
+                throw new FileNotFoundException(snapshot.toString());
+            }
+            return this.replay();
+        }
+    }
+
+    /**
+     * Computes the version of the snapshot and the journal, e.g. before
+     * {@link #readContacts()} on a background thread.
+     *
+     * @return the version of the files.
+     *
+     * @throws IOException if an error occurs while reading the files.
+     */
+    public FileVersion getVersion() throws IOException {
+        synchronized (lock) {
+            return this.version(true);
+        }
+    }
+
+    /**
+     * Rewrites the snapshot with the content of the snapshot and the journal,
+     * and deletes the journal.
+     *
+     * @post The snapshot contains the same contacts as the snapshot and the
+     * journal did, and there is no journal.
+     *
+     * @throws IOException if an error occurs during reading or writing.
+     */
+    public void compact() throws IOException {
+        synchronized (lock) {
+            if (!Files.exists(journal)) {
+                return;
+            }
+            List<Contact> contacts = this.replay();
+            Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            CRC32 crc = new CRC32();
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                CsvContactWriter writer = new CsvContactWriter(new BufferedWriter(new OutputStreamWriter(
+                        new CheckedOutputStream(Channels.newOutputStream(channel), crc), StandardCharsets.UTF_8)));
+                writer.writeHeader();
+                for (Contact c : contacts) {
+                    writer.write(c);
+                }
+                writer.flush();
+                channel.force(true);
+            }
+            FileVersion before = this.version(false);
+            Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(journal);
+            snapshotFingerprint = FileVersion.of(snapshot, crc.getValue());
+            journalChecksum = new CRC32();
+            manager.savedChanges(before, this.version(false), Collections.emptyList(), Collections.emptyList());
+        }
+    }
+
+    /**
+     * Waits for the compaction started by the last save, if any.
+     *
+     * @throws IOException if the compaction failed.
+     */
+    public void awaitCompaction() throws IOException {
+        Future<?> barrier = compactor.submit(() -> {
+        });
+        try {
+            barrier.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Records the contacts added to and removed from the list. The contacts
+     * that are both removed and added by the same change, e.g. when the list
+     * is rebuilt by a merge, are not recorded, nor are the contacts loaded
+     * from the files or the moves of the edited contacts, which are recorded
+     * by {@link #recordEdit(Contact, Contact)}.
+     *
+     * @param change the change of the list.
+     */
+    private void recordChange(ListChangeListener.Change<? extends Contact> change) {
+        if (manager.isEditing()) {
+            editMoved = true;
+            return;
+        }
+        if (manager.isLoading()) {
+            return;
+        }
+        while (change.next()) {
+            if (change.wasPermutated() || change.wasUpdated()) {
+                continue;
+            }
+            Set<Contact> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+            removed.addAll(change.getRemoved());
+            List<Contact> added = new ArrayList<>();
+            for (Contact c : change.getAddedSubList()) {
+                if (!removed.remove(c)) {
+                    added.add(c);
+                }
+            }
+            synchronized (pending) {
+                for (Contact c : removed) {
+                    pending.add(new Object[]{DELETE, copyOf(c)});
+                }
+                for (Contact c : added) {
+                    pending.add(new Object[]{ADD, copyOf(c)});
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a contact edited in place as the deletion of its previous
+     * content followed by the new one. If the contact kept its position the
+     * new content is recorded as an edit, which the replay puts in the
+     * position of the deleted one, otherwise as an addition, which the replay
+     * puts after the contacts that compare equal, as the move did. Either
+     * way, a reload keeps the order of the list.
+     *
+     * @param before a copy of the contact before the edit.
+     * @param after the edited contact.
+     */
+    private void recordEdit(Contact before, Contact after) {
+        String tag = editMoved ? ADD : EDIT;
+        editMoved = false;
+        synchronized (pending) {
+            pending.add(new Object[]{DELETE, copyOf(before)});
+            pending.add(new Object[]{tag, copyOf(after)});
+        }
+    }
+
+    /**
+     * Reads the snapshot and applies the journal, if it refers to the current
+     * snapshot.
+     *
+     * @return the contacts, in the order of the snapshot followed by the
+     * added ones.
+     *
+     * @throws IOException if an error occurs during reading.
+     */
+    private List<Contact> replay() throws IOException {
+        List<Contact> contacts = new ArrayList<>();
+        Map<String, Deque<Contact>> byContent = new HashMap<>();
+        String[] fields = new String[CsvContactReader.FIELDS + 1];
+        if (Files.exists(snapshot)) {
+            // the snapshot may predate UTF-8, unlike the journal
+            CsvContactReader.readWithFallback(charset -> this.readSnapshot(charset, contacts, byContent));
+        }
+        Set<Contact> deleted = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<Contact, Contact> edited = new IdentityHashMap<>();
+        Contact lastDeleted = null;
+        if (Files.exists(journal)) {
+            try (CsvContactReader reader = new CsvContactReader(Files.newBufferedReader(journal, StandardCharsets.UTF_8))) {
+                String[] version = this.snapshotVersion();
+                if (reader.readRecord(fields) && BASE.equals(fields[0])
+                        && version[0].equals(fields[1]) && version[1].equals(fields[2])) {
+                    while (reader.readRecord(fields)) {
+                        if (ADD.equals(fields[0])) {
+                            this.replayAdd(fields, contacts, byContent);
+                        } else if (EDIT.equals(fields[0]) && lastDeleted != null) {
+                            this.replayEdit(fields, edited, lastDeleted, byContent);
+                        } else if (DELETE.equals(fields[0])) {
+                            Deque<Contact> same = byContent.get(contentKey(fields, 1));
+                            if (same != null && !same.isEmpty()) {
+                                lastDeleted = same.removeFirst();
+                                deleted.add(lastDeleted);
+                                continue;
+                            }
+                        }
+                        lastDeleted = null;
+                    }
+                }
+            }
+        }
+        if (deleted.isEmpty()) {
+            return contacts;
+        }
+        List<Contact> result = new ArrayList<>(contacts.size());
+        for (Contact c : contacts) {
+            // an edited contact is replaced by its last content, unless the
+            // latter has been deleted in turn
+            while (edited.containsKey(c)) {
+                c = edited.get(c);
+            }
+            if (!deleted.contains(c)) {
+                result.add(c);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the contacts of the snapshot with the given charset.
+     *
+     * @post {@code contacts} and {@code byContent} hold only the contacts of
+     * the snapshot, even if they held the results of a failed read.
+     *
+     * @param charset the charset of the snapshot.
+     * @param contacts the list that receives the contacts, in file order.
+     * @param byContent the contacts by content key.
+     * @return {@code contacts}.
+     *
+     * @throws IOException if an error occurs during reading.
+     */
+    private List<Contact> readSnapshot(Charset charset, List<Contact> contacts,
+            Map<String, Deque<Contact>> byContent) throws IOException {
+        contacts.clear();
+        byContent.clear();
+        String[] fields = new String[CsvContactReader.FIELDS + 1];
+        try (CsvContactReader reader = new CsvContactReader(
+                CsvContactReader.newReader(Files.newInputStream(snapshot), charset), manager.getStringPool())) {
+            String[] record = new String[CsvContactReader.FIELDS];
+            if (reader.skipRecord()) {
+                while (reader.readRecord(record)) {
+                    System.arraycopy(record, 0, fields, 1, record.length);
+                    this.replayAdd(fields, contacts, byContent);
+                }
+            }
+        }
+        return contacts;
+    }
+
+    /**
+     * Creates the contact of an edit record, which replaces a deleted one.
+     *
+     * @param fields the tag followed by the fields of the contact.
+     * @param edited the contacts replaced by an edit, with their new content.
+     * @param replaced the deleted contact the edit replaces.
+     * @param byContent the replayed contacts, by content.
+     */
+    private void replayEdit(String[] fields, Map<Contact, Contact> edited, Contact replaced,
+            Map<String, Deque<Contact>> byContent) {
+        Contact c = manager.createContact(fields[1], fields[2],
+                new String[]{fields[3], fields[4], fields[5]},
+                new String[]{fields[6], fields[7], fields[8]});
+        edited.put(replaced, c);
+        byContent.computeIfAbsent(contentKey(fields, 1), k -> new ArrayDeque<>()).add(c);
+    }
+
+    /**
+     * Creates the contact of a record and adds it to the replayed contacts.
+     *
+     * @param fields the tag followed by the fields of the contact.
+     * @param contacts the replayed contacts.
+     * @param byContent the replayed contacts, by content.
+     */
+    private void replayAdd(String[] fields, List<Contact> contacts, Map<String, Deque<Contact>> byContent) {
+        Contact c = manager.createContact(fields[1], fields[2],
+                new String[]{fields[3], fields[4], fields[5]},
+                new String[]{fields[6], fields[7], fields[8]});
+        contacts.add(c);
+        byContent.computeIfAbsent(contentKey(fields, 1), k -> new ArrayDeque<>()).add(c);
+    }
+
+    /**
+     * Returns the version of the snapshot and the journal.
+     *
+     * @param rehash {@code true} to compute the version of the files again,
+     * {@code false} to use the last version of the snapshot and the running
+     * checksum of the journal, so that the files are not read.
+     * @return the version of the files.
+     *
+     * @throws IOException if an error occurs while reading the files.
+     */
+    private FileVersion version(boolean rehash) throws IOException {
+        if (rehash || snapshotFingerprint == null) {
+            snapshotFingerprint = FileVersion.of(snapshot);
+        }
+        if (rehash || journalChecksum == null) {
+            journalChecksum = new CRC32();
+            if (Files.exists(journal)) {
+                FileVersion.checksum(journal, journalChecksum);
+            }
+        }
+        return FileVersion.combine(snapshotFingerprint, FileVersion.of(journal, journalChecksum.getValue()));
+    }
+
+    /**
+     * Returns the size and the modification time of the snapshot, which
+     * identify the snapshot a journal applies to.
+     *
+     * @return the size and the modification time, or "-1" twice if there is
+     * no snapshot.
+     *
+     * @throws IOException if an error occurs while reading the attributes.
+     */
+    private String[] snapshotVersion() throws IOException {
+        if (!Files.exists(snapshot)) {
+            return new String[]{"-1", "-1"};
+        }
+        return new String[]{String.valueOf(Files.size(snapshot)),
+            String.valueOf(Files.getLastModifiedTime(snapshot).toMillis())};
+    }
+
+    /**
+     * Returns a copy of a contact, so that the journal records its content at
+     * the time of the change.
+     *
+     * @param c the contact.
+     * @return a contact with the same attributes.
+     */
+    private static Contact copyOf(Contact c) {
+        return new Contact(c.getSurname() == null ? "" : c.getSurname(), c.getName(),
+                c.getPhoneNumber().clone(), c.getEmail().clone());
+    }
+
+    /**
+     * Returns a key that identifies the content of a contact record.
+     *
+     * @param fields the fields of the record.
+     * @param from the index of the surname.
+     * @return the key of the content.
+     */
+    private static String contentKey(String[] fields, int from) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < from + CsvContactReader.FIELDS; i++) {
+            sb.append(fields[i]).append('\u0000');
+        }
+        return sb.toString();
+    }
+}
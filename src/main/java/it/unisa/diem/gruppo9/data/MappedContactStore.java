@@ -0,0 +1,351 @@
+package it.unisa.diem.gruppo9.data;
+
+import it.unisa.diem.gruppo9.logic.Contact;
+import it.unisa.diem.gruppo9.logic.ContactManager;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+
+/**
+ * @file MappedContactStore.java
+ * @brief A read-only view of a binary snapshot that creates the contacts on
+ * demand.
+ *
+ * <p>
+ * The {@code MappedContactStore} maps a snapshot written by
+ * {@link BinaryDataManager} in memory instead of reading it. Since the
+ * records have a fixed width, the position of the i-th contact is computed
+ * and no index has to be built, so opening the store costs the same for any
+ * size of the file. A {@link Contact} is created only when one of its rows is
+ * requested, e.g. by a {@code TableView} for the visible rows, and is kept so
+ * that the same row always returns the same contact. The heap used is then
+ * proportional to the rows actually requested, while the content of the file
+ * is paged in by the operating system.
+ * </p>
+ * <p>
+ * The contacts are in the order of the snapshot, i.e. of the comparator of
+ * the manager that wrote it. A search by prefix is a binary search on the
+ * two orders of the records stored in the snapshot, by sort key and by name,
+ * which are read in place from the mapping: nothing is sorted or decoded in
+ * advance, and a search decodes only the keys it compares.
+ * </p>
+ * <p>
+ * The store is a standalone read-only view: it is not used by
+ * {@link ContactManager}, whose list is modified by the application, and is
+ * meant for browsing and searching a large snapshot. It keeps the file
+ * mapped until it is closed, and on Windows a mapped file cannot be
+ * replaced, so the store must be closed before the snapshot is saved again.
+ * </p>
+ *
+ * @see BinaryDataManager.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-16
+ */
+public class MappedContactStore implements Closeable {
+
+    /**
+     * The manager that creates the contacts.
+     */
+    private final ContactManager manager;
+
+    /**
+     * The content of the snapshot.
+     */
+    private final MappedByteBuffer data;
+
+    /**
+     * Whether the store has been closed and the snapshot unmapped.
+     */
+    private boolean closed;
+
+    /**
+     * The number of contacts.
+     */
+    private final int size;
+
+    /**
+     * The position of the string table in {@code data}.
+     */
+    private final int table;
+
+    /**
+     * The contacts created so far, by index.
+     */
+    private final Map<Integer, Contact> materialized;
+
+    /**
+     * The position in {@code data} of the order of the records by sort key,
+     * followed by the order by name.
+     */
+    private final int orders;
+
+    /**
+     * The contacts as an {@code ObservableList}, created on first use.
+     */
+    private ObservableList<Contact> list;
+
+    /**
+     * Maps a snapshot.
+     *
+     * @param manager the manager that creates the contacts.
+     * @param file the snapshot written by {@link BinaryDataManager}.
+     *
+     * @throws IOException if the file is not a snapshot of the current
+     * version or cannot be mapped.
+     */
+    public MappedContactStore(ContactManager manager, Path file) throws IOException {
+        this.manager = manager;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large to be mapped: " + channel.size() + " bytes");
+            }
+            this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            this.size = BinaryDataManager.checkHeader(data);
+            if (data.getInt(4) != BinaryDataManager.VERSION) {
+                throw new IOException("Snapshot version " + data.getInt(4) + " has no stored orders, save it again");
+            }
+        } catch (IOException e) {
+            Unmapper.unmap(data);
+            throw e;
+        }
+        this.orders = BinaryDataManager.HEADER_SIZE + size * BinaryDataManager.RECORD_SIZE;
+        this.table = (int) BinaryDataManager.tableOffset(BinaryDataManager.VERSION, size);
+        this.materialized = new HashMap<>();
+    }
+
+    /**
+     * Returns the number of contacts of the snapshot.
+     *
+     * @return the number of contacts.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a contact, creating it on first request.
+     *
+     * @pre {@code 0 <= index < size()}
+     * @post Further calls with the same {@code index} return the same
+     * contact.
+     *
+     * @param index the position of the contact in the snapshot.
+     * @return the contact.
+     */
+    public Contact get(int index) {
+        this.checkOpen();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Contact c = materialized.get(index);
+        if (c == null) {
+            c = manager.createContact(this.field(index, 0), this.field(index, 1),
+                    new String[]{this.field(index, 2), this.field(index, 3), this.field(index, 4)},
+                    new String[]{this.field(index, 5), this.field(index, 6), this.field(index, 7)});
+            materialized.put(index, c);
+        }
+        return c;
+    }
+
+    /**
+     * Returns the number of contacts created so far.
+     *
+     * @return the number of distinct rows requested.
+     */
+    public int materializedCount() {
+        return materialized.size();
+    }
+
+    /**
+     * Returns the contacts as a read-only {@code ObservableList}, e.g. for
+     * {@code TableView.setItems}. Its elements are created on demand by
+     * {@link #get(int)}.
+     *
+     * @return a list view of the store.
+     */
+    public ObservableList<Contact> asList() {
+        if (list == null) {
+            list = new ObservableListBase<Contact>() {
+                @Override
+                public Contact get(int index) {
+                    return MappedContactStore.this.get(index);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return list;
+    }
+
+    /**
+     * Returns the contacts whose name or surname starts with a prefix. The
+     * match ignores case and accents, as
+     * {@link ContactManager#searchContact(String)} does.
+     * <p>
+     * The first match by sort key, i.e. the surname or the name if there is
+     * no surname, and the first match by name are found by binary search on
+     * the orders stored in the snapshot. Only the keys compared and the
+     * matches are decoded.
+     * </p>
+     *
+     * @param prefix the prefix to be searched.
+     * @return the matching contacts, in the order of the snapshot.
+     */
+    public List<Contact> search(String prefix) {
+        this.checkOpen();
+        String key = Contact.normalize(prefix);
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = this.lowerBound(0, key, this::sortKey); i < size; i++) {
+            int index = this.recordAt(0, i);
+            if (!this.sortKey(index).startsWith(key)) {
+                break;
+            }
+            indexes.add(index);
+        }
+        for (int i = this.lowerBound(1, key, this::nameKey); i < size; i++) {
+            int index = this.recordAt(1, i);
+            if (!this.nameKey(index).startsWith(key)) {
+                break;
+            }
+            if (!this.sortKey(index).startsWith(key)) {
+                indexes.add(index);
+            }
+        }
+        Collections.sort(indexes);
+        List<Contact> result = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            result.add(this.get(index));
+        }
+        return result;
+    }
+
+    /**
+     * Unmaps the snapshot (see {@link Unmapper}). The contacts already
+     * created remain valid.
+     *
+     * @pre No other thread is using the store.
+     * @post {@link #get(int)} and {@link #search(String)} throw an
+     * {@code IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            Unmapper.unmap(data);
+        }
+    }
+
+    /**
+     * Checks that the store has not been closed, since the snapshot can no
+     * longer be read.
+     *
+     * @throws IllegalStateException if the store has been closed.
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Contact store closed");
+        }
+    }
+
+    /**
+     * Finds by binary search the first position of an order whose record has
+     * a key not less than a given one.
+     *
+     * @param order 0 for the order by sort key, 1 for the order by name.
+     * @param key the normalized key.
+     * @param keyOf the key of the record at a position of the snapshot.
+     * @return the first position in the order, or {@code size()} if none.
+     */
+    private int lowerBound(int order, String key, IntFunction<String> keyOf) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyOf.apply(this.recordAt(order, mid)).compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the record at a position of one of the orders of the snapshot.
+     *
+     * @param order 0 for the order by sort key, 1 for the order by name.
+     * @param i the position in the order.
+     * @return the position of the record in the snapshot.
+     *
+     * @throws IllegalStateException if the stored position is out of range.
+     */
+    private int recordAt(int order, int i) {
+        int index = data.getInt(orders + (order * size + i) * Integer.BYTES);
+        if (index < 0 || index >= size) {
+            throw new IllegalStateException("Corrupt contact snapshot: record " + index + " of " + size);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the normalized name of a record, without creating its contact.
+     *
+     * @param index the position of the record.
+     * @return the normalized name, or an empty string if it is null.
+     */
+    private String nameKey(int index) {
+        return BinaryDataManager.nameKey(this.field(index, 1));
+    }
+
+    /**
+     * Returns the normalized primary sort key of a record, without creating
+     * its contact.
+     *
+     * @param index the position of the record.
+     * @return the normalized surname, or name if the surname is null.
+     */
+    private String sortKey(int index) {
+        return BinaryDataManager.sortKey(this.field(index, 0), this.field(index, 1));
+    }
+
+    /**
+     * Decodes a field of a record.
+     *
+     * @param index the position of the record.
+     * @param field the position of the field in the record.
+     * @return the value of the field, {@code null} for a null surname or
+     * "-" for a missing phone number or email.
+     */
+    private String field(int index, int field) {
+        int offset = data.getInt(BinaryDataManager.HEADER_SIZE + index * BinaryDataManager.RECORD_SIZE + field * Integer.BYTES);
+        if (offset < 0) {
+            return field < 2 ? null : "-";
+        }
+        int position = table + offset;
+        byte[] bytes = new byte[data.getInt(position)];
+        ByteBuffer slice = data.duplicate();
+        slice.position(position + Integer.BYTES);
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
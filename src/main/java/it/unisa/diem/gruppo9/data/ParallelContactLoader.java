@@ -0,0 +1,367 @@
+package it.unisa.diem.gruppo9.data;
+
+import it.unisa.diem.gruppo9.logic.Contact;
+import it.unisa.diem.gruppo9.logic.ContactManager;
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * @file ParallelContactLoader.java
+ * @brief Loads a contact file by parsing chunks of it in parallel.
+ *
+ * <p>
+ * The file is memory-mapped and split into byte ranges whose boundaries fall
+ * at the end of a record. Since a quoted field may contain a newline, the
+ * boundaries are chosen in two passes: the double quotes of every range are
+ * counted in parallel, and a newline is taken as a boundary only if the
+ * number of double quotes before it is even, i.e. it is not inside a quoted
+ * field. This relies on double quotes appearing only in quoted fields, as
+ * {@link CsvContactWriter} writes them.
+ * </p>
+ * <p>
+ * Each range is then decoded and parsed with a {@link CsvContactReader} on a
+ * fork/join pool and sorted locally. If a range is not valid UTF-8, all the
+ * ranges are parsed again with the platform charset (see
+ * {@link CsvContactReader#readWithFallback}). The sorted runs are merged with a k-way
+ * merge in which equal contacts are taken from the earlier run first, so the
+ * result has exactly the contents and the order that the sequential
+ * {@link ContactManager#loadContact()} produces. The file is unmapped as
+ * soon as it has been parsed (see {@link Unmapper}), so that it can be
+ * saved again right after the load.
+ * </p>
+ *
+ * @see CsvContactReader.java
+ * @see ContactManager.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-15
+ */
+public class ParallelContactLoader {
+
+    /**
+     * The minimum size of a chunk. Smaller files are parsed in a single
+     * chunk.
+     */
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * The manager that creates the contacts and defines their order.
+     */
+    private final ContactManager manager;
+
+    /**
+     * The pool that runs the chunk tasks.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a loader that creates and orders contacts as {@code manager}
+     * does, running on the common fork/join pool.
+     *
+     * @param manager the manager that creates the contacts and defines their
+     * order.
+     */
+    public ParallelContactLoader(ContactManager manager) {
+        this(manager, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a loader that creates and orders contacts as {@code manager}
+     * does, running on {@code pool}.
+     *
+     * @param manager the manager that creates the contacts and defines their
+     * order.
+     * @param pool the pool that runs the chunk tasks.
+     */
+    public ParallelContactLoader(ContactManager manager, ForkJoinPool pool) {
+        this.manager = manager;
+        this.pool = pool;
+    }
+
+    /**
+     * Loads the contacts of {@code file}, choosing the number of chunks from
+     * the size of the file and the parallelism of the pool.
+     *
+     * @param file the contact file, with its header line.
+     * @return the contacts of the file, sorted by the comparator of the
+     * manager.
+     *
+     * @throws IOException if an error occurs during reading.
+     */
+    public List<Contact> load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunks = (int) Math.max(1, Math.min(pool.getParallelism() * 4L, size / MIN_CHUNK_SIZE));
+            return this.load(channel, chunks);
+        }
+    }
+
+    /**
+     * Loads the contacts of {@code file} parsing it in {@code chunks} ranges.
+     *
+     * @pre {@code chunks > 0}
+     *
+     * @param file the contact file, with its header line.
+     * @param chunks the number of ranges the file is split into.
+     * @return the contacts of the file, sorted by the comparator of the
+     * manager.
+     *
+     * @throws IOException if an error occurs during reading.
+     */
+    public List<Contact> load(Path file, int chunks) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return this.load(channel, chunks);
+        }
+    }
+
+    /**
+     * Maps the file, splits it and parses the chunks.
+     *
+     * @param channel the channel of the contact file.
+     * @param chunks the number of ranges the file is split into.
+     * @return the sorted contacts.
+     *
+     * @throws IOException if an error occurs during reading.
+     */
+    private List<Contact> load(FileChannel channel, int chunks) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("File too large to be mapped: " + size + " bytes");
+        }
+        MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        List<List<Contact>> runs;
+        try {
+            int[] boundaries = this.boundaries(data, (int) size, chunks);
+            runs = CsvContactReader.readWithFallback(charset -> this.parse(data, boundaries, charset));
+        } finally {
+            // invokeAll returns when every task has completed, so no task
+            // reads the mapping any more and the file can be saved at once
+            Unmapper.unmap(data);
+        }
+        return this.merge(runs);
+    }
+
+    /**
+     * Computes the start of each chunk, plus the end of the file.
+     *
+     * @param data the content of the file.
+     * @param size the size of the file.
+     * @param chunks the number of ranges the file is split into.
+     * @return the increasing boundaries, the first is 0 and the last is
+     * {@code size}.
+     *
+     * @throws IOException if a task fails.
+     */
+    private int[] boundaries(ByteBuffer data, int size, int chunks) throws IOException {
+        int[] nominal = new int[chunks + 1];
+        for (int i = 0; i <= chunks; i++) {
+            nominal[i] = (int) ((long) size * i / chunks);
+        }
+        List<Callable<Integer>> counts = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            int start = nominal[i];
+            int end = nominal[i + 1];
+            counts.add(() -> countQuotes(data, start, end));
+        }
+        List<Future<Integer>> quotes = this.invokeAll(counts);
+
+        int[] boundaries = new int[chunks + 1];
+        int count = 0;
+        boundaries[count++] = 0;
+        int quotesBefore = 0;
+        for (int i = 1; i < chunks; i++) {
+            quotesBefore += this.get(quotes.get(i - 1));
+            int position = nominal[i];
+            if (position < boundaries[count - 1]) {
+                continue;
+            }
+            boolean quoted = quotesBefore % 2 != 0;
+            while (position < size) {
+                byte b = data.get(position);
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    break;
+                }
+                position++;
+            }
+            if (position + 1 >= size) {
+                break;
+            }
+            boundaries[count++] = position + 1;
+        }
+        boundaries[count++] = size;
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    /**
+     * Counts the double quotes in a range of the file.
+     *
+     * @param data the content of the file.
+     * @param start the start of the range.
+     * @param end the end of the range, exclusive.
+     * @return the number of double quote bytes in the range.
+     */
+    private static int countQuotes(ByteBuffer data, int start, int end) {
+        int quotes = 0;
+        for (int i = start; i < end; i++) {
+            if (data.get(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+
+    /**
+     * Parses the chunks in parallel with the given charset.
+     *
+     * @param data the content of the file.
+     * @param boundaries the boundaries of the chunks.
+     * @param charset the charset of the file.
+     * @return the sorted contacts of each chunk, in file order.
+     *
+     * @throws IOException if an error occurs during parsing.
+     */
+    private List<List<Contact>> parse(ByteBuffer data, int[] boundaries, Charset charset) throws IOException {
+        List<Callable<List<Contact>>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < boundaries.length; i++) {
+            int start = boundaries[i];
+            int end = boundaries[i + 1];
+            boolean header = i == 0;
+            tasks.add(() -> this.parse(data, start, end, header, charset));
+        }
+        List<List<Contact>> runs = new ArrayList<>();
+        for (Future<List<Contact>> f : this.invokeAll(tasks)) {
+            runs.add(this.get(f));
+        }
+        return runs;
+    }
+
+    /**
+     * Parses a chunk and sorts its contacts.
+     *
+     * @param data the content of the file.
+     * @param start the start of the chunk.
+     * @param end the end of the chunk, exclusive.
+     * @param header {@code true} if the chunk starts with the header line.
+     * @param charset the charset of the file.
+     * @return the sorted contacts of the chunk.
+     *
+     * @throws IOException if an error occurs during parsing.
+     */
+    private List<Contact> parse(ByteBuffer data, int start, int end, boolean header, Charset charset) throws IOException {
+        ByteBuffer slice = data.duplicate();
+        slice.limit(end);
+        slice.position(start);
+        CharBuffer chars = CsvContactReader.decoder(charset).decode(slice);
+        List<Contact> contacts = new ArrayList<>();
+        try (CsvContactReader reader = new CsvContactReader(
+                new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining()),
+                manager.getStringPool())) {
+            if (header && !reader.skipRecord()) {
+                return contacts;
+            }
+            String[] fields = new String[CsvContactReader.FIELDS];
+            while (reader.readRecord(fields)) {
+                contacts.add(manager.createContact(fields[0], fields[1],
+                        new String[]{fields[2], fields[3], fields[4]},
+                        new String[]{fields[5], fields[6], fields[7]}));
+            }
+        }
+        contacts.sort(manager.getComparator());
+        return contacts;
+    }
+
+    /**
+     * Merges sorted runs, taking equal contacts from the earlier run first.
+     *
+     * @param runs the sorted runs, in file order.
+     * @return the merged contacts.
+     */
+    private List<Contact> merge(List<List<Contact>> runs) {
+        if (runs.size() == 1) {
+            return runs.get(0);
+        }
+        Comparator<Contact> comparator = manager.getComparator();
+        int total = 0;
+        for (List<Contact> run : runs) {
+            total += run.size();
+        }
+        // each entry is {run, index in the run}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(runs.size(), (a, b) -> {
+            int result = comparator.compare(runs.get(a[0]).get(a[1]), runs.get(b[0]).get(b[1]));
+            return result != 0 ? result : Integer.compare(a[0], b[0]);
+        });
+        for (int i = 0; i < runs.size(); i++) {
+            if (!runs.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+        List<Contact> merged = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<Contact> run = runs.get(head[0]);
+            merged.add(run.get(head[1]));
+            if (++head[1] < run.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Runs tasks on the pool and waits for them.
+     *
+     * @param tasks the tasks to be run.
+     * @param <T> the type of the result of the tasks.
+     * @return the completed futures, in the order of {@code tasks}.
+     */
+    private <T> List<Future<T>> invokeAll(List<Callable<T>> tasks) {
+        return pool.invokeAll(tasks);
+    }
+
+    /**
+     * Returns the result of a completed task, unwrapping its failure.
+     *
+     * @param future the completed task.
+     * @param <T> the type of the result.
+     * @return the result of the task.
+     *
+     * @throws IOException if the task failed with an {@code IOException}.
+     */
+    private <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Loading interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException && cause.getCause() instanceof IOException) {
+                // a fork/join task wraps the checked exception of its callable
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Loading failed", cause);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package it.unisa.diem.gruppo9.data;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * @file Unmapper.java
+ * @brief Releases the mapping of a file before the buffer is collected.
+ *
+ * <p>
+ * A {@link MappedByteBuffer} keeps its file mapped until the buffer is
+ * garbage collected, and on Windows a mapped file cannot be replaced, moved
+ * or deleted, so a save could fail long after the file has been read. The
+ * JDK has no public method to unmap a buffer: its cleaner is run through
+ * reflection, with {@code sun.misc.Unsafe.invokeCleaner} from Java 9 and
+ * with the {@code cleaner()} of the buffer on Java 8. If neither is
+ * available the mapping is left to the garbage collector.
+ * </p>
+ * <p>
+ * A buffer must not be accessed, by any thread, after it has been unmapped:
+ * the access would read memory that is no longer mapped.
+ * </p>
+ *
+ * @see ParallelContactLoader.java
+ * @see MappedContactStore.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+final class Unmapper {
+
+    /**
+     * Prevents instantiation.
+     */
+    private Unmapper() {
+    }
+
+    /**
+     * Unmaps a buffer.
+     *
+     * @pre {@code buffer} is no longer accessed.
+     *
+     * @param buffer the mapped buffer.
+     * @return {@code true} if the mapping has been released, {@code false}
+     * if it is left to the garbage collector.
+     */
+    static boolean unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // before Java 9: run the cleaner of the buffer
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner == null) {
+                return false;
+            }
+            Method clean = cleaner.getClass().getMethod("clean");
+            clean.setAccessible(true);
+            clean.invoke(cleaner);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+}
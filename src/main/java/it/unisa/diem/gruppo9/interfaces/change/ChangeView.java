@@ -76,6 +76,17 @@ import javafx.scene.Scene;
  */
 public class ChangeView {
 
+    /**
+     * The loaded {@code ContactsView.fxml}, reused every time the contact list
+     * is shown again, or {@code null} before it is first shown.
+     */
+    private static Parent contactsRoot;
+
+    /**
+     * The controller of {@code contactsRoot}.
+     */
+    private static DisplayContactsController contactsController;
+
     /**
      * Constructs a new instance of {@code ChangeView}.
      * <p>
@@ -105,6 +116,12 @@ public class ChangeView {
      * <li>{@code DisplayEditContactController}</li>
      * </ul>
      * </p>
+     * <p>
+     * The view is loaded the first time and then reused, with its controller,
+     * its table and its search, as long as it shows the same
+     * {@code ContactManager}: the table shows the list itself, so it is
+     * already up to date when the user comes back.
+     * </p>
      *
      * @param event the action event that triggered the scene change.
      * @param contacts the {@link ContactManager} instance used to manage
@@ -129,16 +146,22 @@ public class ChangeView {
     public void contactView(ActionEvent event, ContactManager contacts) {
         try {
 
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/it/unisa/diem/gruppo9/interfaces/view/ContactsView.fxml"));
-            Parent newView = loader.load();
-
             Scene currentScene = ((javafx.scene.Node) event.getSource()).getScene();
 
-            currentScene.setRoot(newView);
+            if (contactsRoot == null || contactsController.getContacts() != contacts
+                    || (contactsRoot.getScene() != null && contactsRoot.getScene() != currentScene)) {
+                FXMLLoader loader = new FXMLLoader(getClass().getResource("/it/unisa/diem/gruppo9/interfaces/view/ContactsView.fxml"));
+                Parent newView = loader.load();
 
-            DisplayContactsController controller = loader.getController();
-            controller.setContacts(contacts);
-            controller.initialize();
+                DisplayContactsController controller = loader.getController();
+                controller.setContacts(contacts);
+                controller.initialize();
+
+                contactsRoot = newView;
+                contactsController = controller;
+            }
+
+            currentScene.setRoot(contactsRoot);
 
         } catch (IOException e) {
             System.out.println("Error in contactView");
@@ -3,17 +3,22 @@ package it.unisa.diem.gruppo9.interfaces.controller;
 import it.unisa.diem.gruppo9.interfaces.change.ChangeView;
 import it.unisa.diem.gruppo9.logic.Contact;
 import it.unisa.diem.gruppo9.logic.ContactManager;
-import java.io.IOException;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.collections.FXCollections;
+import it.unisa.diem.gruppo9.logic.SearchSession;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
-import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.util.Duration;
 
 /**
  * @file DisplayContactsController.java
@@ -63,6 +68,23 @@ import javafx.scene.control.cell.PropertyValueFactory;
  */
 public class DisplayContactsController extends BaseController {
 
+    /**
+     * The number of contacts shown when a search finds nothing and the
+     * closest contacts are shown instead
+     */
+    private static final int FUZZY_RESULTS = 20;
+
+    /**
+     * How long the search waits after the last keystroke before running
+     */
+    private static final Duration SEARCH_DELAY = Duration.millis(150);
+
+    /**
+     * Runs the searches off the application thread, one at a time, shared by
+     * every view of the contacts. It is created at the first search
+     */
+    private static ExecutorService searchExecutor;
+
     /**
      * Handles view transitions whitin the application
      */
@@ -74,6 +96,12 @@ public class DisplayContactsController extends BaseController {
     @FXML
     private Button saveButton;
 
+    /**
+     * Label showing the state of the last save
+     */
+    @FXML
+    private Label saveStatusLabel;
+
     /**
      * Button to navigate to the Add Contact viw
      *
@@ -144,14 +172,43 @@ public class DisplayContactsController extends BaseController {
     @FXML
     private TableColumn<Contact, String> emailColumn;
 
+    /**
+     * The search session used by the search field, so that a query which
+     * extends the previous one only narrows its result
+     */
+    private SearchSession searchSession;
+
+    /**
+     * Restarted at every keystroke, it starts the search when the user pauses
+     * typing
+     */
+    private PauseTransition searchDelay;
+
+    /**
+     * The search submitted last, cancelled if a newer one is submitted before
+     * it starts
+     */
+    private Future<?> pendingSearch;
+
+    /**
+     * Incremented at every change of the search text; a search publishes its
+     * result only if no change happened since it was submitted. It is read by
+     * the search thread too, so that a superseded search stops at its next
+     * step instead of running to the end
+     */
+    private final AtomicLong searchGeneration = new AtomicLong();
+
     /**
      * Initializes the controller class. It is called automatically after the
      * FXML file is loaded.
      *
-     * Specifically it initialize the table view with a list of contact retrived
-     * from the {@code ContactManager } object; configure the table view column
-     * with their respective values, and initialize the binding property of the
-     * button: search, cancel, edit and delete.
+     * Specifically it initialize the table view with the list of contact
+     * retrived from the {@code ContactManager } object (the list itself, not a
+     * copy, so that single insertions are reflected without rebuilding the
+     * table); configure the table view column
+     * with their respective values (the observable values cached by each
+     * contact, so that scrolling does not allocate new ones), and initialize
+     * the binding property of the button: search, cancel, edit and delete.
      *
      * @invariant the ContactManager instance must be not modified
      *
@@ -171,24 +228,21 @@ public class DisplayContactsController extends BaseController {
     public void initialize() {
         ContactManager contacts = getContacts();
 
-        tableView.setItems(FXCollections.observableArrayList(contacts.getListOfContacts()));
-        surnameColumn.setCellValueFactory(new PropertyValueFactory<>("surname"));
-        nameColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
-
-        phoneNumberColumn.setCellValueFactory(cellData -> {
-            String[] phoneNumberArray = cellData.getValue().getPhoneNumber();
-            String phoneNumbers = String.join("\n", phoneNumberArray);
-            return new SimpleStringProperty(phoneNumbers);
-        });
-
-        emailColumn.setCellValueFactory(cellData -> {
-            String[] emailArray = cellData.getValue().getEmail();
-            String emails = String.join("\n", emailArray);
-            return new SimpleStringProperty(emails);
-        });
+        tableView.setItems(contacts.getListOfContacts());
+        searchSession = contacts.openSearchSession();
+        surnameColumn.setCellValueFactory(cellData -> cellData.getValue().surnameProperty());
+        nameColumn.setCellValueFactory(cellData -> cellData.getValue().nameProperty());
+        phoneNumberColumn.setCellValueFactory(cellData -> cellData.getValue().phoneNumberTextProperty());
+        emailColumn.setCellValueFactory(cellData -> cellData.getValue().emailTextProperty());
 
         tableView.refresh();
 
+        if (searchDelay == null) {
+            searchDelay = new PauseTransition(SEARCH_DELAY);
+            searchDelay.setOnFinished(e -> this.startSearch());
+            searchTextField.textProperty().addListener((observable, oldText, newText) -> this.scheduleSearch());
+        }
+
         searchButton.disableProperty().bind(searchTextField.textProperty().isEmpty());
         cancelSearchButton.disableProperty().bind(searchTextField.textProperty().isEmpty());
         editButton.disableProperty().bind(tableView.getSelectionModel().selectedItemProperty().isNull());
@@ -216,13 +270,27 @@ public class DisplayContactsController extends BaseController {
     /**
      * Handles the action of saving changes on the contact list (for the export
      * of the contact list on file)
+     * <p>
+     * The file is written on a background thread by
+     * {@link ContactManager#saveContactAsync()}, so the interface stays
+     * responsive, and {@code saveStatusLabel} shows whether the save is in
+     * progress, completed or failed. Pressing the button again during a save
+     * does not queue another write for each press.
+     * </p>
      *
      * @param event The Action Event triggered by clicking the save button
      */
     @FXML
-    private void saveContactButton(javafx.event.ActionEvent event) throws IOException {
+    private void saveContactButton(javafx.event.ActionEvent event) {
         ContactManager contacts = getContacts();
-        contacts.saveContact();
+        saveStatusLabel.setText("Saving...");
+        contacts.saveContactAsync().whenComplete((result, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                saveStatusLabel.setText("Save failed");
+            } else if (!contacts.isSaving()) {
+                saveStatusLabel.setText("Saved");
+            }
+        }));
     }
 
     /**
@@ -264,30 +332,26 @@ public class DisplayContactsController extends BaseController {
         Contact selectedContact = tableView.getSelectionModel().getSelectedItem();
         if (selectedContact != null) {
             contacts.deleteContact(selectedContact);
-            tableView.getItems().remove(selectedContact);
+            if (tableView.getItems() != contacts.getListOfContacts()) {
+                // the table shows a search result, which is a separate list
+                tableView.getItems().remove(selectedContact);
+            }
         }
 
         tableView.getSelectionModel().clearSelection();
     }
 
     /**
-     * Handles the action of searching contacts based on an input text
+     * Handles the action of searching contacts based on an input text. The
+     * search also starts by itself while typing, so the button only starts it
+     * without waiting for the pause
      *
      * @param event the Action Event triggered by clicking the button
      */
     @FXML
     private void searchContactButton(javafx.event.ActionEvent event) {
-        ContactManager contacts = getContacts();
-
-        String searchText = searchTextField.getText();
-        System.out.println(searchText);
-        if (!searchText.isEmpty()) {
-
-            ObservableList<Contact> filteredContacts = contacts.searchContact(searchText);
-
-            tableView.setItems(filteredContacts);
-        }
-        searchTextField.setDisable(true);
+        searchDelay.stop();
+        this.startSearch();
     }
 
     /**
@@ -298,9 +362,80 @@ public class DisplayContactsController extends BaseController {
      */
     @FXML
     private void cancelSearchButton(javafx.event.ActionEvent event) {
-        searchTextField.setDisable(false);
         searchTextField.setText("");
-        this.initialize();
+    }
+
+    /**
+     * Reacts to a change of the search text. The search is delayed until the
+     * user pauses typing, so a keystroke only restarts a timer; an empty text
+     * shows the whole list at once
+     */
+    private void scheduleSearch() {
+        searchGeneration.incrementAndGet();
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+            pendingSearch = null;
+        }
+        if (searchTextField.getText().isEmpty()) {
+            searchDelay.stop();
+            tableView.setItems(getContacts().getListOfContacts());
+            return;
+        }
+        searchDelay.playFromStart();
+    }
+
+    /**
+     * Submits the search of the current text to the background executor. If
+     * no contact matches, the closest ones are shown, so that a typo still
+     * finds the contact. The result is shown only if the text has not changed
+     * in the meantime, so a slow search never overwrites a newer one; a
+     * search superseded while it runs is abandoned before its next step, in
+     * particular before the slower search of the closest contacts
+     */
+    private void startSearch() {
+        String searchText = searchTextField.getText();
+        if (searchText.isEmpty()) {
+            return;
+        }
+        ContactManager contacts = getContacts();
+        SearchSession session = searchSession;
+        long generation = searchGeneration.get();
+        pendingSearch = searchExecutor().submit(() -> {
+            if (generation != searchGeneration.get()) {
+                return;
+            }
+            ObservableList<Contact> filteredContacts = session.search(searchText);
+            if (filteredContacts.isEmpty()) {
+                if (generation != searchGeneration.get()) {
+                    return;
+                }
+                filteredContacts = contacts.fuzzySearch(searchText, FUZZY_RESULTS);
+            }
+            ObservableList<Contact> result = filteredContacts;
+            Platform.runLater(() -> {
+                if (generation == searchGeneration.get() && session == searchSession) {
+                    pendingSearch = null;
+                    tableView.setItems(result);
+                }
+            });
+        });
+    }
+
+    /**
+     * Returns the executor of the searches, creating its daemon thread at the
+     * first search
+     *
+     * @return the executor of the searches
+     */
+    private static synchronized ExecutorService searchExecutor() {
+        if (searchExecutor == null) {
+            searchExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "contact-search");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return searchExecutor;
     }
 
 }
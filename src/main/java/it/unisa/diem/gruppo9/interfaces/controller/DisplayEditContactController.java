@@ -192,7 +192,6 @@ public class DisplayEditContactController extends BaseController implements Cont
     private void editContactButton(javafx.event.ActionEvent event) {
         ContactManager contacts = getContacts();
         Contact c = getSelectedContact();
-        contacts.deleteContact(c);
 
         String[] phoneNumber = {
             phoneNumber1.getText().isEmpty() ? "-" : phoneNumber1.getText(),
@@ -206,7 +205,7 @@ public class DisplayEditContactController extends BaseController implements Cont
             email3.getText().isEmpty() ? "-" : email3.getText()
         };
 
-        contacts.addContacts(contacts.createContact(surnameField.getText(), nameField.getText(), phoneNumber, email));
+        contacts.editContact(c, surnameField.getText(), nameField.getText(), phoneNumber, email);
 
         view.contactView(event, contacts);
     }
@@ -3,6 +3,7 @@ package it.unisa.diem.gruppo9.interfaces.controller;
 import it.unisa.diem.gruppo9.interfaces.change.ChangeView;
 import javafx.event.ActionEvent;
 import it.unisa.diem.gruppo9.logic.ContactManager;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
@@ -38,8 +39,8 @@ import javafx.scene.control.Label;
  * This class works closely with:
  * <ul>
  * <li>{@link ChangeView}: Handles FXML file transitions.</li>
- * <li>{@link ContactManager}: Loads and manages the application's contact
- * data.</li>
+ * <li>{@link ContactManager}: Manages the application's contact data, which
+ * is loaded in the background at startup.</li>
  * <li>Controllers such as {@code DisplayContactsController} and
  * {@code DisplayAddContactController} for managing specific views.</li>
  * </ul>
@@ -114,10 +115,13 @@ public class PrimaryDisplayController extends BaseController {
     /**
      * Handles the event triggered when the "My Contacts" button is pressed.
      * <p>
-     * This method performs the following actions:
+     * The contacts are loaded in the background since the application
+     * starts, so this method does not wait for them. It performs the following
+     * actions:
      * <ul>
-     * <li>Loads the contact list using the {@link ContactManager#loadContact()}
-     * method.</li>
+     * <li>Reloads the contact list with {@link ContactManager#loadContact()},
+     * which reads the file only if it has changed since the last load or save
+     * and applies the difference, so the contacts are not duplicated.</li>
      * <li>Switches the scene to {@code ContactView.fxml} using the
      * {@link ChangeView#contactView(ActionEvent, ContactManager)} method.</li>
      * </ul>
@@ -130,17 +134,20 @@ public class PrimaryDisplayController extends BaseController {
     @FXML
     private void viewContactManagerButton(ActionEvent event) throws IOException {
         ContactManager contacts = getContacts();
-        contacts.loadContact();
+        this.reload(contacts);
         view.contactView(event, contacts);
     }
 
     /**
      * Handles the event triggered when the "Add Contact" button is pressed.
      * <p>
-     * This method performs the following actions:
+     * The contacts are loaded in the background since the application
+     * starts, so this method does not wait for them. It performs the following
+     * actions:
      * <ul>
-     * <li>Loads the contact list using the {@link ContactManager#loadContact()}
-     * method.</li>
+     * <li>Reloads the contact list with {@link ContactManager#loadContact()},
+     * which reads the file only if it has changed since the last load or save
+     * and applies the difference, so the contacts are not duplicated.</li>
      * <li>Switches the scene to {@code AddView.fxml} using the
      * {@link ChangeView#addContactView(ActionEvent, ContactManager)}
      * method.</li>
@@ -153,8 +160,24 @@ public class PrimaryDisplayController extends BaseController {
     @FXML
     private void viewAddContactButton(ActionEvent event) throws IOException {
         ContactManager contacts = getContacts();
-        contacts.loadContact();
+        this.reload(contacts);
         view.addContactView(event, contacts);
     }
 
+    /**
+     * Reloads the contacts if their file has changed. A missing file means an
+     * empty address book.
+     *
+     * @param contacts the contacts to be reloaded.
+     *
+     * @throws IOException if an error occurs during file reading.
+     */
+    private void reload(ContactManager contacts) throws IOException {
+        try {
+            contacts.loadContact();
+        } catch (FileNotFoundException e) {
+            // nothing has been saved yet
+        }
+    }
+
 }
@@ -1,5 +1,14 @@
 package it.unisa.diem.gruppo9.logic;
 
+import java.nio.charset.StandardCharsets;
+import java.text.Collator;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
 /**
  * @file Contact.java
  * @brief Represents a single contact in the address book.
@@ -19,6 +28,15 @@ package it.unisa.diem.gruppo9.logic;
  * <li>{@code email}: an array of up to three email addresses.</li>
  * </ul>
  * </p>
+ * <p>
+ * A contact can be packed (see {@link #pack()}): its attributes are then kept
+ * in a single array of UTF-8 bytes instead of up to eight {@code String}s and
+ * two arrays, and each one is decoded every time it is requested, without
+ * keeping the result. The indexes and the saves that read every contact leave
+ * it packed; a table keeps only the values of the rows it shows (see
+ * {@link #surnameProperty()}). Packing does not change the behaviour of the
+ * public methods.
+ * </p>
  *
  * @author gruppo9
  * @version 2.0
@@ -48,6 +66,99 @@ public class Contact {
      */
     private String[] email;
 
+    /**
+     * The normalized form of {@code name}, see {@link #normalize(String)}.
+     */
+    private String nameKey;
+
+    /**
+     * The normalized form of {@code surname}, see {@link #normalize(String)}.
+     */
+    private String surnameKey;
+
+    /**
+     * The collator that produced {@code nameSortKey} and
+     * {@code surnameSortKey}, or {@code null} if they have not been computed.
+     */
+    private Collator sortKeyCollator;
+
+    /**
+     * The cached collation key of {@code name}, as a byte array.
+     */
+    private byte[] nameSortKey;
+
+    /**
+     * The cached collation key of {@code surname}, as a byte array.
+     */
+    private byte[] surnameSortKey;
+
+    /**
+     * The packed attributes, or {@code null} if the contact is not packed.
+     * The first byte has a bit set for each null attribute, followed by the
+     * end of each attribute as an unsigned 16-bit offset and by the UTF-8
+     * bytes of the attributes: surname, name, phone numbers and emails. The
+     * fields of the attributes are {@code null} while the contact is packed.
+     * It is read once by each getter, so a contact unpacked by a setter on
+     * another thread is decoded from the bytes read or read from the fields
+     * set before the bytes were discarded.
+     */
+    private volatile byte[] packed;
+
+    /**
+     * The observable values shown by a table, created the first time one of
+     * them is requested, or {@code null}.
+     */
+    private CellValues cells;
+
+    /**
+     * The number of attributes of a packed contact.
+     */
+    private static final int PACKED_FIELDS = 8;
+
+    /**
+     * The size of the header of a packed contact: the null mask and the end
+     * offsets.
+     */
+    private static final int PACKED_HEADER = 1 + 2 * PACKED_FIELDS;
+
+    /**
+     * The offset basis of the 64-bit FNV-1a hash of {@link #contentHash()}.
+     */
+    private static final long HASH_OFFSET = 0xcbf29ce484222325L;
+
+    /**
+     * The prime of the 64-bit FNV-1a hash of {@link #contentHash()}.
+     */
+    private static final long HASH_PRIME = 0x100000001b3L;
+
+    /**
+     * The value hashed after each attribute, which no byte has.
+     */
+    private static final int HASH_END = 0x100;
+
+    /**
+     * The value hashed for a null attribute, which no byte has.
+     */
+    private static final int HASH_NULL = 0x101;
+
+    /**
+     * Matches the combining marks left by the canonical decomposition of a
+     * string, i.e. its accents and other diacritics.
+     */
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Source of the identifiers given to new contacts.
+     */
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    /**
+     * The identifier of the contact. It is unique among all the contacts
+     * created by the running application and never changes, even when the
+     * other attributes are edited.
+     */
+    private final long id;
+
     /**
      * Creates a new {@code Contact} with the specified attributes.
      * <p>
@@ -90,12 +201,33 @@ public class Contact {
      * invariants
      */
     public Contact(String surname, String name, String[] phoneNumber, String[] email) {
+        this(surname, name, phoneNumber, email, null);
+    }
+
+    /**
+     * Creates a new {@code Contact} whose normalized keys are shared through
+     * a {@link StringPool}, so that contacts with equal names or surnames
+     * also share their keys.
+     *
+     * @pre The same as
+     * {@link #Contact(java.lang.String, java.lang.String, java.lang.String[], java.lang.String[])}
+     *
+     * @param surname the last name of the contact.
+     * @param name the first name of the contact.
+     * @param phoneNumber an array of phone numbers, up to three.
+     * @param email an array of email addresses, up to three.
+     * @param pool the pool of the keys, or {@code null}.
+     */
+    Contact(String surname, String name, String[] phoneNumber, String[] email, StringPool pool) {
+        this.id = NEXT_ID.incrementAndGet();
         if (name.isEmpty() && surname.isEmpty()) {
             throw new RuntimeException("A contact must have at least a name or a surname.");
         } else {
 
             this.name = name;
             this.surname = surname;
+            this.nameKey = pool == null ? normalize(name) : pool.intern(normalize(name));
+            this.surnameKey = pool == null ? normalize(surname) : pool.intern(normalize(surname));
 
             if (phoneNumber.length <= 3) {
                 this.phoneNumber = phoneNumber;
@@ -114,6 +246,34 @@ public class Contact {
         }
     }
 
+    /**
+     * Recreates a packed contact from its identifier and its packed
+     * attributes, e.g. as stored by an {@link OffHeapContactStore}.
+     *
+     * @pre {@code packed} was returned by {@link #toPacked()}.
+     *
+     * @param id the identifier of the contact.
+     * @param packed the packed attributes.
+     */
+    Contact(long id, byte[] packed) {
+        this.id = id;
+        this.packed = packed;
+        this.nameKey = normalize(this.getName());
+        this.surnameKey = normalize(this.getSurname());
+    }
+
+    /**
+     * Returns the identifier of the contact.
+     *
+     * @pre The {@code Contact} must be properly initialized
+     * @post The returned value is the same for the whole life of the contact
+     *
+     * @return the unique identifier of the contact.
+     */
+    public long getId() {
+        return this.id;
+    }
+
     /**
      * Returns the first name of the contact.
      *
@@ -124,7 +284,14 @@ public class Contact {
      * @return the first name of the contact, or {@code null} if it is empty.
      */
     public String getName() {
-        return this.name;
+        byte[] bytes = this.packed;
+        if (bytes == null) {
+            String value = this.name;
+            if (value != null || (bytes = this.packed) == null) {
+                return value;
+            }
+        }
+        return unpackField(bytes, 1);
     }
 
     /**
@@ -137,7 +304,95 @@ public class Contact {
      * @return the last name of the contact, or {@code null} if it is empty.
      */
     public String getSurname() {
-        return this.surname;
+        byte[] bytes = this.packed;
+        if (bytes == null) {
+            String value = this.surname;
+            if (value != null || (bytes = this.packed) == null) {
+                return value;
+            }
+        }
+        return unpackField(bytes, 0);
+    }
+
+    /**
+     * Returns the normalized first name of the contact, used for searching
+     * and sorting.
+     *
+     * @pre The {@code Contact} must be properly initialized
+     * @post The returned value is {@code normalize(getName())}, computed when
+     * the name was set
+     *
+     * @return the normalized first name of the contact.
+     */
+    public String getNameKey() {
+        return this.nameKey;
+    }
+
+    /**
+     * Returns the normalized last name of the contact, used for searching and
+     * sorting.
+     *
+     * @pre The {@code Contact} must be properly initialized
+     * @post The returned value is {@code normalize(getSurname())}, computed
+     * when the surname was set
+     *
+     * @return the normalized last name of the contact, or {@code null} if the
+     * surname is null.
+     */
+    public String getSurnameKey() {
+        return this.surnameKey;
+    }
+
+    /**
+     * Returns the collation key of the first name for {@code collator}.
+     * <p>
+     * The keys of the name and of the surname are computed together the first
+     * time they are requested for a collator and cached until the name or the
+     * surname is changed, or they are requested for another collator.
+     * </p>
+     *
+     * @pre {@code collator != null}
+     * @post Comparing the returned arrays as unsigned bytes gives the same
+     * order as {@code collator.compare} on the names
+     *
+     * @param collator the collator defining the order.
+     * @return the collation key of the name, as a byte array.
+     */
+    byte[] getNameSortKey(Collator collator) {
+        this.computeSortKeys(collator);
+        return this.nameSortKey;
+    }
+
+    /**
+     * Returns the collation key of the last name for {@code collator}, cached
+     * as described in {@link #getNameSortKey(Collator)}.
+     *
+     * @pre {@code collator != null}
+     *
+     * @param collator the collator defining the order.
+     * @return the collation key of the surname as a byte array, or
+     * {@code null} if the surname is null.
+     */
+    byte[] getSurnameSortKey(Collator collator) {
+        this.computeSortKeys(collator);
+        return this.surnameSortKey;
+    }
+
+    /**
+     * Computes the collation keys of name and surname unless they are already
+     * cached for {@code collator}.
+     *
+     * @param collator the collator defining the order.
+     */
+    private void computeSortKeys(Collator collator) {
+        if (this.sortKeyCollator == collator) {
+            return;
+        }
+        String surname = this.getSurname();
+        this.nameSortKey = collator.getCollationKey(this.getName()).toByteArray();
+        this.surnameSortKey = surname == null ? null
+                : collator.getCollationKey(surname).toByteArray();
+        this.sortKeyCollator = collator;
     }
 
     /**
@@ -150,7 +405,14 @@ public class Contact {
      * @return an array of phone numbers, or the blank characters "-"
      */
     public String[] getPhoneNumber() {
-        return this.phoneNumber;
+        byte[] bytes = this.packed;
+        if (bytes == null) {
+            String[] value = this.phoneNumber;
+            if (value != null || (bytes = this.packed) == null) {
+                return value;
+            }
+        }
+        return new String[]{unpackField(bytes, 2), unpackField(bytes, 3), unpackField(bytes, 4)};
     }
 
     /**
@@ -163,7 +425,287 @@ public class Contact {
      * @return an array of email addresses, or the blank characters "-"
      */
     public String[] getEmail() {
-        return this.email;
+        byte[] bytes = this.packed;
+        if (bytes == null) {
+            String[] value = this.email;
+            if (value != null || (bytes = this.packed) == null) {
+                return value;
+            }
+        }
+        return new String[]{unpackField(bytes, 5), unpackField(bytes, 6), unpackField(bytes, 7)};
+    }
+
+    /**
+     * Packs the attributes of the contact into a single byte array and
+     * releases their {@code String}s.
+     * <p>
+     * A contact with fewer than three phone numbers or emails, or whose
+     * attributes exceed 64 KB in UTF-8, is left as it is. The normalized keys
+     * are not packed, since they are used by every comparison.
+     * </p>
+     *
+     * @post The getters return values equal to the ones they returned before.
+     */
+    void pack() {
+        if (this.packed != null || this.phoneNumber.length != 3 || this.email.length != 3) {
+            return;
+        }
+        byte[] bytes = this.toPacked();
+        if (bytes == null) {
+            return;
+        }
+        this.packed = bytes;
+        this.surname = null;
+        this.name = null;
+        this.phoneNumber = null;
+        this.email = null;
+    }
+
+    /**
+     * Returns the attributes of the contact in the packed format, without
+     * packing the contact. Missing phone numbers and emails are packed as
+     * null.
+     *
+     * @return the packed attributes, or {@code null} if they exceed 64 KB in
+     * UTF-8.
+     */
+    byte[] toPacked() {
+        byte[] current = this.packed;
+        if (current != null) {
+            return current;
+        }
+        String[] values = new String[PACKED_FIELDS];
+        values[0] = this.surname;
+        values[1] = this.name;
+        for (int i = 0; i < 3; i++) {
+            values[2 + i] = i < this.phoneNumber.length ? this.phoneNumber[i] : null;
+            values[5 + i] = i < this.email.length ? this.email[i] : null;
+        }
+        byte[][] encoded = new byte[PACKED_FIELDS][];
+        int size = 0;
+        for (int i = 0; i < PACKED_FIELDS; i++) {
+            if (values[i] != null) {
+                encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+                size += encoded[i].length;
+            }
+        }
+        if (size > 0xFFFF) {
+            return null;
+        }
+        byte[] bytes = new byte[PACKED_HEADER + size];
+        int end = 0;
+        for (int i = 0; i < PACKED_FIELDS; i++) {
+            if (encoded[i] == null) {
+                bytes[0] |= 1 << i;
+            } else {
+                System.arraycopy(encoded[i], 0, bytes, PACKED_HEADER + end, encoded[i].length);
+                end += encoded[i].length;
+            }
+            bytes[1 + 2 * i] = (byte) (end >>> 8);
+            bytes[2 + 2 * i] = (byte) end;
+        }
+        return bytes;
+    }
+
+    /**
+     * Tells whether the attributes of the contact are packed.
+     *
+     * @return {@code true} if {@link #pack()} packed the contact and no
+     * attribute has been set since.
+     */
+    boolean isPacked() {
+        return this.packed != null;
+    }
+
+    /**
+     * Decodes an attribute of a packed contact.
+     *
+     * @param packed the packed attributes.
+     * @param field the position of the attribute: 0 for the surname, 1 for
+     * the name, 2 to 4 for the phone numbers and 5 to 7 for the emails.
+     * @return the value of the attribute.
+     */
+    private static String unpackField(byte[] packed, int field) {
+        if ((packed[0] & (1 << field)) != 0) {
+            return null;
+        }
+        int start = field == 0 ? 0 : packedEnd(packed, field - 1);
+        return new String(packed, PACKED_HEADER + start, packedEnd(packed, field) - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the end of an attribute in packed bytes.
+     *
+     * @param packed the packed attributes.
+     * @param field the position of the attribute.
+     * @return the offset after its last byte, relative to the header.
+     */
+    private static int packedEnd(byte[] packed, int field) {
+        return (packed[1 + 2 * field] & 0xFF) << 8 | (packed[2 + 2 * field] & 0xFF);
+    }
+
+    /**
+     * Returns a 64-bit hash of the attributes of the contact, e.g. to count
+     * the contacts with each content without keeping their attributes.
+     * <p>
+     * The hash is computed on the UTF-8 bytes of the attributes, so a packed
+     * contact is hashed without decoding it and has the same hash as the
+     * contact before packing. A null surname is hashed as an empty one, and
+     * the missing phone numbers and emails as null ones.
+     * </p>
+     *
+     * @post Contacts with the same attributes have the same hash.
+     *
+     * @return the hash of the attributes.
+     */
+    long contentHash() {
+        byte[] bytes = this.packed;
+        long hash = HASH_OFFSET;
+        if (bytes != null) {
+            int start = 0;
+            for (int field = 0; field < PACKED_FIELDS; field++) {
+                int end = packedEnd(bytes, field);
+                if (field > 0 && (bytes[0] & (1 << field)) != 0) {
+                    hash = hashValue(hash, HASH_NULL);
+                }
+                for (int i = start; i < end; i++) {
+                    hash = hashValue(hash, bytes[PACKED_HEADER + i] & 0xFF);
+                }
+                hash = hashValue(hash, HASH_END);
+                start = end;
+            }
+            return hash;
+        }
+        hash = hashValue(hashUtf8(hash, this.surname == null ? "" : this.surname), HASH_END);
+        hash = hashValue(hashUtf8(hash, this.name), HASH_END);
+        for (int i = 0; i < 3; i++) {
+            hash = hashValue(hashUtf8(hash, i < this.phoneNumber.length ? this.phoneNumber[i] : null), HASH_END);
+        }
+        for (int i = 0; i < 3; i++) {
+            hash = hashValue(hashUtf8(hash, i < this.email.length ? this.email[i] : null), HASH_END);
+        }
+        return hash;
+    }
+
+    /**
+     * Adds a value to a 64-bit FNV-1a hash.
+     *
+     * @param hash the hash.
+     * @param value a byte, or one of the marks after it.
+     * @return the updated hash.
+     */
+    private static long hashValue(long hash, int value) {
+        return (hash ^ value) * HASH_PRIME;
+    }
+
+    /**
+     * Adds the UTF-8 bytes of a string to a hash, encoding them on the fly as
+     * {@link String#getBytes(java.nio.charset.Charset)} does.
+     *
+     * @param hash the hash.
+     * @param s the string, or {@code null}.
+     * @return the updated hash.
+     */
+    private static long hashUtf8(long hash, String s) {
+        if (s == null) {
+            return hashValue(hash, HASH_NULL);
+        }
+        for (int i = 0; i < s.length(); i++) {
+            int cp = s.charAt(i);
+            if (Character.isHighSurrogate((char) cp) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                cp = Character.toCodePoint((char) cp, s.charAt(++i));
+            } else if (Character.isSurrogate((char) cp)) {
+                cp = '?';
+            }
+            if (cp < 0x80) {
+                hash = hashValue(hash, cp);
+            } else if (cp < 0x800) {
+                hash = hashValue(hashValue(hash, 0xC0 | cp >> 6), 0x80 | cp & 0x3F);
+            } else if (cp < 0x10000) {
+                hash = hashValue(hashValue(hashValue(hash, 0xE0 | cp >> 12), 0x80 | cp >> 6 & 0x3F), 0x80 | cp & 0x3F);
+            } else {
+                hash = hashValue(hashValue(hashValue(hashValue(hash, 0xF0 | cp >> 18), 0x80 | cp >> 12 & 0x3F),
+                        0x80 | cp >> 6 & 0x3F), 0x80 | cp & 0x3F);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the last name of the contact as an observable value, e.g. for
+     * a table column.
+     * <p>
+     * The observable values of a contact are created together the first time
+     * one of them is requested and then reused, so rendering the same row
+     * again allocates nothing. They are updated by the setters.
+     * </p>
+     *
+     * @post The returned property always holds the value of
+     * {@link #getSurname()}
+     *
+     * @return the observable surname.
+     */
+    public ReadOnlyStringProperty surnameProperty() {
+        return this.cells().surname.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the first name of the contact as an observable value, cached as
+     * described in {@link #surnameProperty()}.
+     *
+     * @return the observable name.
+     */
+    public ReadOnlyStringProperty nameProperty() {
+        return this.cells().name.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the phone numbers of the contact as an observable value, one
+     * per line, cached as described in {@link #surnameProperty()}.
+     *
+     * @return the observable phone numbers.
+     */
+    public ReadOnlyStringProperty phoneNumberTextProperty() {
+        return this.cells().phoneNumber.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the email addresses of the contact as an observable value, one
+     * per line, cached as described in {@link #surnameProperty()}.
+     *
+     * @return the observable email addresses.
+     */
+    public ReadOnlyStringProperty emailTextProperty() {
+        return this.cells().email.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the observable values of the contact, creating them if needed.
+     *
+     * @return the observable values.
+     */
+    private CellValues cells() {
+        if (this.cells == null) {
+            this.cells = new CellValues(this);
+        }
+        return this.cells;
+    }
+
+    /**
+     * Decodes all the attributes of a packed contact and discards the packed
+     * bytes, before an attribute is set. The fields are set before the bytes
+     * are discarded, so a getter running on another thread finds one or the
+     * other.
+     */
+    private void unpack() {
+        byte[] bytes = this.packed;
+        if (bytes != null) {
+            this.surname = unpackField(bytes, 0);
+            this.name = unpackField(bytes, 1);
+            this.phoneNumber = new String[]{unpackField(bytes, 2), unpackField(bytes, 3), unpackField(bytes, 4)};
+            this.email = new String[]{unpackField(bytes, 5), unpackField(bytes, 6), unpackField(bytes, 7)};
+            this.packed = null;
+        }
     }
 
     /**
@@ -177,7 +719,13 @@ public class Contact {
      * @param name the new name of the contact.
      */
     public void setName(String name) {
+        this.unpack();
         this.name = name;
+        this.nameKey = normalize(name);
+        this.sortKeyCollator = null;
+        if (this.cells != null) {
+            this.cells.name.set(name);
+        }
     }
 
     /**
@@ -191,7 +739,13 @@ public class Contact {
      * @param surname the new surname of the contact.
      */
     public void setSurname(String surname) {
+        this.unpack();
         this.surname = surname;
+        this.surnameKey = normalize(surname);
+        this.sortKeyCollator = null;
+        if (this.cells != null) {
+            this.cells.surname.set(surname);
+        }
     }
 
     /**
@@ -215,7 +769,11 @@ public class Contact {
             throw new NullPointerException("Phone number array cannot be null.");
         }
         if (phoneNumber.length <= 3) {
+            this.unpack();
             this.phoneNumber = phoneNumber;
+            if (this.cells != null) {
+                this.cells.phoneNumber.set(String.join("\n", phoneNumber));
+            }
         } else {
             throw new RuntimeException("A contact must have less than four phone numbers");
         }
@@ -242,12 +800,49 @@ public class Contact {
             throw new NullPointerException("Email array cannot be null.");
         }
         if (email.length <= 3) {
+            this.unpack();
             this.email = email;
+            if (this.cells != null) {
+                this.cells.email.set(String.join("\n", email));
+            }
         } else {
             throw new RuntimeException("A contact must have less than four emails.");
         }
     }
 
+    /**
+     * Returns the normalized form of a string, used as search and sort key.
+     * <p>
+     * The string is decomposed, its diacritics are stripped and it is case
+     * folded, so that for example {@code "Nicolò"} and {@code "NICOLO"} both
+     * become {@code "nicolo"}. Strings made only of lower case ASCII
+     * characters are already normalized and are returned as they are.
+     * </p>
+     *
+     * @post The returned string has no upper case letters and no diacritics
+     *
+     * @param s the string to be normalized.
+     * @return the normalized string, or {@code null} if {@code s} is null.
+     */
+    public static String normalize(String s) {
+        if (s == null) {
+            return null;
+        }
+        boolean lowerCase = true;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch >= 0x80) {
+                String decomposed = Normalizer.normalize(s, Normalizer.Form.NFD);
+                String stripped = DIACRITICS.matcher(decomposed).replaceAll("");
+                return stripped.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+            }
+            if (ch >= 'A' && ch <= 'Z') {
+                lowerCase = false;
+            }
+        }
+        return lowerCase ? s : s.toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Returns a string representation of the {@code Contact} object in a
      * specific format.
@@ -295,9 +890,46 @@ public class Contact {
      */
     @Override
     public String toString() {
-        String phoneNumbers = String.join(";", phoneNumber);
-        String emails = String.join(";", email);
-        return this.surname + ";" + this.name + ";" + phoneNumbers + ";" + emails + "\n";
+        String phoneNumbers = String.join(";", this.getPhoneNumber());
+        String emails = String.join(";", this.getEmail());
+        return this.getSurname() + ";" + this.getName() + ";" + phoneNumbers + ";" + emails + "\n";
     }
 
+    /**
+     * The observable values of a contact shown by a table.
+     */
+    private static final class CellValues {
+
+        /**
+         * The last name.
+         */
+        final ReadOnlyStringWrapper surname;
+
+        /**
+         * The first name.
+         */
+        final ReadOnlyStringWrapper name;
+
+        /**
+         * The phone numbers, one per line.
+         */
+        final ReadOnlyStringWrapper phoneNumber;
+
+        /**
+         * The email addresses, one per line.
+         */
+        final ReadOnlyStringWrapper email;
+
+        /**
+         * Creates the observable values of a contact from its attributes.
+         *
+         * @param c the contact.
+         */
+        CellValues(Contact c) {
+            surname = new ReadOnlyStringWrapper(c, "surname", c.getSurname());
+            name = new ReadOnlyStringWrapper(c, "name", c.getName());
+            phoneNumber = new ReadOnlyStringWrapper(c, "phoneNumber", String.join("\n", c.getPhoneNumber()));
+            email = new ReadOnlyStringWrapper(c, "email", String.join("\n", c.getEmail()));
+        }
+    }
 }
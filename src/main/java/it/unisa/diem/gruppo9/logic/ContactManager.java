@@ -1,14 +1,39 @@
 package it.unisa.diem.gruppo9.logic;
 
 import it.unisa.diem.gruppo9.data.DataManager;
-import java.io.BufferedReader;
+import it.unisa.diem.gruppo9.data.CsvContactReader;
+import it.unisa.diem.gruppo9.data.CsvContactWriter;
+import it.unisa.diem.gruppo9.data.FileVersion;
+import it.unisa.diem.gruppo9.data.ParallelContactLoader;
 import java.io.BufferedWriter;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
@@ -32,11 +57,168 @@ import javafx.collections.ObservableList;
  */
 public class ContactManager implements DataManager {
 
+    /**
+     * The file where the contacts are saved and from which they are loaded.
+     */
+    public static final String FILENAME = "rubrica.csv";
+
     /**
      * The {@code ObservableList} of contacts managed by this class
      */
     private ObservableList<Contact> contacts;
 
+    /**
+     * The comparator that defines the order in which {@code contacts} is kept.
+     * A single instance is shared by every operation instead of allocating a
+     * new one on each insertion.
+     */
+    private Comparator<Contact> comparator;
+
+    /**
+     * {@code true} while {@code contacts} is sorted according to
+     * {@code comparator}. It becomes {@code false} only if the list is sorted
+     * with a different {@code Comparator} via {@link #sortList(Comparator)}.
+     */
+    private boolean sorted;
+
+    /**
+     * Index of the managed contacts by their identifier (see
+     * {@link Contact#getId()}). It answers membership queries in constant time
+     * without scanning {@code contacts}.
+     */
+    private final Map<Long, Contact> byId;
+
+    /**
+     * Index of the managed contacts by name and surname, used by
+     * {@link #searchContact(String)}.
+     */
+    private final PrefixIndex prefixIndex;
+
+    /**
+     * Index of the managed contacts by phone number, used by
+     * {@link #lookupPhoneNumber(String)}, {@link #searchPhoneSuffix(String)}
+     * and {@link #searchPhoneNumber(String)}.
+     */
+    private final PhoneIndex phoneIndex;
+
+    /**
+     * Index of the managed contacts by email address, used by
+     * {@link #searchEmail(String)}.
+     */
+    private final EmailIndex emailIndex;
+
+    /**
+     * Index of the managed contacts by the words of their name and surname,
+     * matching the email addresses through {@link #emailIndex}, used by
+     * {@link #fuzzySearch(String, int)}.
+     */
+    private final FuzzyIndex fuzzyIndex;
+
+    /**
+     * Index of the managed contacts by identity, used to detect duplicates.
+     */
+    private final DuplicateIndex duplicateIndex;
+
+    /**
+     * What is done with a contact that duplicates a managed one.
+     */
+    private DuplicatePolicy duplicatePolicy;
+
+    /**
+     * The number of duplicates found by the last {@link #addAll(Collection)}.
+     */
+    private int lastDuplicates;
+
+    /**
+     * Number of insertions and deletions performed so far. It lets a
+     * {@link SearchSession} know whether its previous result is still valid.
+     */
+    private long modifications;
+
+    /**
+     * Guards the list, the indexes and the order of the contacts, so that the
+     * searches can run on a background thread while the application thread
+     * adds, edits and deletes contacts. Every modification holds it for its
+     * whole duration, so a search never sees a contact half indexed; a search
+     * holds it to look up its result, not to sort it.
+     */
+    private final Object indexLock = new Object();
+
+    /**
+     * The listeners notified of the contacts edited in place.
+     */
+    private final List<BiConsumer<Contact, Contact>> editListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * {@code true} while an edited contact is moved to its new position.
+     */
+    private boolean editing;
+
+    /**
+     * The storage the contacts are saved to and loaded from, or {@code null}
+     * to use "rubrica.csv" directly.
+     */
+    private DataManager storage;
+
+    /**
+     * The pool that shares the equal field values of the contacts created by
+     * {@link #createContact(String, String, String[], String[])} and read
+     * from the contact file.
+     */
+    private final StringPool stringPool;
+
+    /**
+     * {@code true} if the contacts created from now on are packed (see
+     * {@link #setCompact(boolean)}).
+     */
+    private boolean compact;
+
+    /**
+     * {@code true} while contacts read from the file are being added, see
+     * {@link #addLoaded(Collection)}.
+     */
+    private boolean loading;
+
+    /**
+     * The version of the files the contacts were last loaded from or saved
+     * to, or {@code null} if it is not known.
+     */
+    private FileVersion diskVersion;
+
+    /**
+     * The number of contacts with each content in the files, counted by
+     * their hash (see {@link Contact#contentHash()}), as of the last load or
+     * save. A reload of changed files is applied as the difference from it.
+     */
+    private final ContentCounts diskContents;
+
+    /**
+     * The load running in the background, or {@code null}.
+     */
+    private volatile Future<?> backgroundLoad;
+
+    /**
+     * The thread that runs the saves requested with
+     * {@link #saveContactAsync()}, created on first use.
+     */
+    private ExecutorService saveExecutor;
+
+    /**
+     * The save being written, or {@code null}.
+     */
+    private CompletableFuture<Void> runningSave;
+
+    /**
+     * The save to be written after {@code runningSave}, which all the saves
+     * requested in the meantime share, or {@code null}.
+     */
+    private CompletableFuture<Void> queuedSave;
+
+    /**
+     * The contacts to be written by {@code queuedSave}.
+     */
+    private List<Contact> queuedSnapshot;
+
     /**
      * Creates a new {@code ContactManager}.
      *
@@ -48,10 +230,31 @@ public class ContactManager implements DataManager {
      */
     public ContactManager() {
         contacts = FXCollections.observableArrayList();
+        comparator = new NameAndSurnameComparator();
+        sorted = true;
+        byId = new HashMap<>();
+        prefixIndex = new PrefixIndex();
+        duplicateIndex = new DuplicateIndex();
+        phoneIndex = new PhoneIndex();
+        emailIndex = new EmailIndex();
+        fuzzyIndex = new FuzzyIndex(emailIndex);
+        duplicatePolicy = DuplicatePolicy.FLAG;
+        stringPool = new StringPool();
+        diskContents = new ContentCounts();
     }
 
     /**
      * Adds a new contact in the {@code ObservableList}
+     * <p>
+     * The insertion point is found by binary search on the already sorted
+     * list, so no re-sort is needed and listeners receive a single-element add
+     * change instead of a permutation of the whole list. Contacts that compare
+     * equal to {@code c} stay before it, so the last added one is the last
+     * visualized. A contact that is already managed is not added a second
+     * time. A contact that duplicates a managed one (see
+     * {@link DuplicateIndex}) is flagged or rejected according to
+     * {@link #setDuplicatePolicy(DuplicatePolicy)}.
+     * </p>
      *
      * @invariant The {@code Contact} object that the method uses must not be
      * null
@@ -67,11 +270,249 @@ public class ContactManager implements DataManager {
      * @param c The contact to be added in the data structure
      */
     public void addContacts(Contact c) {
-        if (c != null) {
-            contacts.add(c);
+        synchronized (indexLock) {
+            if (c == null || byId.containsKey(c.getId()) || this.isRejected(c)) {
+                return;
+            }
+            byId.put(c.getId(), c);
+            this.index(c);
+            modifications++;
+            if (!sorted) {
+                contacts.add(c);
+                this.sortList(comparator);
+                return;
+            }
+            contacts.add(this.insertionPoint(c), c);
+        }
+    }
+
+    /**
+     * Adds a collection of contacts in the {@code ObservableList} with a
+     * single sort and a single change notification.
+     * <p>
+     * The new contacts are sorted among themselves (a stable sort, which is
+     * linear if they are already sorted) and then merged with the contacts
+     * already in the list. If they all come after the existing contacts they
+     * are simply appended. Either way the listeners of the list receive one
+     * change for the whole collection. The contacts that duplicate a managed
+     * contact, or an earlier one of the collection, are counted and flagged or
+     * rejected as in {@link #addContacts(Contact)}.
+     * </p>
+     *
+     * @pre The contacts must be valid contacts, as for
+     * {@link #addContacts(Contact)}.
+     *
+     * @post Every non null contact of {@code c} that was not already managed
+     * is included in the list.
+     * @post The contact list is sorted in coherence with the current
+     * comparator, and contacts comparing equal keep the order in which they
+     * were added.
+     *
+     * @param c The contacts to be added in the data structure
+     *
+     * @return The number of duplicates found, also returned by
+     * {@link #getLastDuplicates()}
+     */
+    public int addAll(Collection<Contact> c) {
+        synchronized (indexLock) {
+            List<Contact> batch = new ArrayList<>(c.size());
+            int duplicates = 0;
+            for (Contact contact : c) {
+                if (contact == null || byId.containsKey(contact.getId())) {
+                    continue;
+                }
+                if (this.isRejected(contact)) {
+                    duplicates++;
+                    continue;
+                }
+                byId.put(contact.getId(), contact);
+                prefixIndex.add(contact);
+                emailIndex.add(contact);
+                fuzzyIndex.add(contact);
+                if (duplicateIndex.add(contact)) {
+                    duplicates++;
+                }
+                batch.add(contact);
+            }
+            lastDuplicates = duplicates;
+            if (batch.isEmpty()) {
+                return duplicates;
+            }
+            phoneIndex.addAll(batch);
+            modifications++;
+            batch.sort(comparator);
+            if (!sorted) {
+                contacts.sort(comparator);
+                sorted = true;
+            }
+            if (contacts.isEmpty() || comparator.compare(contacts.get(contacts.size() - 1), batch.get(0)) <= 0) {
+                contacts.addAll(batch);
+                return duplicates;
+            }
+            List<Contact> merged = new ArrayList<>(contacts.size() + batch.size());
+            int i = 0;
+            int j = 0;
+            while (i < contacts.size() && j < batch.size()) {
+                if (comparator.compare(contacts.get(i), batch.get(j)) <= 0) {
+                    merged.add(contacts.get(i++));
+                } else {
+                    merged.add(batch.get(j++));
+                }
+            }
+            merged.addAll(contacts.subList(i, contacts.size()));
+            merged.addAll(batch.subList(j, batch.size()));
+            contacts.setAll(merged);
+            return duplicates;
+        }
+    }
+
+    /**
+     * Tells whether a contact is rejected as a duplicate of a managed one.
+     *
+     * @param c The contact to be added
+     *
+     * @return {@code true} if the policy is {@link DuplicatePolicy#REJECT}
+     * and {@code c} has a duplicate
+     */
+    private boolean isRejected(Contact c) {
+        return duplicatePolicy == DuplicatePolicy.REJECT && duplicateIndex.findDuplicate(c) != null;
+    }
+
+    /**
+     * Returns a managed contact that is the same person as {@code c}, in
+     * constant time.
+     *
+     * @pre {@code c != null}
+     *
+     * @param c The contact to be checked, managed or not
+     *
+     * @return A managed contact other than {@code c} with the same identity
+     * key (see {@link DuplicateIndex#keyOf(Contact)}), or {@code null}
+     */
+    public Contact findDuplicate(Contact c) {
+        return duplicateIndex.findDuplicate(c);
+    }
+
+    /**
+     * Tells whether a managed contact is flagged as a duplicate, i.e.
+     * whether another managed contact is the same person.
+     *
+     * @param c The managed contact
+     *
+     * @return {@code true} if {@code c} has a duplicate
+     */
+    public boolean isDuplicate(Contact c) {
+        return duplicateIndex.hasDuplicates(c);
+    }
+
+    /**
+     * Selects what is done with the contacts that duplicate a managed one
+     * from now on. The default is {@link DuplicatePolicy#FLAG}.
+     *
+     * @param policy The policy
+     */
+    public void setDuplicatePolicy(DuplicatePolicy policy) {
+        this.duplicatePolicy = policy;
+    }
+
+    /**
+     * Returns what is done with the contacts that duplicate a managed one.
+     *
+     * @return The policy
+     */
+    public DuplicatePolicy getDuplicatePolicy() {
+        return duplicatePolicy;
+    }
+
+    /**
+     * Returns the number of duplicates found by the last bulk addition, e.g.
+     * by the last {@link #loadContact()}.
+     *
+     * @return The number of contacts flagged or rejected as duplicates
+     */
+    public int getLastDuplicates() {
+        return lastDuplicates;
+    }
+
+    /**
+     * Finds the position of a managed contact in {@code contacts}.
+     * <p>
+     * The contacts comparing equal to {@code c} are located by binary search
+     * and only that range is scanned for {@code c} itself. If {@code c} is not
+     * there (e.g. it was edited after being added, or the list is sorted with
+     * another {@code Comparator}) the whole list is scanned.
+     * </p>
+     *
+     * @pre {@code c} is contained in {@code contacts}.
+     *
+     * @param c The contact to be located
+     *
+     * @return The index of {@code c}, or -1 if it is not in the list
+     */
+    private int positionOf(Contact c) {
+        if (sorted) {
+            for (int i = this.lowerBound(c); i < contacts.size(); i++) {
+                Contact other = contacts.get(i);
+                if (other == c) {
+                    return i;
+                }
+                if (comparator.compare(other, c) != 0) {
+                    break;
+                }
+            }
         }
+        return contacts.indexOf(c);
+    }
 
-        this.sortList(new NameAndSurnameComparator());
+    /**
+     * Finds the position of the first contact that does not compare less than
+     * {@code c}.
+     *
+     * @pre {@code contacts} is sorted according to {@code comparator}.
+     *
+     * @param c The contact to be searched
+     *
+     * @return The index of the first contact not less than {@code c}
+     */
+    private int lowerBound(Contact c) {
+        int low = 0;
+        int high = contacts.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(contacts.get(mid), c) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the position at which {@code c} has to be inserted to keep
+     * {@code contacts} sorted.
+     *
+     * @pre {@code contacts} is sorted according to {@code comparator}.
+     *
+     * @post The returned index is the position after the last contact that
+     * compares less than or equal to {@code c}.
+     *
+     * @param c The contact to be inserted
+     *
+     * @return The insertion index, between 0 and the size of the list
+     */
+    private int insertionPoint(Contact c) {
+        int low = 0;
+        int high = contacts.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(contacts.get(mid), c) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
     }
 
     /**
@@ -85,6 +526,8 @@ public class ContactManager implements DataManager {
      *
      * @post The size of {@code contacts} is decremented by 1.
      * @post The deleted contact is no longer in the list.
+     * @post The order of the remaining contacts is unchanged, so no re-sort is
+     * performed.
      *
      * @param c The contact to be deleted in the data structure
      *
@@ -92,17 +535,203 @@ public class ContactManager implements DataManager {
      * not respected
      */
     public void deleteContact(Contact c) {
-        if (contacts == null) {
-            throw new NullPointerException("Error");
+        synchronized (indexLock) {
+            if (contacts == null) {
+                throw new NullPointerException("Error");
+            }
+            if (c == null || byId.remove(c.getId()) == null) {
+                return;
+            }
+            this.unindex(c);
+            modifications++;
+            int position = this.positionOf(c);
+            if (position >= 0) {
+                contacts.remove(position);
+            }
+        }
+    }
+
+    /**
+     * Modifies the attributes of a managed contact in place.
+     * <p>
+     * The contact is removed from the indexes, modified and indexed again
+     * under its new attributes, but it stays in the list: its observable
+     * values (see {@link Contact#surnameProperty()}) change, so only its row
+     * is updated. It is moved only if it is no longer in its sorted position,
+     * i.e. if its sort key changed, with one removal and one insertion. Since
+     * the list does not record the edit, the listeners added by
+     * {@link #addEditListener(BiConsumer)} are notified. If the duplicate
+     * policy is {@link DuplicatePolicy#REJECT} and the modified contact
+     * duplicates another one, the modification is undone.
+     * </p>
+     *
+     * @pre {@code c} is managed by this {@code ContactManager}.
+     * @pre The new attributes respect the constraints of {@link Contact}.
+     *
+     * @post {@code c} has the new attributes and is in its sorted position.
+     *
+     * @param c The contact to be modified
+     * @param surname The new surname
+     * @param name The new name
+     * @param phoneNumber The new phone numbers
+     * @param email The new emails
+     *
+     * @return {@code true} if the contact has been modified, {@code false} if
+     * it is not managed or the modification has been rejected
+     *
+     * @throws RuntimeException if both name and surname are empty.
+     */
+    public boolean editContact(Contact c, String surname, String name, String[] phoneNumber, String[] email) {
+        if (name.isEmpty() && surname.isEmpty()) {
+            throw new RuntimeException("A contact must have at least a name or a surname.");
+        }
+        Contact before;
+        synchronized (indexLock) {
+            if (c == null || !byId.containsKey(c.getId())) {
+                return false;
+            }
+            before = new Contact(c.getSurname() == null ? "" : c.getSurname(), c.getName(),
+                    c.getPhoneNumber(), c.getEmail());
+            int position = this.positionOf(c);
+            this.unindex(c);
+            this.setAttributes(c, surname, name, phoneNumber, email);
+            if (this.isRejected(c)) {
+                this.setAttributes(c, before.getSurname(), before.getName(), before.getPhoneNumber(), before.getEmail());
+                this.index(c);
+                return false;
+            }
+            this.index(c);
+            modifications++;
+            if (sorted && position >= 0 && !this.isInOrderAt(position)) {
+                editing = true;
+                try {
+                    contacts.remove(position);
+                    contacts.add(this.insertionPoint(c), c);
+                } finally {
+                    editing = false;
+                }
+            }
+        }
+        for (BiConsumer<Contact, Contact> listener : editListeners) {
+            listener.accept(before, c);
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether the contact at a position is not out of order with its
+     * neighbours.
+     *
+     * @param position The position of the contact
+     *
+     * @return {@code true} if no neighbour compares out of order with it
+     */
+    private boolean isInOrderAt(int position) {
+        Contact c = contacts.get(position);
+        return (position == 0 || comparator.compare(contacts.get(position - 1), c) <= 0)
+                && (position == contacts.size() - 1 || comparator.compare(c, contacts.get(position + 1)) <= 0);
+    }
+
+    /**
+     * Adds a listener notified of the contacts modified by
+     * {@link #editContact(Contact, String, String, String[], String[])},
+     * e.g. by a storage that records the changes. It is invoked on the thread
+     * of the edit, with a copy of the contact before the edit and the edited
+     * contact.
+     *
+     * @param listener The listener
+     */
+    public void addEditListener(BiConsumer<Contact, Contact> listener) {
+        editListeners.add(listener);
+    }
+
+    /**
+     * Tells whether an edited contact is being moved to its new sorted
+     * position. The removal and the insertion of the move are not changes of
+     * the contacts, so a storage does not record them: the edit itself is
+     * notified to the listeners added by {@link #addEditListener(BiConsumer)}.
+     *
+     * @return {@code true} during the move of an edited contact
+     */
+    public boolean isEditing() {
+        return editing;
+    }
+
+    /**
+     * Adds a contact to the indexes.
+     *
+     * @param c The contact
+     */
+    private void index(Contact c) {
+        prefixIndex.add(c);
+        duplicateIndex.add(c);
+        phoneIndex.add(c);
+        emailIndex.add(c);
+        fuzzyIndex.add(c);
+    }
+
+    /**
+     * Removes a contact from the indexes.
+     *
+     * @param c The contact
+     */
+    private void unindex(Contact c) {
+        prefixIndex.remove(c);
+        duplicateIndex.remove(c);
+        phoneIndex.remove(c);
+        emailIndex.remove(c);
+        fuzzyIndex.remove(c);
+    }
+
+    /**
+     * Sets the attributes of a contact, sharing them through the pool or
+     * packing them as {@link #createContact(String, String, String[], String[])}
+     * does.
+     *
+     * @param c The contact
+     * @param surname The surname
+     * @param name The name
+     * @param phoneNumber The phone numbers
+     * @param email The emails
+     */
+    private void setAttributes(Contact c, String surname, String name, String[] phoneNumber, String[] email) {
+        String[] phones = phoneNumber.clone();
+        String[] emails = email.clone();
+        if (compact) {
+            c.setSurname(surname);
+            c.setName(name);
+            c.setPhoneNumber(phones);
+            c.setEmail(emails);
+            c.pack();
+            return;
+        }
+        for (int i = 0; i < phones.length; i++) {
+            phones[i] = stringPool.intern(phones[i]);
         }
-        if (contacts.contains(c)) {
-            contacts.remove(c);
+        for (int i = 0; i < emails.length; i++) {
+            emails[i] = stringPool.intern(emails[i]);
         }
-        this.sortList(new NameAndSurnameComparator());
+        c.setSurname(stringPool.intern(surname));
+        c.setName(stringPool.intern(name));
+        c.setPhoneNumber(phones);
+        c.setEmail(emails);
     }
 
     /**
      * Search an existing contact in the {@code ObservableList}
+     * <p>
+     * The matching contacts are looked up in a {@link PrefixIndex}, so only
+     * the matches are visited and sorted, not the whole address book; they
+     * are sorted without holding the lock of the indexes (see
+     * {@link #sorted(Supplier)}). The
+     * match ignores case and accents (see {@link Contact#normalize(String)}).
+     * If {@code s} looks like a phone number, i.e. it has digits and only
+     * digits, spaces and the symbols of a phone number, the contacts with a
+     * phone number that contains its digits are returned too (see
+     * {@link #searchPhoneNumber(String)}). If {@code s} contains an '@', the
+     * contacts with an email address that contains it are returned too (see
+     * {@link #searchEmail(String)}).
+     * </p>
      *
      * @invariant The {@code contacts} list must not be null and must contain
      * valid {@code Contact} objects.
@@ -112,6 +741,8 @@ public class ContactManager implements DataManager {
      *
      * @post The returned list contains all and only the contacts that match
      * {@code s}.
+     * @post The returned list is sorted in coherence with an instance of
+     * {@link NameAndSurnameComparator}.
      *
      * @param s The search substring to filter contacts
      *
@@ -121,24 +752,242 @@ public class ContactManager implements DataManager {
      * not respected
      */
     public ObservableList<Contact> searchContact(String s) {
-
         if (contacts == null) {
             throw new NullPointerException("Error");
         }
+        return this.sorted(() -> {
+            List<Contact> filtrata = prefixIndex.search(Contact.normalize(s));
+            if (isPhoneQuery(s)) {
+                Set<Contact> union = new LinkedHashSet<>(filtrata);
+                union.addAll(phoneIndex.searchInfix(s));
+                filtrata = new ArrayList<>(union);
+            }
+            if (isEmailQuery(s)) {
+                Set<Contact> union = new LinkedHashSet<>(filtrata);
+                union.addAll(emailIndex.search(s));
+                filtrata = new ArrayList<>(union);
+            }
+            return filtrata;
+        });
+    }
 
-        ObservableList<Contact> filtrata = FXCollections.observableArrayList();
+    /**
+     * Returns the contacts that have a phone number, in constant time.
+     *
+     * @param number The phone number, in any format (see
+     * {@link PhoneIndex#normalizeNumber(String)})
+     *
+     * @return The sorted contacts with the same digits
+     */
+    public ObservableList<Contact> lookupPhoneNumber(String number) {
+        return this.sorted(() -> phoneIndex.lookup(number));
+    }
 
-        for (Contact c : this.contacts) {
-            if (c.getName().startsWith(s) || c.getSurname().startsWith(s)) {
-                filtrata.add(c);
+    /**
+     * Returns the contacts with a phone number that ends with some digits,
+     * e.g. the last digits of the number of a caller.
+     *
+     * @param digits The last digits of the number
+     *
+     * @return The sorted matching contacts
+     */
+    public ObservableList<Contact> searchPhoneSuffix(String digits) {
+        return this.sorted(() -> phoneIndex.searchSuffix(digits));
+    }
+
+    /**
+     * Returns the contacts with a phone number that contains some digits.
+     *
+     * @param digits Some consecutive digits of the number
+     *
+     * @return The sorted matching contacts
+     */
+    public ObservableList<Contact> searchPhoneNumber(String digits) {
+        return this.sorted(() -> phoneIndex.searchInfix(digits));
+    }
+
+    /**
+     * Returns the contacts with an email address that contains a string,
+     * e.g. "rossi@" or "@acme.it", ignoring case and accents.
+     *
+     * @param s The string
+     *
+     * @return The sorted matching contacts
+     */
+    public ObservableList<Contact> searchEmail(String s) {
+        return this.sorted(() -> emailIndex.search(s));
+    }
+
+    /**
+     * Returns the contacts closest to a search string, tolerating typos, e.g.
+     * "Rosi" for "Rossi".
+     * <p>
+     * The name, the surname and the user part of the email addresses are
+     * compared by edit distance, the latter with at most one edit, and the
+     * best {@code k} contacts are returned,
+     * best first (see {@link FuzzyIndex#search(String, int, Comparator)}).
+     * The contacts at equal distance are in the order of the list.
+     * </p>
+     *
+     * @param s The search string
+     * @param k The maximum number of contacts returned
+     *
+     * @return The closest contacts, ranked by distance
+     */
+    public ObservableList<Contact> fuzzySearch(String s, int k) {
+        Map<Contact, Integer> scores;
+        Comparator<Contact> order;
+        long seen;
+        synchronized (indexLock) {
+            scores = fuzzyIndex.scores(s);
+            order = comparator;
+            seen = modifications;
+        }
+        // the ranking compares the contacts without the lock, as in sorted
+        List<Contact> best = FuzzyIndex.best(scores, k, order);
+        synchronized (indexLock) {
+            if (seen != modifications || order != comparator) {
+                best = fuzzyIndex.search(s, k, comparator);
+            }
+        }
+        return FXCollections.observableArrayList(best);
+    }
+
+    /**
+     * Looks up a search result in the indexes and sorts it with the
+     * comparator of the list.
+     * <p>
+     * Only the lookup holds the lock of the indexes: the sort, which is the
+     * longer step for a large result, does not, so the application thread is
+     * not blocked by it. If the contacts are edited or the order changes in
+     * the meantime, the sort may have compared a contact while it was being
+     * modified, so the lookup and the sort are repeated under the lock.
+     * </p>
+     *
+     * @param lookup Looks up the contacts found, invoked with the lock held
+     *
+     * @return The sorted contacts
+     */
+    private ObservableList<Contact> sorted(Supplier<List<Contact>> lookup) {
+        List<Contact> result;
+        Comparator<Contact> order;
+        long seen;
+        synchronized (indexLock) {
+            result = lookup.get();
+            order = comparator;
+            seen = modifications;
+        }
+        boolean consistent = true;
+        try {
+            result.sort(order);
+        } catch (IllegalArgumentException e) {
+            // a contact edited during the sort broke the contract of the order
+            consistent = false;
+        }
+        synchronized (indexLock) {
+            if (!consistent || seen != modifications || order != comparator) {
+                result = lookup.get();
+                result.sort(comparator);
+            }
+        }
+        return FXCollections.observableArrayList(result);
+    }
+
+    /**
+     * Tells whether a search string looks like a part of an email address.
+     *
+     * @param s The search string
+     *
+     * @return {@code true} if {@code s} contains an '@'
+     */
+    static boolean isEmailQuery(String s) {
+        return s.indexOf('@') >= 0;
+    }
+
+    /**
+     * Tells whether a search string looks like a phone number.
+     *
+     * @param s The search string
+     *
+     * @return {@code true} if {@code s} has at least a digit and only digits,
+     * spaces and the characters "+-./()"
+     */
+    static boolean isPhoneQuery(String s) {
+        boolean digit = false;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                digit = true;
+            } else if (" +-./()".indexOf(ch) < 0) {
+                return false;
             }
         }
-        filtrata.sort(new NameAndSurnameComparator());
-        return filtrata;
+        return digit;
+    }
+
+    /**
+     * Opens a new search session on this {@code ContactManager}.
+     * <p>
+     * A {@link SearchSession} remembers the result of its last query, so that
+     * a query which extends the previous one only filters the previous
+     * result. It is meant to be used while the user types in the search
+     * field.
+     * </p>
+     *
+     * @post The returned session has no previous query.
+     *
+     * @return A new search session over the contacts of this manager
+     */
+    public SearchSession openSearchSession() {
+        return new SearchSession(this);
+    }
+
+    /**
+     * Tells whether a contact would be returned by
+     * {@link #searchContact(String)} for a search substring whose normalized
+     * form is {@code key}.
+     *
+     * @param c The contact to be checked
+     * @param key The normalized search substring
+     *
+     * @return {@code true} if {@code c} matches {@code key}
+     */
+    boolean matches(Contact c, String key) {
+        synchronized (indexLock) {
+            return prefixIndex.matches(c, key)
+                    || (isPhoneQuery(key) && phoneIndex.matches(c, PhoneIndex.normalizeNumber(key)))
+                    || (isEmailQuery(key) && emailIndex.matches(c, key));
+        }
+    }
+
+    /**
+     * Returns the number of insertions and deletions performed so far.
+     *
+     * @return The modification count of the contact list
+     */
+    long getModifications() {
+        return modifications;
+    }
+
+    /**
+     * Returns the lock that guards the list and the indexes, held by a
+     * {@link SearchSession} while it filters its previous result.
+     *
+     * @return The lock of the indexes
+     */
+    Object getIndexLock() {
+        return indexLock;
     }
 
     /**
      * Creates a new contact with the specified details
+     * <p>
+     * The values are replaced by their canonical instances in the
+     * {@link StringPool} of this manager, so equal values of different
+     * contacts, such as a common surname or the {@code "-"} placeholder, are
+     * stored once. In compact mode the contact is packed instead, and only
+     * its normalized keys are taken from the pool.
+     * </p>
      *
      * @invariant
      * {@link Contact#Contact(java.lang.String, java.lang.String, java.lang.String[], java.lang.String[])}
@@ -157,7 +1006,56 @@ public class ContactManager implements DataManager {
      *
      */
     public Contact createContact(String surname, String name, String[] phoneNumber, String[] email) {
-        return new Contact(surname, name, phoneNumber, email);
+        if (compact) {
+            Contact c = new Contact(surname, name, phoneNumber, email, stringPool);
+            c.pack();
+            return c;
+        }
+        String[] pooledPhoneNumber = new String[phoneNumber.length];
+        for (int i = 0; i < phoneNumber.length; i++) {
+            pooledPhoneNumber[i] = stringPool.intern(phoneNumber[i]);
+        }
+        String[] pooledEmail = new String[email.length];
+        for (int i = 0; i < email.length; i++) {
+            pooledEmail[i] = stringPool.intern(email[i]);
+        }
+        return new Contact(stringPool.intern(surname), stringPool.intern(name), pooledPhoneNumber, pooledEmail, stringPool);
+    }
+
+    /**
+     * Returns the pool that shares the equal field values of the contacts of
+     * this manager, e.g. for a reader of the contact file.
+     * <p>
+     * In compact mode the values read are copied into the packed contacts.
+     * The pool references its values weakly, so it does not retain them, and
+     * keeps sharing the values still in use, such as the normalized keys.
+     * </p>
+     *
+     * @return the string pool of this manager.
+     */
+    public StringPool getStringPool() {
+        return stringPool;
+    }
+
+    /**
+     * Selects whether the contacts created from now on are packed.
+     * <p>
+     * A packed contact keeps its attributes in a single UTF-8 byte array and
+     * decodes each one when it is requested, without keeping it, which takes
+     * much less memory for a large address book of which only a few contacts
+     * are displayed. The indexes read the attributes of every contact, and
+     * the contacts stay packed. It is meant to be selected before loading
+     * such a book.
+     * </p>
+     *
+     * @post The contacts returned by
+     * {@link #createContact(String, String, String[], String[])}, and so the
+     * loaded ones, are packed if {@code compact} is {@code true}.
+     *
+     * @param compact {@code true} to pack the contacts.
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
     }
 
     /**
@@ -187,7 +1085,64 @@ public class ContactManager implements DataManager {
      * @throws NullPointerException if the provided {@code Comparator} is null.
      */
     public void sortList(Comparator<Contact> c) {
-        contacts.sort(c);
+        synchronized (indexLock) {
+            contacts.sort(c);
+            sorted = comparator.equals(c);
+        }
+    }
+
+    /**
+     * Selects the order in which the contacts are kept.
+     * <p>
+     * With a {@code locale} the contacts are ordered with the collation rules
+     * of that language, using collation keys cached on each contact (see
+     * {@link NameAndSurnameComparator#NameAndSurnameComparator(Locale)}).
+     * With {@code null} they are ordered on their normalized keys, which is
+     * the default.
+     * </p>
+     *
+     * @post The {@code contacts} list is sorted in the selected order, and
+     * the following insertions keep it sorted.
+     *
+     * @param locale the language whose ordering rules are used, or
+     * {@code null} for the default order.
+     */
+    public void setSortLocale(Locale locale) {
+        synchronized (indexLock) {
+            comparator = locale == null ? new NameAndSurnameComparator() : new NameAndSurnameComparator(locale);
+            this.sortList(comparator);
+        }
+    }
+
+    /**
+     * Returns the comparator that defines the order of the contacts.
+     *
+     * @post The {@code contacts} list is sorted according to the returned
+     * comparator, unless {@link #sortList(Comparator)} was used with another
+     * one.
+     *
+     * @return the comparator used by this {@code ContactManager}.
+     */
+    public Comparator<Contact> getComparator() {
+        return this.comparator;
+    }
+
+    /**
+     * Selects the storage used by {@link #saveContact()} and
+     * {@link #loadContact()}.
+     * <p>
+     * By default the whole list is written to "rubrica.csv" on each save. A
+     * storage such as {@link it.unisa.diem.gruppo9.data.JournalDataManager}
+     * can instead save only the changes.
+     * </p>
+     *
+     * @post {@link #saveContact()} and {@link #loadContact()} delegate to
+     * {@code storage}, or use "rubrica.csv" if it is {@code null}.
+     *
+     * @param storage the storage of the contacts, or {@code null}.
+     */
+    public void setStorage(DataManager storage) {
+        this.storage = storage;
     }
 
     /**
@@ -214,7 +1169,10 @@ public class ContactManager implements DataManager {
      * This method writes the contacts data managed by {@code ContactManager} to
      * a CSV file named "rubrica.csv". It ensures that all contacts in the
      * {@code contacts} list are serialized into a structured format. Each
-     * contact is represented as a row with fields separated by semicolons.
+     * contact is represented as a row with fields separated by semicolons,
+     * written by a {@link CsvContactWriter} in UTF-8. If a storage has been
+     * selected with {@link #setStorage(DataManager)} the save is delegated to
+     * it.
      * </p>
      *
      * @invariant The {@code contacts} list must not be null and must contain
@@ -230,25 +1188,196 @@ public class ContactManager implements DataManager {
      * @post The file "rubrica.csv" is created or overwritten with the current
      * contacts data.
      *
-     * @throws IOException if an error occurs during file writing.
+     * @throws IOException if an error occurs during file writing, or if the
+     * contacts of the file are still being loaded in the background (see
+     * {@link #setBackgroundLoad(Future)}) and the file would be overwritten
+     * with part of them.
      */
     @Override
     public void saveContact() throws IOException {
-        try (PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter("rubrica.csv")))) {
-            pw.println("Surname;Name;Phone1;Phone2;Phone3;Email1;Email2;Email3");
+        if (storage != null) {
+            storage.saveContact();
+            return;
+        }
+        this.checkLoaded();
+        this.writeContacts(contacts);
+    }
+
+    /**
+     * Checks that the list holds all the contacts of the file before it is
+     * rewritten. The batches of a background load are added on the JavaFX
+     * application thread, which invokes the saves, so the save cannot wait
+     * for them and is refused instead.
+     *
+     * @throws IOException if a load is running in the background or has been
+     * cancelled before adding every contact.
+     */
+    private void checkLoaded() throws IOException {
+        Future<?> load = backgroundLoad;
+        if (load != null && (!load.isDone() || load.isCancelled())) {
+            throw new IOException("The contacts of " + FILENAME + " are not loaded yet");
+        }
+    }
+
+    /**
+     * Saves the contacts on a background thread, so that the JavaFX
+     * application thread is not blocked while the file is written.
+     * <p>
+     * The contacts are copied with their attributes when the save is
+     * requested, so the file contains the contacts of that moment even if the
+     * list changes or a contact is edited in place during the write; the
+     * copies written are also the ones recorded as the content of the file.
+     * If a save is already being written, the request is coalesced with the
+     * other requests made in the meantime into a single save of the latest
+     * contacts, started when the current one completes. If a storage
+     * has been selected with {@link #setStorage(DataManager)}, its
+     * {@code saveContact()} is invoked on the background thread instead.
+     * Without a storage the save is refused, as by {@link #saveContact()},
+     * while the contacts of the file are being loaded in the background.
+     * </p>
+     *
+     * @pre The method is invoked on the thread that modifies the contacts,
+     * i.e. the JavaFX application thread.
+     *
+     * @post A save of the current contacts has started or is queued.
+     *
+     * @return a future completed when the file contains the current contacts,
+     * or completed exceptionally with the {@code IOException} of the save.
+     */
+    public CompletableFuture<Void> saveContactAsync() {
+        List<Contact> snapshot = null;
+        if (storage == null) {
+            try {
+                this.checkLoaded();
+            } catch (IOException e) {
+                CompletableFuture<Void> refused = new CompletableFuture<>();
+                refused.completeExceptionally(e);
+                return refused;
+            }
+            snapshot = new ArrayList<>(contacts.size());
             for (Contact c : contacts) {
-                pw.print(c);
+                snapshot.add(copyOf(c));
+            }
+        }
+        synchronized (this) {
+            if (runningSave != null) {
+                queuedSnapshot = snapshot;
+                if (queuedSave == null) {
+                    queuedSave = new CompletableFuture<>();
+                }
+                return queuedSave;
             }
+            runningSave = new CompletableFuture<>();
+            this.startSave(snapshot, runningSave);
+            return runningSave;
         }
     }
 
+    /**
+     * Returns a copy of a contact, so that a background save writes its
+     * attributes at the time the save was requested.
+     *
+     * @param c the contact.
+     * @return a contact with the same attributes.
+     */
+    private static Contact copyOf(Contact c) {
+        return new Contact(c.getSurname() == null ? "" : c.getSurname(), c.getName(),
+                c.getPhoneNumber().clone(), c.getEmail().clone());
+    }
+
+    /**
+     * Tells whether a save requested with {@link #saveContactAsync()} is being
+     * written or queued.
+     *
+     * @return {@code true} until the last requested save completes.
+     */
+    public synchronized boolean isSaving() {
+        return runningSave != null;
+    }
+
+    /**
+     * Writes a save on the background thread and then starts the queued one,
+     * if any.
+     *
+     * @param snapshot the contacts to be written, or {@code null} to save
+     * through the storage.
+     * @param result the future of the save.
+     */
+    private synchronized void startSave(List<Contact> snapshot, CompletableFuture<Void> result) {
+        if (saveExecutor == null) {
+            saveExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "contact-saver");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        saveExecutor.execute(() -> {
+            Exception error = null;
+            try {
+                if (snapshot == null) {
+                    storage.saveContact();
+                } else {
+                    this.writeContacts(snapshot);
+                }
+            } catch (IOException | RuntimeException e) {
+                error = e;
+            }
+            synchronized (this) {
+                runningSave = queuedSave;
+                if (queuedSave != null) {
+                    List<Contact> next = queuedSnapshot;
+                    queuedSave = null;
+                    queuedSnapshot = null;
+                    this.startSave(next, runningSave);
+                }
+            }
+            if (error == null) {
+                result.complete(null);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    /**
+     * Writes contacts to "rubrica.csv".
+     *
+     * @param list the contacts to be written.
+     *
+     * @throws IOException if an error occurs during file writing.
+     */
+    private void writeContacts(List<Contact> list) throws IOException {
+        CRC32 crc = new CRC32();
+        try (CsvContactWriter writer = new CsvContactWriter(new BufferedWriter(new OutputStreamWriter(
+                new CheckedOutputStream(new FileOutputStream(FILENAME), crc), StandardCharsets.UTF_8)))) {
+            writer.writeHeader();
+            for (Contact c : list) {
+                writer.write(c);
+            }
+        }
+        this.savedContacts(FileVersion.of(Paths.get(FILENAME), crc.getValue()), list);
+    }
+
     /**
      * Loads the data structure from a defined file.
      * <p>
      * This method reads the contacts data from a CSV file named "rubrica.csv"
      * and populates the {@code contacts} list. Each row in the file represents
      * a contact, with fields separated by semicolons. If the file is empty, the
-     * {@code ContactManager} remains unchanged.
+     * {@code ContactManager} remains unchanged. The file is parsed by a
+     * streaming {@link CsvContactReader}, and the contacts read are added
+     * with {@link #addAll(Collection)}, so the list is sorted once and
+     * notifies a single change. If a storage has been selected with
+     * {@link #setStorage(DataManager)} the load is delegated to it.
+     * </p>
+     * <p>
+     * The loaded contacts are kept across invocations. The file is read again
+     * only if its size, modification time or checksum (see
+     * {@link FileVersion}) differ from the last load or save, and then only
+     * the difference is applied (see {@link #applyLoaded(FileVersion, Collection)}),
+     * so loading twice does not duplicate the contacts. While a load runs in
+     * the background (see {@link #setBackgroundLoad(Future)}) the method
+     * returns at once, since that load brings the contacts of the file.
      * </p>
      *
      * @invariant The {@code contacts} list must not contain invalid or null
@@ -269,24 +1398,291 @@ public class ContactManager implements DataManager {
      */
     @Override
     public ContactManager loadContact() throws FileNotFoundException, IOException {
-        String filename = "rubrica.csv";
-        String nome = filename.split("\\n")[0];
+        Future<?> load = backgroundLoad;
+        if (load != null && !load.isDone()) {
+            return this;
+        }
+        if (storage != null) {
+            storage.loadContact();
+            return this;
+        }
+        Path file = Paths.get(FILENAME);
+        if (!Files.exists(file)) {
+            throw new FileNotFoundException(FILENAME);
+        }
+        FileVersion version = FileVersion.ifChanged(this.getDiskVersion(), file);
+        if (version != null) {
+            this.applyLoaded(version, this.readContacts());
+        }
+        return this;
+    }
+
+    /**
+     * Reads the contacts of the defined file without adding them to the
+     * list, so that they can be added later, e.g. in batches by a
+     * {@link it.unisa.diem.gruppo9.data.BackgroundContactLoader}. A file
+     * that is not valid UTF-8 is read with the platform charset (see
+     * {@link CsvContactReader#readWithFallback}).
+     *
+     * @return the contacts of the file, in file order.
+     *
+     * @throws FileNotFoundException if the file does not exist.
+     * @throws IOException if an error occurs during file reading.
+     */
+    public List<Contact> readContacts() throws FileNotFoundException, IOException {
+        return CsvContactReader.readWithFallback(this::readContacts);
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            if (br.readLine() == null) {
-                return this;
+    /**
+     * Reads the contacts of the defined file with the given charset.
+     *
+     * @param charset the charset of the file.
+     * @return the contacts of the file, in file order.
+     *
+     * @throws FileNotFoundException if the file does not exist.
+     * @throws IOException if an error occurs during file reading.
+     */
+    private List<Contact> readContacts(Charset charset) throws FileNotFoundException, IOException {
+        List<Contact> loaded = new ArrayList<>();
+        try (CsvContactReader reader = new CsvContactReader(
+                CsvContactReader.newReader(new FileInputStream(FILENAME), charset), this.getStringPool())) {
+            if (!reader.skipRecord()) {
+                return loaded;
             }
-            String line;
-            while ((line = br.readLine()) != null) {
-                String fields[] = line.split(";");
-                Contact c = this.createContact(fields[0], fields[1],
+            String[] fields = new String[CsvContactReader.FIELDS];
+            while (reader.readRecord(fields)) {
+                loaded.add(this.createContact(fields[0], fields[1],
                         new String[]{fields[2], fields[3], fields[4]},
-                        new String[]{fields[5], fields[6], fields[7]});
+                        new String[]{fields[5], fields[6], fields[7]}));
+            }
+        }
+        return loaded;
+    }
 
-                this.addContacts(c);
+    /**
+     * Adds contacts read from the file, as {@link #addAll(Collection)} does.
+     * <p>
+     * While they are added {@link #isLoading()} returns {@code true}, so that
+     * a storage listening to the list, such as a
+     * {@link it.unisa.diem.gruppo9.data.JournalDataManager}, does not record
+     * them as changes to be saved.
+     * </p>
+     *
+     * @param loaded the contacts read from the file.
+     *
+     * @return the number of duplicates found, see {@link #addAll(Collection)}.
+     */
+    public int addLoaded(Collection<Contact> loaded) {
+        int duplicates;
+        loading = true;
+        try {
+            duplicates = this.addAll(loaded);
+        } finally {
+            loading = false;
+        }
+        synchronized (diskContents) {
+            for (Contact c : loaded) {
+                diskContents.add(c.contentHash());
             }
         }
+        return duplicates;
+    }
 
+    /**
+     * Applies the content of changed files as a difference from the content
+     * they had at the last load or save.
+     * <p>
+     * For each content, the contacts the files have in addition are added and
+     * the ones they have less are deleted from the list, so the contacts
+     * added or deleted by the user and not saved yet are kept. As in
+     * {@link #addLoaded(Collection)}, the changes are not recorded by the
+     * storage. Nothing is done if {@code version} is the version of the last
+     * load or save.
+     * </p>
+     *
+     * @post The files and the list differ only by the changes not saved yet.
+     *
+     * @param version the version of the files the contacts were read from.
+     * @param read the contacts of the files.
+     */
+    public void applyLoaded(FileVersion version, Collection<Contact> read) {
+        long[] keys = new long[read.size()];
+        ContentCounts fresh = new ContentCounts();
+        int n = 0;
+        for (Contact c : read) {
+            keys[n] = c.contentHash();
+            fresh.add(keys[n++]);
+        }
+        List<Contact> added = new ArrayList<>();
+        ContentCounts removed;
+        synchronized (diskContents) {
+            if (version.equals(diskVersion)) {
+                return;
+            }
+            // the added contacts are taken in file order, so that equal
+            // contacts keep it and a sorted input stays sorted
+            ContentCounts taken = new ContentCounts();
+            n = 0;
+            for (Contact c : read) {
+                long key = keys[n++];
+                if (taken.add(key) > diskContents.count(key)) {
+                    added.add(c);
+                }
+            }
+            removed = diskContents.minus(fresh);
+        }
+        List<Contact> deleted = new ArrayList<>();
+        if (!removed.isEmpty()) {
+            for (Contact c : contacts) {
+                if (removed.remove(c.contentHash())) {
+                    deleted.add(c);
+                }
+            }
+        }
+        loading = true;
+        try {
+            for (Contact c : deleted) {
+                this.deleteContact(c);
+            }
+            this.addAll(added);
+        } finally {
+            loading = false;
+        }
+        synchronized (diskContents) {
+            diskVersion = version;
+            diskContents.clear();
+            for (long key : keys) {
+                diskContents.add(key);
+            }
+        }
+    }
+
+    /**
+     * Sets the content of the files after they have been rewritten with the
+     * given contacts.
+     *
+     * @param version the version of the files after the save.
+     * @param saved the contacts written.
+     */
+    public void savedContacts(FileVersion version, Collection<Contact> saved) {
+        synchronized (diskContents) {
+            diskVersion = version;
+            diskContents.clear();
+            for (Contact c : saved) {
+                diskContents.add(c.contentHash());
+            }
+        }
+    }
+
+    /**
+     * Updates the content of the files after a storage has saved some
+     * changes to them.
+     *
+     * @param from the version of the files before the save.
+     * @param to the version of the files after the save.
+     * @param added the contacts written as added.
+     * @param removed the contacts written as deleted.
+     */
+    public void savedChanges(FileVersion from, FileVersion to, Collection<Contact> added, Collection<Contact> removed) {
+        synchronized (diskContents) {
+            for (Contact c : added) {
+                diskContents.add(c.contentHash());
+            }
+            for (Contact c : removed) {
+                diskContents.remove(c.contentHash());
+            }
+            // if the files had changed since the last load, they are read
+            // again at the next one
+            diskVersion = from.equals(diskVersion) ? to : null;
+        }
+    }
+
+    /**
+     * Sets the version of the files after all their contacts have been added
+     * with {@link #addLoaded(Collection)}, so that {@link #loadContact()}
+     * does not read them again if they have not changed.
+     *
+     * @param version the version of the files, computed before they were
+     * read.
+     */
+    public void setDiskVersion(FileVersion version) {
+        synchronized (diskContents) {
+            diskVersion = version;
+        }
+    }
+
+    /**
+     * Returns the version of the files as of the last load or save.
+     *
+     * @return the version, or {@code null} if it is not known.
+     */
+    public FileVersion getDiskVersion() {
+        synchronized (diskContents) {
+            return diskVersion;
+        }
+    }
+
+    /**
+     * Selects the load running in the background, during which
+     * {@link #loadContact()} returns without reading the files and, without
+     * a storage, the saves are refused.
+     *
+     * @param load the load, done when the contacts of the files have been
+     * added.
+     */
+    public void setBackgroundLoad(Future<?> load) {
+        this.backgroundLoad = load;
+    }
+
+    /**
+     * Tells whether the current change of the list adds contacts read from
+     * the file.
+     *
+     * @return {@code true} during {@link #addLoaded(Collection)}.
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Loads the data structure from the defined file, parsing it in parallel.
+     * <p>
+     * This method has the same result as {@link #loadContact()}, but the file
+     * is split into ranges that are parsed and sorted on a fork/join pool by
+     * a {@link ParallelContactLoader}, and the sorted runs are merged and
+     * added with a single bulk operation. It is meant for large files, for
+     * small ones a single range is used. As for {@link #loadContact()}, an
+     * unchanged file is not read again and a changed one is applied as a
+     * difference, the method returns at once while a load runs in the
+     * background, and the load is delegated to the storage selected with
+     * {@link #setStorage(DataManager)}, if any, which is not a CSV file.
+     * </p>
+     *
+     * @post The {@code contacts} list has the same content and order it would
+     * have after {@link #loadContact()}.
+     *
+     * @return The {@code ContactManager} object with the updated contacts list.
+     *
+     * @throws IOException if the file does not exist or an error occurs during
+     * file reading.
+     */
+    public ContactManager loadContactParallel() throws IOException {
+        Future<?> load = backgroundLoad;
+        if (load != null && !load.isDone()) {
+            return this;
+        }
+        if (storage != null) {
+            storage.loadContact();
+            return this;
+        }
+        Path file = Paths.get(FILENAME);
+        if (!Files.exists(file)) {
+            throw new FileNotFoundException(FILENAME);
+        }
+        FileVersion version = FileVersion.ifChanged(this.getDiskVersion(), file);
+        if (version != null) {
+            this.applyLoaded(version, new ParallelContactLoader(this).load(file));
+        }
         return this;
     }
 
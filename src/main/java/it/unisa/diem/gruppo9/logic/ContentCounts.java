@@ -0,0 +1,202 @@
+package it.unisa.diem.gruppo9.logic;
+
+import java.util.Arrays;
+
+/**
+ * @file ContentCounts.java
+ * @brief A multiset of content hashes, counting the contacts with each
+ * content.
+ *
+ * <p>
+ * A {@link ContactManager} counts the contacts of its files by content, so
+ * that a reload can be applied as a difference. The contents are counted by
+ * their 64-bit hash (see {@link Contact#contentHash()}) in a table with open
+ * addressing and linear probing of primitive arrays, so each distinct content
+ * takes a {@code long} and an {@code int} instead of a string with all the
+ * attributes of the contact and a map entry.
+ * </p>
+ *
+ * @see ContactManager.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+final class ContentCounts {
+
+    /**
+     * The hashes, in the slots whose count is not zero.
+     */
+    private long[] keys;
+
+    /**
+     * The count of each slot, zero for the empty slots.
+     */
+    private int[] counts;
+
+    /**
+     * The number of distinct hashes.
+     */
+    private int size;
+
+    /**
+     * Creates an empty multiset.
+     */
+    ContentCounts() {
+        keys = new long[16];
+        counts = new int[16];
+    }
+
+    /**
+     * Returns the count of a hash.
+     *
+     * @param key the hash.
+     * @return the number of times it has been added and not removed.
+     */
+    int count(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); counts[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return counts[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Adds a hash once.
+     *
+     * @param key the hash.
+     * @return its count after the addition.
+     */
+    int add(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (; counts[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return ++counts[i];
+            }
+        }
+        keys[i] = key;
+        counts[i] = 1;
+        if (++size * 2 > keys.length) {
+            this.rehash(keys.length * 2);
+        }
+        return 1;
+    }
+
+    /**
+     * Removes a hash once.
+     *
+     * @param key the hash.
+     * @return {@code true} if its count was not zero.
+     */
+    boolean remove(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); counts[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                if (--counts[i] == 0) {
+                    this.delete(i);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the hashes counted more times here than in another multiset,
+     * with the difference of their counts.
+     *
+     * @param other the other multiset.
+     * @return the difference.
+     */
+    ContentCounts minus(ContentCounts other) {
+        ContentCounts difference = new ContentCounts();
+        for (int i = 0; i < keys.length; i++) {
+            for (int n = counts[i] == 0 ? 0 : counts[i] - other.count(keys[i]); n > 0; n--) {
+                difference.add(keys[i]);
+            }
+        }
+        return difference;
+    }
+
+    /**
+     * Tells whether no hash is counted.
+     *
+     * @return {@code true} if the multiset is empty.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all the hashes.
+     */
+    void clear() {
+        if (keys.length > 16) {
+            keys = new long[16];
+            counts = new int[16];
+        } else {
+            Arrays.fill(counts, 0);
+        }
+        size = 0;
+    }
+
+    /**
+     * Empties a slot, moving back the following hashes of its probe sequence
+     * so that no lookup stops before them.
+     *
+     * @param i the slot.
+     */
+    private void delete(int i) {
+        int mask = keys.length - 1;
+        for (int j = (i + 1) & mask; counts[j] != 0; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            // the hash of slot j can fill slot i unless its first slot lies
+            // cyclically in (i, j]
+            if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+                keys[i] = keys[j];
+                counts[i] = counts[j];
+                i = j;
+            }
+        }
+        counts[i] = 0;
+        size--;
+    }
+
+    /**
+     * Moves the hashes to a table of another size.
+     *
+     * @param length the new size, a power of two.
+     */
+    private void rehash(int length) {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[length];
+        counts = new int[length];
+        int mask = length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCounts[i] != 0) {
+                int j = slot(oldKeys[i], mask);
+                while (counts[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                counts[j] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the first slot probed for a hash.
+     *
+     * @param key the hash.
+     * @param mask the size of the table minus one.
+     * @return the slot.
+     */
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
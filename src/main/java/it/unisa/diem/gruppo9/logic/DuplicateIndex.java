@@ -0,0 +1,161 @@
+package it.unisa.diem.gruppo9.logic;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @file DuplicateIndex.java
+ * @brief A hash index of the contacts by identity, used to detect duplicates.
+ *
+ * <p>
+ * Two contacts are considered the same person if they have the same
+ * normalized name and surname (see {@link Contact#normalize(String)}) and
+ * the same phone numbers, compared by their digits (see
+ * {@link PhoneIndex#normalizeNumber(String)}) and regardless of their
+ * order. The {@code DuplicateIndex} keeps the contacts in a
+ * {@link HashMap} under this identity key, so finding the duplicates of a
+ * contact costs a single lookup instead of a scan of the address book.
+ * </p>
+ * <p>
+ * As in {@link PrefixIndex}, the key under which a contact has been indexed
+ * is remembered, so that it can be removed correctly even if its attributes
+ * have been modified in the meantime.
+ * </p>
+ *
+ * @see ContactManager.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+public class DuplicateIndex {
+
+    /**
+     * The contacts indexed under each identity key.
+     */
+    private final Map<String, Set<Contact>> entries;
+
+    /**
+     * The key under which each contact has been indexed, by contact
+     * identifier.
+     */
+    private final Map<Long, String> keyById;
+
+    /**
+     * Creates a new, empty {@code DuplicateIndex}.
+     *
+     * @post The index contains no contacts.
+     */
+    public DuplicateIndex() {
+        entries = new HashMap<>();
+        keyById = new HashMap<>();
+    }
+
+    /**
+     * Indexes a contact under its identity key.
+     *
+     * @pre {@code c != null} and {@code c} is not already indexed.
+     *
+     * @param c The contact to be indexed
+     *
+     * @return {@code true} if {@code c} is a duplicate of an indexed contact
+     */
+    public boolean add(Contact c) {
+        String key = keyOf(c);
+        keyById.put(c.getId(), key);
+        Set<Contact> bucket = entries.computeIfAbsent(key, k -> new LinkedHashSet<>());
+        bucket.add(c);
+        return bucket.size() > 1;
+    }
+
+    /**
+     * Removes a contact from the index.
+     *
+     * @param c The contact to be removed
+     */
+    public void remove(Contact c) {
+        String key = keyById.remove(c.getId());
+        if (key == null) {
+            return;
+        }
+        Set<Contact> bucket = entries.get(key);
+        if (bucket != null) {
+            bucket.remove(c);
+            if (bucket.isEmpty()) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns an indexed contact that is the same person as {@code c}.
+     *
+     * @pre {@code c != null}
+     *
+     * @param c The contact to be checked, indexed or not
+     *
+     * @return The first indexed contact other than {@code c} with the
+     * identity key of {@code c}, or {@code null} if there is none
+     */
+    public Contact findDuplicate(Contact c) {
+        Set<Contact> bucket = entries.get(keyOf(c));
+        if (bucket == null) {
+            return null;
+        }
+        for (Contact other : bucket) {
+            if (other != c) {
+                return other;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tells whether an indexed contact has duplicates, i.e. whether it is
+     * flagged.
+     *
+     * @param c The indexed contact
+     *
+     * @return {@code true} if another indexed contact has the key under which
+     * {@code c} has been indexed
+     */
+    public boolean hasDuplicates(Contact c) {
+        String key = keyById.get(c.getId());
+        if (key == null) {
+            return false;
+        }
+        Set<Contact> bucket = entries.get(key);
+        return bucket != null && bucket.size() > 1;
+    }
+
+    /**
+     * Returns the identity key of a contact: its normalized name and surname
+     * and the digits of its phone numbers, sorted. The empty phone number
+     * slots ("-") are ignored.
+     *
+     * @param c The contact
+     *
+     * @return The identity key of {@code c}
+     */
+    public static String keyOf(Contact c) {
+        String[] phones = c.getPhoneNumber();
+        String[] digits = new String[phones.length];
+        int count = 0;
+        for (String phone : phones) {
+            String d = PhoneIndex.normalizeNumber(phone);
+            if (!d.isEmpty()) {
+                digits[count++] = d;
+            }
+        }
+        Arrays.sort(digits, 0, count);
+        StringBuilder sb = new StringBuilder();
+        sb.append(c.getNameKey()).append('\0').append(c.getSurnameKey() == null ? "" : c.getSurnameKey());
+        for (int i = 0; i < count; i++) {
+            sb.append('\0').append(digits[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,31 @@
+package it.unisa.diem.gruppo9.logic;
+
+/**
+ * @file DuplicatePolicy.java
+ * @brief What a {@code ContactManager} does with a contact that duplicates a
+ * managed one.
+ *
+ * <p>
+ * Two contacts are duplicates if they have the same identity key, see
+ * {@link DuplicateIndex#keyOf(Contact)}.
+ * </p>
+ *
+ * @see ContactManager#setDuplicatePolicy(DuplicatePolicy)
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+public enum DuplicatePolicy {
+
+    /**
+     * The duplicate is added and flagged, see
+     * {@link ContactManager#isDuplicate(Contact)}.
+     */
+    FLAG,
+
+    /**
+     * The duplicate is not added.
+     */
+    REJECT
+}
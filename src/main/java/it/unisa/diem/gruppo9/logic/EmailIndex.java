@@ -0,0 +1,455 @@
+package it.unisa.diem.gruppo9.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @file EmailIndex.java
+ * @brief A trigram index of the contacts by email address, for substring
+ * search.
+ *
+ * <p>
+ * The email addresses are indexed by their normalized form (see
+ * {@link Contact#normalize(String)}). For every trigram, i.e. every sequence
+ * of three consecutive characters, of the addresses of a contact, the index
+ * keeps a posting list: the sorted identifiers of the contacts having it. A
+ * string of three characters or more can only be contained in the addresses
+ * that have all its trigrams, so a search intersects their posting lists,
+ * starting from the shortest one, and checks only the few candidates left
+ * instead of every address. The searches of one or two characters are too
+ * unselective to profit from the index and scan the addresses.
+ * </p>
+ * <p>
+ * As in {@link PhoneIndex}, the addresses under which a contact has been
+ * indexed are remembered, so that it can be removed correctly even if its
+ * attributes have been modified in the meantime, and the removed entries are
+ * not deleted at once: a removed identifier is marked in its posting list,
+ * skipped by the searches and dropped when the marked ones are half of the
+ * list, so a removal does not shift the list.
+ * </p>
+ *
+ * @see ContactManager.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+public class EmailIndex {
+
+    /**
+     * The sorted identifiers of the contacts having each trigram.
+     */
+    private final Map<Long, Postings> postings;
+
+    /**
+     * The normalized addresses under which each contact has been indexed, by
+     * contact identifier.
+     */
+    private final Map<Long, String[]> emailsById;
+
+    /**
+     * The indexed contacts, by identifier.
+     */
+    private final Map<Long, Contact> contactsById;
+
+    /**
+     * Creates a new, empty {@code EmailIndex}.
+     *
+     * @post The index contains no contacts.
+     */
+    public EmailIndex() {
+        postings = new HashMap<>();
+        emailsById = new HashMap<>();
+        contactsById = new HashMap<>();
+    }
+
+    /**
+     * Indexes a contact under its email addresses.
+     *
+     * @pre {@code c != null} and {@code c} is not already indexed.
+     *
+     * @param c The contact to be indexed
+     */
+    public void add(Contact c) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String email : c.getEmail()) {
+            String normalized = normalizeEmail(email);
+            if (!normalized.isEmpty()) {
+                distinct.add(normalized);
+            }
+        }
+        String[] emails = distinct.toArray(new String[0]);
+        emailsById.put(c.getId(), emails);
+        contactsById.put(c.getId(), c);
+        for (long trigram : trigramsOf(emails)) {
+            postings.computeIfAbsent(trigram, t -> new Postings()).add(c.getId());
+        }
+    }
+
+    /**
+     * Removes a contact from the index.
+     *
+     * @param c The contact to be removed
+     */
+    public void remove(Contact c) {
+        String[] emails = emailsById.remove(c.getId());
+        if (emails == null) {
+            return;
+        }
+        contactsById.remove(c.getId());
+        for (long trigram : trigramsOf(emails)) {
+            Postings list = postings.get(trigram);
+            if (list != null && list.remove(c.getId()) && list.live == 0) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    /**
+     * Returns the contacts with an email address that contains a string,
+     * ignoring case and accents.
+     *
+     * @param s The string, e.g. "rossi@" or "@acme.it"
+     *
+     * @return The matching contacts, each once
+     */
+    public List<Contact> search(String s) {
+        String key = s == null ? "" : Contact.normalize(s);
+        List<Contact> result = new ArrayList<>();
+        if (key.isEmpty()) {
+            return result;
+        }
+        if (key.length() < 3) {
+            for (Map.Entry<Long, String[]> entry : emailsById.entrySet()) {
+                if (contains(entry.getValue(), key)) {
+                    result.add(contactsById.get(entry.getKey()));
+                }
+            }
+            return result;
+        }
+        Set<Long> trigrams = trigramsOf(new String[]{key});
+        List<Postings> lists = new ArrayList<>(trigrams.size());
+        for (long trigram : trigrams) {
+            Postings list = postings.get(trigram);
+            if (list == null) {
+                return result;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.live));
+        long[] candidates = lists.get(0).liveIds();
+        int count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = lists.get(i).retain(candidates, count);
+        }
+        for (int i = 0; i < count; i++) {
+            if (contains(emailsById.get(candidates[i]), key)) {
+                result.add(contactsById.get(candidates[i]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the contacts with an email address that may contain a string
+     * with up to {@code distance} edits.
+     * <p>
+     * An edit changes at most four trigrams of a string (a transposition), so
+     * an address containing the string within {@code distance} edits still
+     * has all its distinct trigrams but {@code 4 * distance}. The contacts are
+     * counted on the posting lists of the trigrams of the string and kept if
+     * they reach that number; the candidates are not verified, which is left
+     * to the caller. A string with too few trigrams for the filter to keep
+     * any is searched exactly, as in {@link #search(String)}.
+     * </p>
+     *
+     * @param s The string, e.g. "mario.rosi"
+     * @param distance The maximum number of edits
+     *
+     * @return The candidate contacts, each once
+     */
+    public List<Contact> searchSimilar(String s, int distance) {
+        String key = s == null ? "" : Contact.normalize(s);
+        Set<Long> trigrams = trigramsOf(new String[]{key});
+        int threshold = trigrams.size() - 4 * distance;
+        if (threshold <= 0) {
+            return this.search(s);
+        }
+        Map<Long, Integer> shared = new HashMap<>();
+        for (long trigram : trigrams) {
+            Postings list = postings.get(trigram);
+            if (list != null) {
+                for (int i = 0; i < list.size; i++) {
+                    if (list.ids[i] >= 0) {
+                        shared.merge(list.ids[i], 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        List<Contact> result = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : shared.entrySet()) {
+            if (entry.getValue() >= threshold) {
+                result.add(contactsById.get(entry.getKey()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the normalized addresses under which a contact has been
+     * indexed.
+     *
+     * @param c The contact
+     *
+     * @return The distinct addresses, empty if the contact is not indexed
+     */
+    public String[] addressesOf(Contact c) {
+        String[] emails = emailsById.get(c.getId());
+        return emails == null ? new String[0] : emails.clone();
+    }
+
+    /**
+     * Tells whether a contact has an email address that contains a string,
+     * without looking at the index.
+     *
+     * @param c The contact to be checked
+     * @param key The normalized string
+     *
+     * @return {@code true} if an email address of {@code c} contains
+     * {@code key}
+     */
+    public boolean matches(Contact c, String key) {
+        for (String email : c.getEmail()) {
+            if (normalizeEmail(email).contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the normalized form of an email address, ignoring the empty
+     * slots ("-").
+     *
+     * @param email The email address, or {@code null}
+     *
+     * @return The address without surrounding spaces, in lower case and
+     * without accents, or an empty string for an empty slot
+     */
+    public static String normalizeEmail(String email) {
+        if (email == null) {
+            return "";
+        }
+        String trimmed = email.trim();
+        return trimmed.equals("-") ? "" : Contact.normalize(trimmed);
+    }
+
+    /**
+     * Tells whether one of some addresses contains a string.
+     *
+     * @param emails The normalized addresses
+     * @param key The normalized string
+     *
+     * @return {@code true} if an address contains {@code key}
+     */
+    private static boolean contains(String[] emails, String key) {
+        for (String email : emails) {
+            if (email.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the distinct trigrams of some strings, each packed in a
+     * {@code long} as three 16-bit characters.
+     *
+     * @param strings The strings
+     *
+     * @return The trigrams
+     */
+    private static Set<Long> trigramsOf(String[] strings) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (String s : strings) {
+            for (int i = 0; i + 3 <= s.length(); i++) {
+                trigrams.add(((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2));
+            }
+        }
+        return trigrams;
+    }
+
+    /**
+     * A posting list: the sorted identifiers of the contacts having a
+     * trigram. The identifiers of the contacts are not negative, so a removed
+     * identifier is marked by setting its sign bit, and the list stays sorted
+     * by the identifiers without their mark.
+     */
+    private static final class Postings {
+
+        /**
+         * The mark of a removed identifier.
+         */
+        private static final long REMOVED = Long.MIN_VALUE;
+
+        /**
+         * The identifiers, sorted in the first {@code size} slots, some of
+         * them marked as removed.
+         */
+        private long[] ids = new long[4];
+
+        /**
+         * The number of identifiers, including the removed ones.
+         */
+        private int size;
+
+        /**
+         * The number of identifiers not removed.
+         */
+        private int live;
+
+        /**
+         * Adds an identifier in its sorted position, or unmarks it if it has
+         * been removed. The identifiers of new contacts are increasing, so
+         * this is usually an append.
+         *
+         * @param id The identifier, not already in the list
+         */
+        void add(long id) {
+            live++;
+            if (size > 0 && (ids[size - 1] & ~REMOVED) >= id) {
+                int position = this.indexOf(id, 0);
+                if (position >= 0) {
+                    ids[position] = id;
+                    return;
+                }
+                position = -position - 1;
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                System.arraycopy(ids, position, ids, position + 1, size - position);
+                ids[position] = id;
+                size++;
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        /**
+         * Marks an identifier as removed, and drops the removed identifiers
+         * when they are half of the list.
+         *
+         * @param id The identifier
+         *
+         * @return {@code true} if the identifier was in the list
+         */
+        boolean remove(long id) {
+            int position = this.indexOf(id, 0);
+            if (position < 0 || ids[position] < 0) {
+                return false;
+            }
+            ids[position] |= REMOVED;
+            live--;
+            if (live * 2 < size) {
+                this.compact();
+            }
+            return true;
+        }
+
+        /**
+         * Returns the identifiers not removed.
+         *
+         * @return A new sorted array of the {@code live} identifiers
+         */
+        long[] liveIds() {
+            long[] result = new long[live];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (ids[i] >= 0) {
+                    result[count++] = ids[i];
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Keeps only the candidates that are in this list and not removed.
+         * Both are sorted, so each candidate is searched from the position of
+         * the previous one.
+         *
+         * @param candidates The sorted candidates, filtered in place
+         * @param count The number of candidates
+         *
+         * @return The number of candidates kept
+         */
+        int retain(long[] candidates, int count) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < count && from < size; i++) {
+                int position = this.indexOf(candidates[i], from);
+                if (position >= 0) {
+                    if (ids[position] >= 0) {
+                        candidates[kept++] = candidates[i];
+                    }
+                    from = position + 1;
+                } else {
+                    from = -position - 1;
+                }
+            }
+            return kept;
+        }
+
+        /**
+         * Finds an identifier by binary search, ignoring the marks of the
+         * removed identifiers.
+         *
+         * @param id The identifier
+         * @param from The first position searched
+         *
+         * @return The position of the identifier, marked or not, or
+         * {@code -(insertion point) - 1} if it is not in the list
+         */
+        private int indexOf(long id, int from) {
+            int low = from;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long value = ids[mid] & ~REMOVED;
+                if (value < id) {
+                    low = mid + 1;
+                } else if (value > id) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -low - 1;
+        }
+
+        /**
+         * Drops the removed identifiers and shrinks the array if it is
+         * mostly empty.
+         */
+        private void compact() {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (ids[i] >= 0) {
+                    ids[count++] = ids[i];
+                }
+            }
+            size = count;
+            if (size > 4 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, ids.length / 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,519 @@
+package it.unisa.diem.gruppo9.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * @file FuzzyIndex.java
+ * @brief A symmetric-delete index of the words of the contacts, for a search
+ * that tolerates typos.
+ *
+ * <p>
+ * The words of the name and of the surname of the contacts are normalized
+ * (see {@link Contact#normalize(String)}) and indexed as terms. As in the
+ * SymSpell algorithm, every term is also indexed under the strings obtained
+ * by deleting up to {@code maxDistance} characters from its first
+ * {@code prefixLength} characters. Two words within an edit distance have a
+ * common such deletion, so the terms close to a searched word are found by
+ * looking up its own deletions, a number that depends only on its length,
+ * and only those terms are scored. A term of seven characters or more has 29
+ * deletions with the default settings, each a map entry with a set of terms,
+ * which is affordable because the names and surnames are shared by many
+ * contacts and their distinct words are comparatively few.
+ * </p>
+ * <p>
+ * The user parts of the email addresses are nearly unique per contact, so
+ * they are not indexed here: an index built with an {@link EmailIndex}
+ * matches them through its trigrams (see
+ * {@link EmailIndex#searchSimilar(String, int)}), with at most one edit, and
+ * scores the user parts of the candidates and their words as terms.
+ * </p>
+ * <p>
+ * The candidates are scored with the optimal string alignment distance (the
+ * edit distance counting a transposition as one edit), both to the whole term
+ * and to its closest prefix, so that "Ross" finds "Rossi" with no errors. The
+ * terms that start with the searched word are looked up in a sorted map too.
+ * The allowed distance grows with the length of the word: none up to two
+ * characters, one up to five, two beyond.
+ * </p>
+ * <p>
+ * As in {@link PrefixIndex}, the terms under which a contact has been indexed
+ * are remembered, so that it can be removed correctly even if its attributes
+ * have been modified in the meantime.
+ * </p>
+ *
+ * @see ContactManager.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+public class FuzzyIndex {
+
+    /**
+     * The default maximum edit distance.
+     */
+    public static final int DEFAULT_MAX_DISTANCE = 2;
+
+    /**
+     * The default number of leading characters of a term whose deletions are
+     * indexed.
+     */
+    public static final int DEFAULT_PREFIX_LENGTH = 7;
+
+    /**
+     * The maximum number of terms starting with a searched word that are
+     * scored, in alphabetical order.
+     */
+    private static final int MAX_COMPLETIONS = 256;
+
+    /**
+     * The maximum edit distance of a match.
+     */
+    private final int maxDistance;
+
+    /**
+     * The number of leading characters of a term whose deletions are indexed.
+     */
+    private final int prefixLength;
+
+    /**
+     * The contacts having each term.
+     */
+    private final NavigableMap<String, Set<Contact>> terms;
+
+    /**
+     * The terms indexed under each deletion of their leading characters,
+     * including the leading characters themselves.
+     */
+    private final Map<String, Set<String>> deletes;
+
+    /**
+     * The terms under which each contact has been indexed, by contact
+     * identifier.
+     */
+    private final Map<Long, String[]> termsById;
+
+    /**
+     * The index matching the user parts of the email addresses, or
+     * {@code null} if they are not searched.
+     */
+    private final EmailIndex emails;
+
+    /**
+     * Creates a new, empty {@code FuzzyIndex} with the default maximum
+     * distance and prefix length, searching only the names and surnames.
+     *
+     * @post The index contains no contacts.
+     */
+    public FuzzyIndex() {
+        this(DEFAULT_MAX_DISTANCE, DEFAULT_PREFIX_LENGTH, null);
+    }
+
+    /**
+     * Creates a new, empty {@code FuzzyIndex} with the default maximum
+     * distance and prefix length, searching the email addresses through an
+     * {@link EmailIndex}.
+     * <p>
+     * The contacts are not added to {@code emails} by this index: the caller
+     * keeps it up to date with the same contacts.
+     * </p>
+     *
+     * @post The index contains no contacts.
+     *
+     * @param emails The index of the email addresses of the same contacts
+     */
+    public FuzzyIndex(EmailIndex emails) {
+        this(DEFAULT_MAX_DISTANCE, DEFAULT_PREFIX_LENGTH, emails);
+    }
+
+    /**
+     * Creates a new, empty {@code FuzzyIndex} searching only the names and
+     * surnames.
+     *
+     * @pre {@code maxDistance >= 0} and {@code prefixLength > maxDistance}
+     *
+     * @post The index contains no contacts.
+     *
+     * @param maxDistance The maximum edit distance of a match
+     * @param prefixLength The number of leading characters of a term whose
+     * deletions are indexed
+     */
+    public FuzzyIndex(int maxDistance, int prefixLength) {
+        this(maxDistance, prefixLength, null);
+    }
+
+    /**
+     * Creates a new, empty {@code FuzzyIndex}.
+     *
+     * @pre {@code maxDistance >= 0} and {@code prefixLength > maxDistance}
+     *
+     * @post The index contains no contacts.
+     *
+     * @param maxDistance The maximum edit distance of a match
+     * @param prefixLength The number of leading characters of a term whose
+     * deletions are indexed
+     * @param emails The index of the email addresses of the same contacts,
+     * or {@code null}
+     */
+    public FuzzyIndex(int maxDistance, int prefixLength, EmailIndex emails) {
+        this.maxDistance = maxDistance;
+        this.prefixLength = prefixLength;
+        this.emails = emails;
+        terms = new TreeMap<>();
+        deletes = new HashMap<>();
+        termsById = new HashMap<>();
+    }
+
+    /**
+     * Indexes a contact under its terms.
+     *
+     * @pre {@code c != null} and {@code c} is not already indexed.
+     *
+     * @param c The contact to be indexed
+     */
+    public void add(Contact c) {
+        String[] keys = termsOf(c);
+        termsById.put(c.getId(), keys);
+        for (String term : keys) {
+            Set<Contact> owners = terms.get(term);
+            if (owners == null) {
+                owners = new LinkedHashSet<>();
+                terms.put(term, owners);
+                for (String variant : this.variantsOf(term, maxDistance)) {
+                    deletes.computeIfAbsent(variant, v -> new HashSet<>()).add(term);
+                }
+            }
+            owners.add(c);
+        }
+    }
+
+    /**
+     * Removes a contact from the index.
+     *
+     * @param c The contact to be removed
+     */
+    public void remove(Contact c) {
+        String[] keys = termsById.remove(c.getId());
+        if (keys == null) {
+            return;
+        }
+        for (String term : keys) {
+            Set<Contact> owners = terms.get(term);
+            if (owners == null || !owners.remove(c) || !owners.isEmpty()) {
+                continue;
+            }
+            terms.remove(term);
+            for (String variant : this.variantsOf(term, maxDistance)) {
+                Set<String> indexed = deletes.get(variant);
+                if (indexed != null && indexed.remove(term) && indexed.isEmpty()) {
+                    deletes.remove(variant);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the contacts closest to a search string.
+     * <p>
+     * Every word of {@code s} must match a term of the contact. A contact is
+     * ranked by the sum of the distances of its best matching terms; at equal
+     * distance a whole term ranks before a term that only starts like the
+     * word, and the ties are broken by {@code order}.
+     * </p>
+     *
+     * @param s The search string, e.g. "Rosi"
+     * @param k The maximum number of contacts returned
+     * @param order The order of the contacts at equal distance
+     *
+     * @return At most {@code k} contacts, best first
+     */
+    public List<Contact> search(String s, int k, Comparator<Contact> order) {
+        return best(this.scores(s), k, order);
+    }
+
+    /**
+     * Scores the contacts for a search string, without ranking them, so that
+     * the index is only needed for this step (see
+     * {@link #best(Map, int, Comparator)}).
+     *
+     * @param s The search string
+     *
+     * @return The score of each contact whose terms match every word of
+     * {@code s}: twice the sum of the distances, plus one if a term only
+     * starts like its word
+     */
+    public Map<Contact, Integer> scores(String s) {
+        String normalized = s == null ? "" : Contact.normalize(s).trim();
+        if (normalized.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<Contact, Integer> scores = null;
+        for (String word : normalized.split("\\s+")) {
+            Map<Contact, Integer> wordScores = this.scoreWord(word);
+            if (scores == null) {
+                scores = wordScores;
+                continue;
+            }
+            Iterator<Map.Entry<Contact, Integer>> it = scores.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Contact, Integer> entry = it.next();
+                Integer score = wordScores.get(entry.getKey());
+                if (score == null) {
+                    it.remove();
+                } else {
+                    entry.setValue(combine(entry.getValue(), score));
+                }
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Ranks scored contacts, as {@link #search(String, int, Comparator)}
+     * does. It does not use the index.
+     *
+     * @param scores The scores returned by {@link #scores(String)}
+     * @param k The maximum number of contacts returned
+     * @param order The order of the contacts at equal score
+     *
+     * @return At most {@code k} contacts, best first
+     */
+    public static List<Contact> best(Map<Contact, Integer> scores, int k, Comparator<Contact> order) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        Comparator<Map.Entry<Contact, Integer>> ranking = Comparator
+                .comparing((Map.Entry<Contact, Integer> entry) -> entry.getValue())
+                .thenComparing(Map.Entry::getKey, order);
+        PriorityQueue<Map.Entry<Contact, Integer>> best = new PriorityQueue<>(k + 1, ranking.reversed());
+        for (Map.Entry<Contact, Integer> entry : scores.entrySet()) {
+            best.add(entry);
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+        List<Contact> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().getKey());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Returns the maximum edit distance allowed for a word: none up to two
+     * characters, one up to five, two beyond, and at most
+     * {@code maxDistance}.
+     *
+     * @param word The normalized word
+     *
+     * @return The maximum distance of its matches
+     */
+    private int distanceFor(String word) {
+        return Math.min(maxDistance, word.length() / 3);
+    }
+
+    /**
+     * Scores the contacts having a term close to a word.
+     *
+     * @param word The normalized word
+     *
+     * @return The best score of each matching contact
+     */
+    private Map<Contact, Integer> scoreWord(String word) {
+        int distance = this.distanceFor(word);
+        Set<String> candidates = new HashSet<>();
+        for (String variant : this.variantsOf(word, distance)) {
+            Set<String> indexed = deletes.get(variant);
+            if (indexed != null) {
+                candidates.addAll(indexed);
+            }
+        }
+        int completions = 0;
+        for (String term : terms.tailMap(word, true).keySet()) {
+            if (!term.startsWith(word) || completions++ == MAX_COMPLETIONS) {
+                break;
+            }
+            candidates.add(term);
+        }
+        Map<Contact, Integer> scores = new HashMap<>();
+        for (String term : candidates) {
+            int score = score(word, term, distance);
+            if (score >= 0) {
+                for (Contact c : terms.get(term)) {
+                    scores.merge(c, score, Math::min);
+                }
+            }
+        }
+        if (emails != null && word.length() >= 3) {
+            int emailDistance = Math.min(1, distance);
+            for (Contact c : emails.searchSimilar(word, emailDistance)) {
+                for (String term : emailTermsOf(emails.addressesOf(c))) {
+                    int score = score(word, term, emailDistance);
+                    if (score >= 0) {
+                        scores.merge(c, score, Math::min);
+                    }
+                }
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Returns the deletions of up to {@code distance} characters of the
+     * leading characters of a string, including the leading characters
+     * themselves. The empty string is not a deletion.
+     *
+     * @param s The string
+     * @param distance The maximum number of deleted characters
+     *
+     * @return The deletions
+     */
+    private Set<String> variantsOf(String s, int distance) {
+        Set<String> variants = new HashSet<>();
+        String prefix = s.length() > prefixLength ? s.substring(0, prefixLength) : s;
+        variants.add(prefix);
+        addDeletes(prefix, distance, variants);
+        return variants;
+    }
+
+    /**
+     * Adds the deletions of up to {@code distance} characters of a string.
+     *
+     * @param s The string
+     * @param distance The maximum number of deleted characters
+     * @param variants The set the deletions are added to
+     */
+    private static void addDeletes(String s, int distance, Set<String> variants) {
+        if (distance == 0 || s.length() <= 1) {
+            return;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            String variant = s.substring(0, i) + s.substring(i + 1);
+            if (variants.add(variant)) {
+                addDeletes(variant, distance - 1, variants);
+            }
+        }
+    }
+
+    /**
+     * Scores a term for a word: twice the optimal string alignment distance
+     * of the word to the term or to its closest prefix, plus one if only a
+     * prefix is that close.
+     *
+     * @param word The normalized word
+     * @param term The term
+     * @param distance The maximum distance
+     *
+     * @return The score, or -1 if the term is farther than {@code distance}
+     */
+    private static int score(String word, String term, int distance) {
+        int n = word.length();
+        int m = term.length();
+        int[][] d = new int[n + 1][m + 1];
+        for (int i = 0; i <= n; i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= m; j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            for (int j = 1; j <= m; j++) {
+                int cost = word.charAt(i - 1) == term.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && word.charAt(i - 1) == term.charAt(j - 2)
+                        && word.charAt(i - 2) == term.charAt(j - 1)) {
+                    value = Math.min(value, d[i - 2][j - 2] + 1);
+                }
+                d[i][j] = value;
+            }
+        }
+        int full = d[n][m];
+        int best = full;
+        for (int j = 0; j < m; j++) {
+            best = Math.min(best, d[n][j]);
+        }
+        if (best > distance) {
+            return -1;
+        }
+        return best * 2 + (full > best ? 1 : 0);
+    }
+
+    /**
+     * Combines the scores of two words of a search.
+     *
+     * @param a The first score
+     * @param b The second score
+     *
+     * @return The sum of the distances, marked as a prefix match if either is
+     */
+    private static int combine(int a, int b) {
+        return ((a >> 1) + (b >> 1)) * 2 + ((a | b) & 1);
+    }
+
+    /**
+     * Returns the terms of a contact: the words of its normalized name and
+     * surname.
+     *
+     * @param c The contact
+     *
+     * @return The distinct terms
+     */
+    private static String[] termsOf(Contact c) {
+        Set<String> keys = new LinkedHashSet<>();
+        addWords(c.getNameKey(), "\\s+", keys);
+        addWords(c.getSurnameKey(), "\\s+", keys);
+        return keys.toArray(new String[0]);
+    }
+
+    /**
+     * Returns the terms of some email addresses: their user parts with their
+     * words.
+     *
+     * @param addresses The normalized addresses
+     *
+     * @return The distinct terms
+     */
+    private static Set<String> emailTermsOf(String[] addresses) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String normalized : addresses) {
+            int at = normalized.indexOf('@');
+            String user = at < 0 ? normalized : normalized.substring(0, at);
+            if (!user.isEmpty()) {
+                keys.add(user);
+                addWords(user, "[\\s._\\-+]+", keys);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Adds the non empty words of a string.
+     *
+     * @param s The string, or {@code null}
+     * @param separators The regular expression of the separators
+     * @param keys The set the words are added to
+     */
+    private static void addWords(String s, String separators, Set<String> keys) {
+        if (s == null) {
+            return;
+        }
+        for (String word : s.split(separators)) {
+            if (!word.isEmpty()) {
+                keys.add(word);
+            }
+        }
+    }
+}
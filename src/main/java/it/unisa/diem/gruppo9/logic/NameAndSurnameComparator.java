@@ -1,6 +1,9 @@
 package it.unisa.diem.gruppo9.logic;
 
+import java.text.Collator;
 import java.util.Comparator;
+import java.util.Locale;
+import java.util.Objects;
 
 /**
  * @file NameAndSurnameComparator.java
@@ -23,6 +26,13 @@ import java.util.Comparator;
  * An instance of this class is needed every time an operation which modifies
  * the content of the user's observed list of contacts is performed.
  * <p>
+ * A comparator created for a {@link Locale} uses the rules of that language
+ * (e.g. the Italian ordering of accented letters) instead of the normalized
+ * keys. Each contact computes its {@link java.text.CollationKey} once and
+ * caches it as a byte array until it is edited, so the comparisons are plain
+ * byte comparisons.
+ * </p>
+ * <p>
  *
  * </p> @see Comparator
  *
@@ -32,13 +42,55 @@ import java.util.Comparator;
  */
 public class NameAndSurnameComparator implements Comparator<Contact> {
 
+    /**
+     * The locale of the collation mode, or {@code null} if the normalized keys
+     * are compared.
+     */
+    private final Locale locale;
+
+    /**
+     * The collator of the collation mode, or {@code null} if the normalized
+     * keys are compared.
+     */
+    private final Collator collator;
+
+    /**
+     * Creates a comparator on the normalized keys of the contacts.
+     *
+     * @post The comparator ignores case and accents.
+     */
+    public NameAndSurnameComparator() {
+        this.locale = null;
+        this.collator = null;
+    }
+
+    /**
+     * Creates a comparator that orders the contacts with the collation rules
+     * of {@code locale}.
+     *
+     * @pre {@code locale != null}
+     *
+     * @post The comparator ignores case but, where the language does, takes
+     * accents into account.
+     *
+     * @param locale the language whose ordering rules are used.
+     */
+    public NameAndSurnameComparator(Locale locale) {
+        this.locale = Objects.requireNonNull(locale);
+        this.collator = Collator.getInstance(locale);
+        this.collator.setStrength(Collator.SECONDARY);
+    }
+
     /**
      * Compares two {@code Contact} objects by their name and surname.
      * <p>
      * This method compares the {@code name} attributes of the two contacts
      * first. If the names are identical, it proceeds to compare their
      * {@code surname} attributes. The comparison follows the natural
-     * lexicographic ordering of {@link String}.
+     * lexicographic ordering of {@link String} on the normalized keys of the
+     * contacts ({@link Contact#getNameKey()} and
+     * {@link Contact#getSurnameKey()}), so it ignores case and accents without
+     * converting the strings at every comparison.
      * </p>
      *
      * @pre A {@code NameAndSurnameComparator} instance must be declared with
@@ -72,21 +124,74 @@ public class NameAndSurnameComparator implements Comparator<Contact> {
      */
     @Override
     public int compare(Contact o1, Contact o2) {
-
-        if (o1.getSurname() == null && o2.getSurname() != null) {
-            return o1.getName().compareToIgnoreCase(o2.getSurname());
+        if (collator != null) {
+            return this.compareSortKeys(o1, o2);
         }
-        if (o2.getSurname() == null && o1.getSurname() != null) {
-            return o1.getSurname().compareToIgnoreCase(o2.getName());
+        String surname1 = o1.getSurnameKey();
+        String surname2 = o2.getSurnameKey();
+        int result = (surname1 != null ? surname1 : o1.getNameKey())
+                .compareTo(surname2 != null ? surname2 : o2.getNameKey());
+        if (result != 0) {
+            return result;
         }
-        if (o1.getSurname() == null && o2.getSurname() == null || (o1.getSurname().equals(o2.getSurname()))) {
-            if (!o1.getName().equals(o2.getName())) {
-                return o1.getName().compareToIgnoreCase(o2.getName());
-            } else {
-                return 0;
+        return o1.getNameKey().compareTo(o2.getNameKey());
+    }
+
+    /**
+     * Compares two contacts in collation mode, with the same rules as
+     * {@link #compare(Contact, Contact)} but on the cached collation keys.
+     *
+     * @param o1 the first {@code Contact} object to be compared.
+     * @param o2 the second {@code Contact} object to be compared.
+     *
+     * @return the result of the comparison.
+     */
+    private int compareSortKeys(Contact o1, Contact o2) {
+        byte[] surname1 = o1.getSurnameSortKey(collator);
+        byte[] surname2 = o2.getSurnameSortKey(collator);
+        int result = compareBytes(surname1 != null ? surname1 : o1.getNameSortKey(collator),
+                surname2 != null ? surname2 : o2.getNameSortKey(collator));
+        if (result != 0) {
+            return result;
+        }
+        return compareBytes(o1.getNameSortKey(collator), o2.getNameSortKey(collator));
+    }
+
+    /**
+     * Compares two byte arrays lexicographically, as unsigned values.
+     *
+     * @param a the first array.
+     * @param b the second array.
+     *
+     * @return a negative integer, zero, or a positive integer as {@code a} is
+     * less than, equal to, or greater than {@code b}.
+     */
+    private static int compareBytes(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i]) {
+                return (a[i] & 0xff) - (b[i] & 0xff);
             }
         }
+        return a.length - b.length;
+    }
 
-        return o1.getSurname().compareToIgnoreCase(o2.getSurname());
+    /**
+     * Two comparators are equal if they define the same order, i.e. they use
+     * the same locale or both compare the normalized keys.
+     *
+     * @param obj the object to be compared with.
+     *
+     * @return {@code true} if {@code obj} defines the same order.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof NameAndSurnameComparator
+                && Objects.equals(locale, ((NameAndSurnameComparator) obj).locale);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(locale);
     }
 }
@@ -0,0 +1,862 @@
+package it.unisa.diem.gruppo9.logic;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+
+/**
+ * @file OffHeapContactStore.java
+ * @brief A contact store that keeps the attributes of the contacts outside
+ * the Java heap.
+ *
+ * <p>
+ * The {@code OffHeapContactStore} writes each contact in the packed format of
+ * {@link Contact#toPacked()}, preceded by its identifier, its length and its
+ * normalized sort keys, into direct {@code ByteBuffer} slabs. The heap only
+ * holds the position of each record, as a {@code long} in the order of the
+ * normalized sort keys and once more in the order of the normalized names,
+ * so a book of millions of contacts takes a few bytes of
+ * heap per contact and does not lengthen the garbage collection pauses.
+ * </p>
+ * <p>
+ * The additions, the lookups and the searches compare the keys in the slabs
+ * directly, so they do not recreate the contacts they pass over. A search
+ * finds the range of the records whose first sort key (the surname, or the
+ * name of a contact without a surname) starts with the searched string by
+ * binary search, and the range of the records whose name does in the name
+ * order, so it only recreates the contacts it returns.
+ * </p>
+ * <p>
+ * The store is a standalone building block with a reduced scope: it is not
+ * used by {@link ContactManager} and provides only a subset of its
+ * operations. The contacts are always sorted by their normalized keys, as by
+ * a {@link NameAndSurnameComparator} without locale, since the keys are
+ * compared in the slabs: a locale set with
+ * {@link ContactManager#setSortLocale(java.util.Locale)} is not applied.
+ * There is no duplicate detection ({@link DuplicatePolicy}), no search by
+ * phone number, email address or with typos, and a contact edited after it
+ * has been added is not moved.
+ * </p>
+ * <p>
+ * The operations it provides have the same semantics as in
+ * {@link ContactManager}: a contact is added at the position that keeps the
+ * store sorted, after the contacts comparing equal to it, a contact is
+ * identified by its {@link Contact#getId()} when deleted, and the search
+ * matches a prefix of the normalized name or surname. The contacts returned
+ * are recreated from their records with their original identifier, and the
+ * ones returned recently are cached so that the same row keeps returning the
+ * same object.
+ * </p>
+ * <p>
+ * The space of a deleted record is not reused: when the deleted records take
+ * more than half of the slabs, {@link #compact()} copies the live records
+ * into new slabs and the old ones are released.
+ * </p>
+ *
+ * @see Contact.java
+ * @see ContactManager.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-17
+ */
+public class OffHeapContactStore {
+
+    /**
+     * The default size of a slab.
+     */
+    public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    /**
+     * The offset in a record of the length of the packed attributes, after
+     * the identifier.
+     */
+    private static final int PACKED_LENGTH = Long.BYTES;
+
+    /**
+     * The offset in a record of the length of the first sort key.
+     */
+    private static final int PRIMARY_LENGTH = PACKED_LENGTH + Integer.BYTES;
+
+    /**
+     * The offset in a record of the length of the name key.
+     */
+    private static final int NAME_LENGTH = PRIMARY_LENGTH + Character.BYTES;
+
+    /**
+     * The size of the record header: the identifier, the length of the
+     * packed attributes and the lengths of the keys, which follow it as
+     * UTF-16 characters before the packed attributes.
+     */
+    private static final int RECORD_HEADER = NAME_LENGTH + Character.BYTES;
+
+    /**
+     * The number of recently returned contacts that are cached.
+     */
+    private static final int CACHE_SIZE = 1024;
+
+    /**
+     * The size of a slab.
+     */
+    private final int slabSize;
+
+    /**
+     * The slabs holding the records. The last one receives the new records.
+     */
+    private List<ByteBuffer> slabs;
+
+    /**
+     * The positions of the records, sorted by contact: the slab in the high
+     * 32 bits and the offset in the slab in the low 32 bits.
+     */
+    private long[] order;
+
+    /**
+     * The positions of the records, sorted by normalized name.
+     */
+    private long[] byName;
+
+    /**
+     * The number of contacts.
+     */
+    private int size;
+
+    /**
+     * The number of bytes of the slabs taken by deleted records.
+     */
+    private long freedBytes;
+
+    /**
+     * The number of bytes of the slabs taken by records.
+     */
+    private long usedBytes;
+
+    /**
+     * The order of the records, by normalized sort key and then by normalized
+     * name, compared as strings as {@link #compareAt(long, String, String)}
+     * does in the slabs.
+     */
+    private static final Comparator<Contact> KEY_ORDER = Comparator
+            .comparing(OffHeapContactStore::primaryKey)
+            .thenComparing(Contact::getNameKey);
+
+    /**
+     * The contacts returned recently, by identifier, least recently used
+     * first.
+     */
+    private final Map<Long, Contact> cache;
+
+    /**
+     * The contacts as an {@code ObservableList}, created on first use.
+     */
+    private ContactList list;
+
+    /**
+     * Creates an empty store with slabs of {@link #DEFAULT_SLAB_SIZE} bytes.
+     */
+    public OffHeapContactStore() {
+        this(DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Creates an empty store.
+     *
+     * @pre {@code slabSize} is larger than the largest record, about 64 KB.
+     *
+     * @param slabSize the size of the slabs.
+     */
+    public OffHeapContactStore(int slabSize) {
+        this.slabSize = slabSize;
+        this.slabs = new ArrayList<>();
+        this.order = new long[16];
+        this.byName = new long[16];
+        this.cache = new LinkedHashMap<Long, Contact>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Contact> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of contacts.
+     *
+     * @return the number of contacts in the store.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the contact at a position.
+     *
+     * @pre {@code 0 <= index < size()}
+     *
+     * @param index the position of the contact.
+     * @return the contact, recreated from its record unless it was returned
+     * recently.
+     */
+    public Contact get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return this.contactAt(order[index]);
+    }
+
+    /**
+     * Adds a contact, after the contacts that compare equal to it. A contact
+     * already in the store is not added a second time.
+     *
+     * @pre {@code c} is a valid contact whose attributes take less than 64 KB
+     * in UTF-8.
+     *
+     * @post The store contains {@code c} and is sorted.
+     *
+     * @param c the contact to be added.
+     *
+     * @throws IllegalArgumentException if the attributes of {@code c} are too
+     * large.
+     */
+    public void add(Contact c) {
+        if (c == null || this.contains(c)) {
+            return;
+        }
+        String primary = primaryKey(c);
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.compareAt(order[mid], primary, c.getNameKey()) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        long handle = this.write(c);
+        order = insert(order, size, low, handle);
+        byName = insert(byName, size, this.namePosition(c.getNameKey()), handle);
+        size++;
+        cache.put(c.getId(), c);
+        if (list != null) {
+            list.added(new int[]{low});
+        }
+    }
+
+    /**
+     * Adds a collection of contacts with a single sort and a single change
+     * notification, as {@link ContactManager#addAll(Collection)} does.
+     *
+     * @post The store contains the contacts of {@code c} and is sorted, and
+     * contacts comparing equal keep the order in which they were added.
+     *
+     * @param c the contacts to be added.
+     */
+    public void addAll(Collection<Contact> c) {
+        List<Contact> batch = new ArrayList<>(c.size());
+        Set<Long> ids = new HashSet<>();
+        for (Contact contact : c) {
+            if (contact != null && ids.add(contact.getId()) && !this.contains(contact)) {
+                batch.add(contact);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        batch.sort(KEY_ORDER);
+        long[] merged = new long[Math.max(16, size + batch.size())];
+        long[] handles = new long[batch.size()];
+        int[] added = new int[batch.size()];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (j < batch.size()) {
+            Contact next = batch.get(j);
+            if (i < size && this.compareAt(order[i], primaryKey(next), next.getNameKey()) <= 0) {
+                merged[k++] = order[i++];
+            } else {
+                added[j] = k;
+                handles[j] = this.write(next);
+                merged[k++] = handles[j];
+                cache.put(next.getId(), next);
+                j++;
+            }
+        }
+        System.arraycopy(order, i, merged, k, size - i);
+        order = merged;
+        this.mergeByName(batch, handles);
+        size += batch.size();
+        if (list != null) {
+            list.added(added);
+        }
+    }
+
+    /**
+     * Deletes a contact, identified by its {@link Contact#getId()}. The space
+     * of its record is reclaimed by the next compaction, which is started
+     * when the deleted records take more than half of the slabs.
+     *
+     * @post The store does not contain {@code c} and the order of the other
+     * contacts is unchanged.
+     *
+     * @param c the contact to be deleted.
+     */
+    public void delete(Contact c) {
+        int index = c == null ? -1 : this.indexOf(c);
+        if (index < 0) {
+            return;
+        }
+        Contact removed = list == null ? null : this.get(index);
+        long handle = order[index];
+        freedBytes += recordLength(this.slab(handle), offset(handle));
+        int namePosition = this.namePositionOf(handle);
+        System.arraycopy(order, index + 1, order, index, size - index - 1);
+        System.arraycopy(byName, namePosition + 1, byName, namePosition, size - namePosition - 1);
+        size--;
+        cache.remove(c.getId());
+        if (list != null) {
+            list.removed(index, removed);
+        }
+        if (freedBytes * 2 > usedBytes && freedBytes > slabSize) {
+            this.compact();
+        }
+    }
+
+    /**
+     * Returns the contacts whose normalized name or surname starts with the
+     * normalized form of {@code s}, as
+     * {@link ContactManager#searchContact(String)} does.
+     *
+     * @param s the search substring.
+     * @return the matching contacts, in order.
+     */
+    public List<Contact> search(String s) {
+        String key = Contact.normalize(s);
+        List<Integer> indexes = new ArrayList<>();
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.compareKey(order[mid], RECORD_HEADER, PRIMARY_LENGTH, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < size && this.keyStartsWith(order[i], RECORD_HEADER, PRIMARY_LENGTH, key); i++) {
+            indexes.add(i);
+        }
+        // the contacts matching by name and not by their first key, which
+        // are elsewhere in the order
+        for (int i = this.namePosition(key, false); i < size && this.nameStartsWith(byName[i], key); i++) {
+            if (!this.keyStartsWith(byName[i], RECORD_HEADER, PRIMARY_LENGTH, key)) {
+                indexes.add(this.indexOfHandle(byName[i]));
+            }
+        }
+        Collections.sort(indexes);
+        List<Contact> result = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            result.add(this.contactAt(order[index]));
+        }
+        return result;
+    }
+
+    /**
+     * Copies the records into new slabs, in order, leaving out the space of
+     * the deleted ones.
+     *
+     * @post No space of the slabs is taken by deleted records.
+     */
+    public void compact() {
+        List<ByteBuffer> old = slabs;
+        slabs = new ArrayList<>();
+        usedBytes = 0;
+        freedBytes = 0;
+        for (int i = 0; i < size; i++) {
+            long handle = order[i];
+            ByteBuffer oldSlab = old.get((int) (handle >>> 32));
+            ByteBuffer record = oldSlab.duplicate();
+            record.position(offset(handle));
+            record.limit(offset(handle) + recordLength(oldSlab, offset(handle)));
+            order[i] = this.allocate(record.remaining());
+            ByteBuffer target = this.slab(order[i]).duplicate();
+            target.position(offset(order[i]));
+            target.put(record);
+            // the old record, which is released, forwards to the new one
+            oldSlab.putLong(offset(handle), order[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            byName[i] = old.get((int) (byName[i] >>> 32)).getLong(offset(byName[i]));
+        }
+    }
+
+    /**
+     * Returns the number of bytes taken by the slabs outside the heap.
+     *
+     * @return the total capacity of the slabs.
+     */
+    public long getOffHeapBytes() {
+        return (long) slabs.size() * slabSize;
+    }
+
+    /**
+     * Returns the contacts as an {@code ObservableList}, e.g. for
+     * {@code TableView.setItems}. The list is read-only and reports the
+     * additions and the deletions made through the store.
+     *
+     * @return a list view of the store.
+     */
+    public ObservableList<Contact> asList() {
+        if (list == null) {
+            list = new ContactList();
+        }
+        return list;
+    }
+
+    /**
+     * Finds the position of a contact by its identifier.
+     * <p>
+     * The contacts comparing equal to {@code c} are located by binary search
+     * and only that range is compared by identifier. If {@code c} is not
+     * there (e.g. it was edited after being added) the identifiers of all the
+     * records are scanned, without recreating the contacts.
+     * </p>
+     *
+     * @param c the contact.
+     * @return its position, or -1 if it is not in the store.
+     */
+    private int indexOf(Contact c) {
+        int index = this.indexAmongEqual(primaryKey(c), c.getNameKey(), c.getId());
+        if (index >= 0) {
+            return index;
+        }
+        for (int i = 0; i < size; i++) {
+            if (this.slab(order[i]).getLong(offset(order[i])) == c.getId()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Tells whether a contact with the identifier of {@code c} is among the
+     * contacts comparing equal to it.
+     *
+     * @param c the contact.
+     * @return {@code true} if {@code c} is already stored.
+     */
+    private boolean contains(Contact c) {
+        return cache.containsKey(c.getId()) || this.indexAmongEqual(primaryKey(c), c.getNameKey(), c.getId()) >= 0;
+    }
+
+    /**
+     * Finds the position of a record among the records with the given keys,
+     * comparing only the keys and the identifiers in the slabs.
+     *
+     * @param primary the first sort key.
+     * @param name the name key.
+     * @param id the identifier of the record.
+     * @return its position, or -1 if no record with those keys has that
+     * identifier.
+     */
+    private int indexAmongEqual(String primary, String name, long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.compareAt(order[mid], primary, name) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < size && this.compareAt(order[i], primary, name) == 0; i++) {
+            if (this.slab(order[i]).getLong(offset(order[i])) == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the position in {@code order} of a record.
+     *
+     * @param handle the position of the record.
+     * @return its index in {@code order}.
+     */
+    private int indexOfHandle(long handle) {
+        ByteBuffer slab = this.slab(handle);
+        int offset = offset(handle);
+        return this.indexAmongEqual(readKey(slab, offset + RECORD_HEADER, slab.getChar(offset + PRIMARY_LENGTH)),
+                readKey(slab, offset + RECORD_HEADER + 2 * slab.getChar(offset + PRIMARY_LENGTH),
+                        slab.getChar(offset + NAME_LENGTH)),
+                slab.getLong(offset));
+    }
+
+    /**
+     * Returns the position in {@code byName} where a name is to be inserted,
+     * or where the names starting with it begin.
+     *
+     * @param name the name key.
+     * @param after {@code true} for the position after the equal names,
+     * {@code false} for the one before them.
+     * @return the position, between 0 and the number of contacts.
+     */
+    private int namePosition(String name, boolean after) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int result = this.compareKey(byName[mid], this.nameOffset(byName[mid]), NAME_LENGTH, name);
+            if (result < 0 || (after && result == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the position in {@code byName} where a name is to be inserted.
+     *
+     * @param name the name key.
+     * @return the position after the equal names.
+     */
+    private int namePosition(String name) {
+        return this.namePosition(name, true);
+    }
+
+    /**
+     * Finds the position in {@code byName} of a record, among the records
+     * with the same name.
+     *
+     * @param handle the position of the record.
+     * @return its index in {@code byName}.
+     *
+     * @throws IllegalStateException if the record is not among them, i.e.
+     * the two orders of the store are inconsistent.
+     */
+    private int namePositionOf(long handle) {
+        ByteBuffer slab = this.slab(handle);
+        int offset = offset(handle);
+        String name = readKey(slab, offset + this.nameOffset(handle), slab.getChar(offset + NAME_LENGTH));
+        for (int i = this.namePosition(name, false); i < size
+                && this.compareKey(byName[i], this.nameOffset(byName[i]), NAME_LENGTH, name) == 0; i++) {
+            if (byName[i] == handle) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Record " + Long.toHexString(handle) + " missing from the name order");
+    }
+
+    /**
+     * Merges the records of a batch into {@code byName}.
+     *
+     * @param batch the added contacts.
+     * @param handles the positions of their records.
+     */
+    private void mergeByName(List<Contact> batch, long[] handles) {
+        Integer[] sorted = new Integer[batch.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, Comparator.comparing(i -> batch.get(i).getNameKey()));
+        long[] merged = new long[Math.max(16, size + batch.size())];
+        int i = 0;
+        int k = 0;
+        for (int j : sorted) {
+            String name = batch.get(j).getNameKey();
+            while (i < size && this.compareKey(byName[i], this.nameOffset(byName[i]), NAME_LENGTH, name) <= 0) {
+                merged[k++] = byName[i++];
+            }
+            merged[k++] = handles[j];
+        }
+        System.arraycopy(byName, i, merged, k, size - i);
+        byName = merged;
+    }
+
+    /**
+     * Compares the keys of a record with the keys of a contact, as a
+     * {@link NameAndSurnameComparator} without locale compares two contacts.
+     *
+     * @param handle the position of the record.
+     * @param primary the first sort key of the contact.
+     * @param name the name key of the contact.
+     * @return a negative integer, zero, or a positive integer as the record
+     * sorts before, with or after the contact.
+     */
+    private int compareAt(long handle, String primary, String name) {
+        int result = this.compareKey(handle, RECORD_HEADER, PRIMARY_LENGTH, primary);
+        return result != 0 ? result : this.compareKey(handle, this.nameOffset(handle), NAME_LENGTH, name);
+    }
+
+    /**
+     * Compares a key of a record with a string, as {@link String#compareTo}
+     * does.
+     *
+     * @param handle the position of the record.
+     * @param keyOffset the offset of the key in the record.
+     * @param lengthOffset the offset of the length of the key in the record.
+     * @param key the string.
+     * @return the result of the comparison.
+     */
+    private int compareKey(long handle, int keyOffset, int lengthOffset, String key) {
+        ByteBuffer slab = this.slab(handle);
+        int position = offset(handle) + keyOffset;
+        int length = slab.getChar(offset(handle) + lengthOffset);
+        int common = Math.min(length, key.length());
+        for (int i = 0; i < common; i++) {
+            char ch = slab.getChar(position + 2 * i);
+            if (ch != key.charAt(i)) {
+                return ch - key.charAt(i);
+            }
+        }
+        return length - key.length();
+    }
+
+    /**
+     * Tells whether a key of a record starts with a string.
+     *
+     * @param handle the position of the record.
+     * @param keyOffset the offset of the key in the record.
+     * @param lengthOffset the offset of the length of the key in the record.
+     * @param prefix the string.
+     * @return {@code true} if the key starts with {@code prefix}.
+     */
+    private boolean keyStartsWith(long handle, int keyOffset, int lengthOffset, String prefix) {
+        ByteBuffer slab = this.slab(handle);
+        int position = offset(handle) + keyOffset;
+        if (slab.getChar(offset(handle) + lengthOffset) < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (slab.getChar(position + 2 * i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether the name key of a record starts with a string.
+     *
+     * @param handle the position of the record.
+     * @param prefix the string.
+     * @return {@code true} if the name key starts with {@code prefix}.
+     */
+    private boolean nameStartsWith(long handle, String prefix) {
+        return this.keyStartsWith(handle, this.nameOffset(handle), NAME_LENGTH, prefix);
+    }
+
+    /**
+     * Returns the offset of the name key in a record.
+     *
+     * @param handle the position of the record.
+     * @return the offset, after the first sort key.
+     */
+    private int nameOffset(long handle) {
+        return RECORD_HEADER + 2 * this.slab(handle).getChar(offset(handle) + PRIMARY_LENGTH);
+    }
+
+    /**
+     * Returns the contact of a record, from the cache or recreated.
+     *
+     * @param handle the position of the record.
+     * @return the contact.
+     */
+    private Contact contactAt(long handle) {
+        ByteBuffer slab = this.slab(handle);
+        int offset = offset(handle);
+        long id = slab.getLong(offset);
+        Contact c = cache.get(id);
+        if (c == null) {
+            byte[] packed = new byte[slab.getInt(offset + PACKED_LENGTH)];
+            ByteBuffer record = slab.duplicate();
+            record.position(offset + this.nameOffset(handle) + 2 * slab.getChar(offset + NAME_LENGTH));
+            record.get(packed);
+            c = new Contact(id, packed);
+            cache.put(id, c);
+        }
+        return c;
+    }
+
+    /**
+     * Writes the record of a contact.
+     *
+     * @param c the contact.
+     * @return the position of the record.
+     *
+     * @throws IllegalArgumentException if the attributes of {@code c} are too
+     * large.
+     */
+    private long write(Contact c) {
+        byte[] packed = c.toPacked();
+        String primary = primaryKey(c);
+        String name = c.getNameKey();
+        if (packed == null || primary.length() > Character.MAX_VALUE || name.length() > Character.MAX_VALUE) {
+            throw new IllegalArgumentException("Contact too large to be stored");
+        }
+        long handle = this.allocate(RECORD_HEADER + 2 * (primary.length() + name.length()) + packed.length);
+        ByteBuffer slab = this.slab(handle).duplicate();
+        slab.position(offset(handle));
+        slab.putLong(c.getId());
+        slab.putInt(packed.length);
+        slab.putChar((char) primary.length());
+        slab.putChar((char) name.length());
+        for (int i = 0; i < primary.length(); i++) {
+            slab.putChar(primary.charAt(i));
+        }
+        for (int i = 0; i < name.length(); i++) {
+            slab.putChar(name.charAt(i));
+        }
+        slab.put(packed);
+        return handle;
+    }
+
+    /**
+     * Reserves space for a record at the end of the last slab, or in a new
+     * slab if it does not fit.
+     *
+     * @param length the size of the record.
+     * @return the position of the reserved space.
+     */
+    private long allocate(int length) {
+        ByteBuffer last = slabs.isEmpty() ? null : slabs.get(slabs.size() - 1);
+        if (last == null || last.remaining() < length) {
+            last = ByteBuffer.allocateDirect(slabSize);
+            slabs.add(last);
+        }
+        int offset = last.position();
+        last.position(offset + length);
+        usedBytes += length;
+        return (long) (slabs.size() - 1) << 32 | offset;
+    }
+
+    /**
+     * Inserts a record position in an array of positions.
+     *
+     * @param handles the positions.
+     * @param count the number of positions in {@code handles}.
+     * @param index the index of the new position.
+     * @param handle the position of the record.
+     * @return the array of positions, grown if it was full.
+     */
+    private static long[] insert(long[] handles, int count, int index, long handle) {
+        if (count == handles.length) {
+            handles = Arrays.copyOf(handles, count * 2);
+        }
+        System.arraycopy(handles, index, handles, index + 1, count - index);
+        handles[index] = handle;
+        return handles;
+    }
+
+    /**
+     * Returns the first sort key of a contact, as compared by a
+     * {@link NameAndSurnameComparator} without locale.
+     *
+     * @param c the contact.
+     * @return the surname key, or the name key if there is no surname.
+     */
+    private static String primaryKey(Contact c) {
+        return c.getSurnameKey() != null ? c.getSurnameKey() : c.getNameKey();
+    }
+
+    /**
+     * Reads a key of a record.
+     *
+     * @param slab the slab of the record.
+     * @param position the position of the key in the slab.
+     * @param length the number of characters of the key.
+     * @return the key.
+     */
+    private static String readKey(ByteBuffer slab, int position, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = slab.getChar(position + 2 * i);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns the size of a record.
+     *
+     * @param slab the slab of the record.
+     * @param offset the offset of the record in the slab.
+     * @return the size of the header, the keys and the packed attributes.
+     */
+    private static int recordLength(ByteBuffer slab, int offset) {
+        return RECORD_HEADER + 2 * (slab.getChar(offset + PRIMARY_LENGTH) + slab.getChar(offset + NAME_LENGTH))
+                + slab.getInt(offset + PACKED_LENGTH);
+    }
+
+    /**
+     * Returns the slab of a record.
+     *
+     * @param handle the position of the record.
+     * @return its slab.
+     */
+    private ByteBuffer slab(long handle) {
+        return slabs.get((int) (handle >>> 32));
+    }
+
+    /**
+     * Returns the offset of a record in its slab.
+     *
+     * @param handle the position of the record.
+     * @return its offset.
+     */
+    private static int offset(long handle) {
+        return (int) handle;
+    }
+
+    /**
+     * The read-only {@code ObservableList} view of the store.
+     */
+    private final class ContactList extends ObservableListBase<Contact> {
+
+        @Override
+        public Contact get(int index) {
+            return OffHeapContactStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Reports the addition of contacts.
+         *
+         * @param indexes the positions of the added contacts, increasing.
+         */
+        void added(int[] indexes) {
+            this.beginChange();
+            for (int index : indexes) {
+                this.nextAdd(index, index + 1);
+            }
+            this.endChange();
+        }
+
+        /**
+         * Reports the deletion of a contact.
+         *
+         * @param index the former position of the deleted contact.
+         * @param removed the deleted contact.
+         */
+        void removed(int index, Contact removed) {
+            this.beginChange();
+            this.nextRemove(index, removed);
+            this.endChange();
+        }
+    }
+}
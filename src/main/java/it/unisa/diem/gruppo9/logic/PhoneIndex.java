@@ -0,0 +1,596 @@
+package it.unisa.diem.gruppo9.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @file PhoneIndex.java
+ * @brief A reverse-lookup index of the contacts by phone number.
+ *
+ * <p>
+ * The phone numbers are indexed by their digits (see
+ * {@link #normalizeNumber(String)}), so that "+39 333 1234567" is found as
+ * "00393331234567" or "393331234567". Each distinct number is stored once and
+ * given an identifier, with the contacts that have it.
+ * </p>
+ * <p>
+ * An exact lookup is a single hash probe. The suffix and infix lookups use a
+ * suffix array: every suffix of every number is an entry of a sorted
+ * {@code long[]}, made of the identifier of the number and of the offset of
+ * the suffix in it, so the suffixes starting with the searched digits are
+ * adjacent and are found by binary search, in logarithmic time plus the
+ * number of matches. A suffix lookup takes the matches that end the number,
+ * an infix lookup takes them all. The entries cost 8 bytes each, instead of a
+ * {@code String} and a map entry per suffix.
+ * </p>
+ * <p>
+ * The index is maintained incrementally. The suffixes of the numbers added
+ * one at a time are inserted in a small sorted array that is searched too and
+ * is merged into the main one when it grows too large, while bulk additions
+ * are sorted and merged at once. The numbers no contact has any more are
+ * skipped by the lookups and dropped when they are too many. As in
+ * {@link PrefixIndex}, the numbers under which a contact has been indexed are
+ * remembered, so that it can be removed correctly even if its attributes have
+ * been modified in the meantime.
+ * </p>
+ *
+ * @see ContactManager.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+public class PhoneIndex {
+
+    /**
+     * The number of bits of an entry that hold the offset of the suffix.
+     */
+    private static final int OFFSET_BITS = 8;
+
+    /**
+     * The maximum number of digits of an indexed number. Longer numbers are
+     * indexed by their last digits.
+     */
+    private static final int MAX_DIGITS = (1 << OFFSET_BITS) - 1;
+
+    /**
+     * The minimum size of the pending array before it is merged.
+     */
+    private static final int MIN_PENDING = 1024;
+
+    /**
+     * The identifier of each distinct number.
+     */
+    private final Map<String, Integer> idByNumber;
+
+    /**
+     * The distinct numbers, by identifier.
+     */
+    private final List<String> numbers;
+
+    /**
+     * The contacts that have each number, by identifier. An empty set marks a
+     * number whose suffixes are dead.
+     */
+    private final List<Set<Contact>> contactsByNumber;
+
+    /**
+     * The numbers under which each contact has been indexed, by contact
+     * identifier.
+     */
+    private final Map<Long, String[]> numbersById;
+
+    /**
+     * The sorted suffix entries.
+     */
+    private long[] suffixes;
+
+    /**
+     * The number of valid entries of {@code suffixes}.
+     */
+    private int size;
+
+    /**
+     * The sorted suffix entries not merged into {@code suffixes} yet.
+     */
+    private long[] pending;
+
+    /**
+     * The number of valid entries of {@code pending}.
+     */
+    private int pendingSize;
+
+    /**
+     * The number of entries, in both arrays, of numbers no contact has.
+     */
+    private int dead;
+
+    /**
+     * Creates a new, empty {@code PhoneIndex}.
+     *
+     * @post The index contains no contacts.
+     */
+    public PhoneIndex() {
+        idByNumber = new HashMap<>();
+        numbers = new ArrayList<>();
+        contactsByNumber = new ArrayList<>();
+        numbersById = new HashMap<>();
+        suffixes = new long[0];
+        pending = new long[MIN_PENDING];
+    }
+
+    /**
+     * Indexes a contact under its phone numbers.
+     *
+     * @pre {@code c != null} and {@code c} is not already indexed.
+     *
+     * @param c The contact to be indexed
+     */
+    public void add(Contact c) {
+        List<Long> fresh = new ArrayList<>();
+        this.index(c, fresh);
+        for (long entry : fresh) {
+            this.insertPending(entry);
+        }
+        if (pendingSize > Math.max(MIN_PENDING, size >>> 6)) {
+            this.mergePending();
+        }
+    }
+
+    /**
+     * Indexes contacts under their phone numbers, with a single sort and
+     * merge of their suffixes.
+     *
+     * @pre The contacts are not null and not already indexed.
+     *
+     * @param contacts The contacts to be indexed
+     */
+    public void addAll(Collection<Contact> contacts) {
+        List<Long> fresh = new ArrayList<>();
+        for (Contact c : contacts) {
+            this.index(c, fresh);
+        }
+        long[] batch = new long[fresh.size()];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = fresh.get(i);
+        }
+        this.sort(batch, 0, batch.length, 0);
+        this.mergePending();
+        suffixes = this.merge(suffixes, size, batch, batch.length);
+        size += batch.length;
+    }
+
+    /**
+     * Removes a contact from the index.
+     *
+     * @param c The contact to be removed
+     */
+    public void remove(Contact c) {
+        String[] indexed = numbersById.remove(c.getId());
+        if (indexed == null) {
+            return;
+        }
+        for (String number : indexed) {
+            int id = idByNumber.get(number);
+            Set<Contact> owners = contactsByNumber.get(id);
+            owners.remove(c);
+            if (owners.isEmpty()) {
+                dead += number.length();
+            }
+        }
+        if (dead > MIN_PENDING && dead > (size + pendingSize) / 2) {
+            this.rebuild();
+        }
+    }
+
+    /**
+     * Returns the contacts that have exactly a phone number.
+     *
+     * @param number The phone number, in any format
+     *
+     * @return The contacts with the same digits
+     */
+    public List<Contact> lookup(String number) {
+        Integer id = idByNumber.get(normalizeNumber(number));
+        if (id == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(contactsByNumber.get(id));
+    }
+
+    /**
+     * Returns the contacts with a phone number that ends with some digits,
+     * e.g. the last digits of the number of a caller.
+     *
+     * @param digits The last digits, in any format, normalized as the
+     * indexed numbers (see {@link #normalizeNumber(String)})
+     *
+     * @return The matching contacts, each once
+     */
+    public List<Contact> searchSuffix(String digits) {
+        return this.search(normalizeNumber(digits), true);
+    }
+
+    /**
+     * Returns the contacts with a phone number that contains some digits.
+     *
+     * @param digits The digits, in any format, normalized as the indexed
+     * numbers (see {@link #normalizeNumber(String)}), so that a number is
+     * found as it was written
+     *
+     * @return The matching contacts, each once
+     */
+    public List<Contact> searchInfix(String digits) {
+        return this.search(normalizeNumber(digits), false);
+    }
+
+    /**
+     * Tells whether a contact has a phone number that contains some digits,
+     * without looking at the index.
+     *
+     * @param c The contact to be checked
+     * @param digits The normalized digits
+     *
+     * @return {@code true} if a phone number of {@code c} contains
+     * {@code digits}
+     */
+    public boolean matches(Contact c, String digits) {
+        for (String phone : c.getPhoneNumber()) {
+            if (normalizeNumber(phone).contains(digits)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the digits of a phone number, without the "00" prefix of an
+     * international number, so that "+39 333 1234567" and "0039 3331234567"
+     * have the same digits.
+     *
+     * @param phone The phone number, or {@code null}
+     *
+     * @return The digits, empty if there are none
+     */
+    public static String normalizeNumber(String phone) {
+        String digits = digitsOf(phone);
+        return digits.length() > 2 && digits.startsWith("00") ? digits.substring(2) : digits;
+    }
+
+    /**
+     * Returns the digits of a string, e.g. of a part of a phone number.
+     *
+     * @param s The string, or {@code null}
+     *
+     * @return The digits of {@code s}, empty if there are none
+     */
+    public static String digitsOf(String s) {
+        if (s == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                sb.append(ch);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Adds a contact to the sets of its numbers and collects the suffix
+     * entries of the numbers that are new.
+     *
+     * @param c The contact to be indexed
+     * @param fresh The list the new entries are added to
+     */
+    private void index(Contact c, List<Long> fresh) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String phone : c.getPhoneNumber()) {
+            String number = normalizeNumber(phone);
+            if (number.length() > MAX_DIGITS) {
+                number = number.substring(number.length() - MAX_DIGITS);
+            }
+            if (!number.isEmpty()) {
+                distinct.add(number);
+            }
+        }
+        numbersById.put(c.getId(), distinct.toArray(new String[0]));
+        for (String number : distinct) {
+            Integer id = idByNumber.get(number);
+            if (id == null) {
+                id = numbers.size();
+                idByNumber.put(number, id);
+                numbers.add(number);
+                contactsByNumber.add(new LinkedHashSet<>());
+                for (int offset = 0; offset < number.length(); offset++) {
+                    fresh.add(((long) id << OFFSET_BITS) | offset);
+                }
+            } else if (contactsByNumber.get(id).isEmpty()) {
+                dead -= number.length();
+            }
+            contactsByNumber.get(id).add(c);
+        }
+    }
+
+    /**
+     * Collects the contacts of the entries whose suffix starts with
+     * {@code digits}, in both arrays.
+     *
+     * @param digits The normalized digits
+     * @param suffixOnly {@code true} to take only the suffixes equal to
+     * {@code digits}
+     *
+     * @return The matching contacts, each once
+     */
+    private List<Contact> search(String digits, boolean suffixOnly) {
+        if (digits.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Contact> result = new LinkedHashSet<>();
+        this.collect(suffixes, size, digits, suffixOnly, result);
+        this.collect(pending, pendingSize, digits, suffixOnly, result);
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Collects the contacts of the entries of a sorted array whose suffix
+     * starts with {@code digits}.
+     *
+     * @param entries The sorted entries
+     * @param length The number of valid entries
+     * @param digits The normalized digits
+     * @param suffixOnly {@code true} to take only the suffixes equal to
+     * {@code digits}
+     * @param result The set the contacts are added to
+     */
+    private void collect(long[] entries, int length, String digits, boolean suffixOnly, Set<Contact> result) {
+        for (int i = this.lowerBound(entries, length, digits); i < length; i++) {
+            long entry = entries[i];
+            String number = numbers.get((int) (entry >>> OFFSET_BITS));
+            int offset = (int) (entry & MAX_DIGITS);
+            if (!number.startsWith(digits, offset)) {
+                break;
+            }
+            if (!suffixOnly || number.length() - offset == digits.length()) {
+                result.addAll(contactsByNumber.get((int) (entry >>> OFFSET_BITS)));
+            }
+        }
+    }
+
+    /**
+     * Finds the first entry of a sorted array whose suffix is not smaller
+     * than {@code digits}.
+     *
+     * @param entries The sorted entries
+     * @param length The number of valid entries
+     * @param digits The normalized digits
+     *
+     * @return The index of the first such entry, or {@code length}
+     */
+    private int lowerBound(long[] entries, int length, String digits) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long entry = entries[mid];
+            String number = numbers.get((int) (entry >>> OFFSET_BITS));
+            int offset = (int) (entry & MAX_DIGITS);
+            if (compare(number, offset, digits) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares a suffix of a number with some digits.
+     *
+     * @param number The number
+     * @param offset The start of the suffix
+     * @param digits The digits
+     *
+     * @return A negative number, zero or a positive number as the suffix is
+     * smaller than, equal to or greater than {@code digits}
+     */
+    private static int compare(String number, int offset, String digits) {
+        int n = Math.min(number.length() - offset, digits.length());
+        for (int i = 0; i < n; i++) {
+            int diff = number.charAt(offset + i) - digits.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return (number.length() - offset) - digits.length();
+    }
+
+    /**
+     * Compares the suffixes of two entries.
+     *
+     * @param a The first entry
+     * @param b The second entry
+     *
+     * @return A negative number, zero or a positive number as the first
+     * suffix is smaller than, equal to or greater than the second
+     */
+    private int compare(long a, long b) {
+        String first = numbers.get((int) (a >>> OFFSET_BITS));
+        String second = numbers.get((int) (b >>> OFFSET_BITS));
+        int i = (int) (a & MAX_DIGITS);
+        int j = (int) (b & MAX_DIGITS);
+        while (i < first.length() && j < second.length()) {
+            int diff = first.charAt(i++) - second.charAt(j++);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return (first.length() - i) - (second.length() - j);
+    }
+
+    /**
+     * Inserts an entry in its sorted position in {@code pending}.
+     *
+     * @param entry The entry
+     */
+    private void insertPending(long entry) {
+        if (pendingSize == pending.length) {
+            pending = Arrays.copyOf(pending, pendingSize * 2);
+        }
+        int low = 0;
+        int high = pendingSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.compare(pending[mid], entry) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        System.arraycopy(pending, low, pending, low + 1, pendingSize - low);
+        pending[low] = entry;
+        pendingSize++;
+    }
+
+    /**
+     * Merges {@code pending} into {@code suffixes}.
+     */
+    private void mergePending() {
+        if (pendingSize == 0) {
+            return;
+        }
+        suffixes = this.merge(suffixes, size, pending, pendingSize);
+        size += pendingSize;
+        pendingSize = 0;
+        if (pending.length > MIN_PENDING * 4) {
+            pending = new long[MIN_PENDING];
+        }
+    }
+
+    /**
+     * Merges two sorted arrays of entries.
+     *
+     * @param a The first array
+     * @param aLength The number of valid entries of {@code a}
+     * @param b The second array
+     * @param bLength The number of valid entries of {@code b}
+     *
+     * @return The sorted entries of both arrays
+     */
+    private long[] merge(long[] a, int aLength, long[] b, int bLength) {
+        long[] merged = new long[aLength + bLength];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < aLength && j < bLength) {
+            merged[k++] = this.compare(a[i], b[j]) <= 0 ? a[i++] : b[j++];
+        }
+        System.arraycopy(a, i, merged, k, aLength - i);
+        System.arraycopy(b, j, merged, k + aLength - i, bLength - j);
+        return merged;
+    }
+
+    /**
+     * Renumbers the numbers that some contact still has and rebuilds the
+     * suffix array without the dead entries.
+     */
+    private void rebuild() {
+        List<String> liveNumbers = new ArrayList<>();
+        List<Set<Contact>> liveContacts = new ArrayList<>();
+        idByNumber.clear();
+        int entries = 0;
+        for (int id = 0; id < numbers.size(); id++) {
+            if (!contactsByNumber.get(id).isEmpty()) {
+                idByNumber.put(numbers.get(id), liveNumbers.size());
+                liveNumbers.add(numbers.get(id));
+                liveContacts.add(contactsByNumber.get(id));
+                entries += numbers.get(id).length();
+            }
+        }
+        numbers.clear();
+        numbers.addAll(liveNumbers);
+        contactsByNumber.clear();
+        contactsByNumber.addAll(liveContacts);
+        suffixes = new long[entries];
+        size = 0;
+        for (int id = 0; id < numbers.size(); id++) {
+            for (int offset = 0; offset < numbers.get(id).length(); offset++) {
+                suffixes[size++] = ((long) id << OFFSET_BITS) | offset;
+            }
+        }
+        this.sort(suffixes, 0, size, 0);
+        pendingSize = 0;
+        dead = 0;
+    }
+
+    /**
+     * Sorts entries by their suffix with a three-way radix quicksort, which
+     * compares each digit of the suffixes sharing a prefix only once.
+     *
+     * @param entries The entries
+     * @param from The first entry to be sorted
+     * @param to The end of the entries to be sorted, exclusive
+     * @param depth The length of the prefix shared by the entries
+     */
+    private void sort(long[] entries, int from, int to, int depth) {
+        while (to - from > 1) {
+            int pivot = this.digitAt(entries[from + (to - from) / 2], depth);
+            int lt = from;
+            int gt = to - 1;
+            int i = from;
+            while (i <= gt) {
+                int d = this.digitAt(entries[i], depth);
+                if (d < pivot) {
+                    swap(entries, lt++, i++);
+                } else if (d > pivot) {
+                    swap(entries, i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            this.sort(entries, from, lt, depth);
+            this.sort(entries, gt + 1, to, depth);
+            if (pivot < 0) {
+                return;
+            }
+            from = lt;
+            to = gt + 1;
+            depth++;
+        }
+    }
+
+    /**
+     * Returns a digit of the suffix of an entry.
+     *
+     * @param entry The entry
+     * @param depth The position of the digit in the suffix
+     *
+     * @return The digit, or -1 past the end of the suffix
+     */
+    private int digitAt(long entry, int depth) {
+        String number = numbers.get((int) (entry >>> OFFSET_BITS));
+        int position = (int) (entry & MAX_DIGITS) + depth;
+        return position < number.length() ? number.charAt(position) : -1;
+    }
+
+    /**
+     * Swaps two entries.
+     *
+     * @param entries The entries
+     * @param i The first position
+     * @param j The second position
+     */
+    private static void swap(long[] entries, int i, int j) {
+        long t = entries[i];
+        entries[i] = entries[j];
+        entries[j] = t;
+    }
+}
@@ -0,0 +1,162 @@
+package it.unisa.diem.gruppo9.logic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * @file PrefixIndex.java
+ * @brief A sorted-key index over the name and surname of the contacts.
+ *
+ * <p>
+ * The {@code PrefixIndex} keeps the normalized names and surnames of the
+ * indexed contacts (see {@link Contact#normalize(String)}) as keys of a
+ * {@link TreeMap}. All the keys starting with a given prefix are
+ * adjacent in the map, so a prefix lookup costs a logarithmic descent plus the
+ * number of matching entries, instead of a scan of the whole address book.
+ * </p>
+ * <p>
+ * The keys under which a contact has been indexed are remembered, so that it
+ * can be removed correctly even if its attributes have been modified in the
+ * meantime.
+ * </p>
+ *
+ * @see ContactManager.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-14
+ */
+public class PrefixIndex {
+
+    /**
+     * The contacts indexed under each name or surname.
+     */
+    private final NavigableMap<String, Set<Contact>> entries;
+
+    /**
+     * The keys under which each contact has been indexed, by contact
+     * identifier.
+     */
+    private final Map<Long, String[]> keysById;
+
+    /**
+     * Creates a new, empty {@code PrefixIndex}.
+     *
+     * @post The index contains no contacts.
+     */
+    public PrefixIndex() {
+        entries = new TreeMap<>();
+        keysById = new HashMap<>();
+    }
+
+    /**
+     * Indexes a contact under its name and its surname.
+     *
+     * @pre {@code c != null} and {@code c} is not already indexed.
+     *
+     * @post {@code c} is returned by every {@link #search(String)} whose prefix
+     * starts its name or its surname.
+     *
+     * @param c The contact to be indexed
+     */
+    public void add(Contact c) {
+        String[] keys = this.keysOf(c);
+        keysById.put(c.getId(), keys);
+        for (String key : keys) {
+            entries.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(c);
+        }
+    }
+
+    /**
+     * Removes a contact from the index.
+     *
+     * @post {@code c} is no longer returned by {@link #search(String)}.
+     *
+     * @param c The contact to be removed
+     */
+    public void remove(Contact c) {
+        String[] keys = keysById.remove(c.getId());
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            Set<Contact> bucket = entries.get(key);
+            if (bucket != null) {
+                bucket.remove(c);
+                if (bucket.isEmpty()) {
+                    entries.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the contacts whose name or surname starts with {@code prefix}.
+     * <p>
+     * Each contact appears once, even if both its name and its surname match.
+     * The order of the result is the order of the matching keys, it is not the
+     * order of {@link NameAndSurnameComparator}.
+     * </p>
+     *
+     * @pre {@code prefix != null} and it is already normalized.
+     *
+     * @param prefix The normalized prefix to be searched
+     *
+     * @return The matching contacts
+     */
+    public List<Contact> search(String prefix) {
+        Set<Contact> result = new LinkedHashSet<>();
+        for (Map.Entry<String, Set<Contact>> entry : entries.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            result.addAll(entry.getValue());
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Tells whether a contact would be returned by a search for
+     * {@code prefix}, without looking at the index.
+     *
+     * @pre {@code c != null} and {@code prefix != null} and it is already
+     * normalized.
+     *
+     * @param c The contact to be checked
+     * @param prefix The normalized prefix to be searched
+     *
+     * @return {@code true} if the normalized name or surname of {@code c}
+     * starts with {@code prefix}
+     */
+    public boolean matches(Contact c, String prefix) {
+        for (String key : this.keysOf(c)) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the keys under which a contact is indexed: its normalized name
+     * and, if present and different, its normalized surname.
+     *
+     * @param c The contact
+     *
+     * @return The keys of {@code c}
+     */
+    private String[] keysOf(Contact c) {
+        String name = c.getNameKey();
+        String surname = c.getSurnameKey();
+        if (surname == null || surname.equals(name)) {
+            return new String[]{name};
+        }
+        return new String[]{name, surname};
+    }
+}
@@ -0,0 +1,142 @@
+package it.unisa.diem.gruppo9.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * @file SearchSession.java
+ * @brief An incremental search over the contacts of a {@code ContactManager}.
+ *
+ * <p>
+ * A {@code SearchSession} is obtained through
+ * {@link ContactManager#openSearchSession()} and remembers the query and the
+ * result of its last search. When the new query extends the previous one (the
+ * user typed more characters), every match of the new query is also a match
+ * of the previous one, so only the previous result is filtered. This does not
+ * hold when the new query becomes a phone number or a part of an email
+ * address, which also match the numbers or the addresses of the contacts, so
+ * the query must also be of the same kind.
+ * Otherwise, or if the contacts have been modified in the meantime, the
+ * search is delegated to {@link ContactManager#searchContact(String)}.
+ * </p>
+ * <p>
+ * A search holds the lock of the manager while it reads the indexes or
+ * filters the previous result, so it can run on a background thread while
+ * the contacts are modified, but not while a new result is sorted (see
+ * {@link ContactManager#searchContact(String)}). A session must not be used
+ * by two threads at the same time.
+ * </p>
+ *
+ * @see ContactManager.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-14
+ */
+public class SearchSession {
+
+    /**
+     * The manager whose contacts are searched.
+     */
+    private final ContactManager manager;
+
+    /**
+     * The normalized last query of the session, or {@code null} if there is
+     * none.
+     */
+    private String lastQuery;
+
+    /**
+     * The sorted result of the last query.
+     */
+    private List<Contact> lastResult;
+
+    /**
+     * The modification count of {@code manager} when {@code lastResult} was
+     * computed.
+     */
+    private long lastModifications;
+
+    /**
+     * Creates a new session over the contacts of {@code manager}.
+     *
+     * @param manager The manager whose contacts are searched
+     */
+    SearchSession(ContactManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Searches the contacts whose name or surname starts with {@code s}.
+     *
+     * @pre {@code s != null}
+     *
+     * @post The returned list is equal to the one returned by
+     * {@link ContactManager#searchContact(String)} for {@code s}.
+     * @post {@code s} becomes the last query of the session.
+     *
+     * @param s The search substring
+     *
+     * @return The sorted list of matching contacts
+     */
+    public ObservableList<Contact> search(String s) {
+        String key = Contact.normalize(s);
+        List<Contact> result = null;
+        long modifications;
+        synchronized (manager.getIndexLock()) {
+            modifications = manager.getModifications();
+            if (this.extendsLastQuery(key) && lastModifications == modifications) {
+                // the previous result is sorted, and so is any filter of it
+                result = new ArrayList<>();
+                for (Contact c : lastResult) {
+                    if (manager.matches(c, key)) {
+                        result.add(c);
+                    }
+                }
+            }
+        }
+        if (result == null) {
+            // a modification after the count was read makes the next search
+            // start over, since the count will differ
+            result = manager.searchContact(s);
+        }
+        lastModifications = modifications;
+        lastQuery = key;
+        lastResult = result;
+        return FXCollections.observableArrayList(result);
+    }
+
+    /**
+     * Tells whether every match of a query is a match of the last query.
+     *
+     * @param key The normalized query
+     *
+     * @return {@code true} if {@code key} extends the last query and is of
+     * the same kind
+     */
+    private boolean extendsLastQuery(String key) {
+        if (lastQuery == null || !key.startsWith(lastQuery)) {
+            return false;
+        }
+        boolean phone = ContactManager.isPhoneQuery(key);
+        if (phone != ContactManager.isPhoneQuery(lastQuery)
+                || ContactManager.isEmailQuery(key) != ContactManager.isEmailQuery(lastQuery)) {
+            return false;
+        }
+        // the numbers are matched by their normalized digits, which a longer
+        // query may not extend, e.g. "00" and "003"
+        return !phone || PhoneIndex.normalizeNumber(key).startsWith(PhoneIndex.normalizeNumber(lastQuery));
+    }
+
+    /**
+     * Forgets the last query, so that the next search is not narrowed.
+     *
+     * @post The session has no previous query.
+     */
+    public void reset() {
+        lastQuery = null;
+        lastResult = null;
+    }
+}
@@ -0,0 +1,299 @@
+package it.unisa.diem.gruppo9.logic;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * @file StringPool.java
+ * @brief A pool that shares equal field values among the contacts.
+ *
+ * <p>
+ * Many contacts have the same surname, the same name or the {@code "-"}
+ * placeholder of a missing phone number or email. The {@code StringPool}
+ * returns a single canonical {@code String} for each distinct value, so that
+ * equal values are stored once. Unlike {@link String#intern()} the pool
+ * belongs to its {@link ContactManager} and is collected with it.
+ * </p>
+ * <p>
+ * The pool references its values weakly, so a value that no contact uses
+ * any more, e.g. the surname of deleted contacts, is collected and its slot
+ * is reused by the next values added. The pool then does not grow with
+ * every value seen during the life of the manager, but only with the values
+ * in use.
+ * </p>
+ * <p>
+ * A value can be looked up from a range of a {@code char[]}, e.g. the buffer
+ * of a CSV reader, and the {@code String} is created only the first time the
+ * value is seen. The table uses open addressing with linear probing and is
+ * split into independently locked segments, so it can be used by several
+ * threads, as the chunks of a {@code ParallelContactLoader} do.
+ * </p>
+ *
+ * @see ContactManager.java
+ * @see it.unisa.diem.gruppo9.data.CsvContactReader
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-16
+ */
+public class StringPool {
+
+    /**
+     * The number of segments, a power of two.
+     */
+    private static final int SEGMENTS = 16;
+
+    /**
+     * The segments of the table, selected by the hash of the value.
+     */
+    private final Segment[] segments;
+
+    /**
+     * Creates an empty pool.
+     */
+    public StringPool() {
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Returns the canonical instance of a value.
+     *
+     * @param s the value, possibly null.
+     * @return a {@code String} equal to {@code s}, the same for all equal
+     * values, or {@code null} if {@code s} is null.
+     */
+    public String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+        int hash = s.hashCode();
+        return this.segmentFor(hash).intern(s, hash);
+    }
+
+    /**
+     * Returns the canonical instance of the value made of a range of
+     * characters, creating it only if the value is not in the pool.
+     *
+     * @pre {@code 0 <= offset} and {@code offset + length <= chars.length}
+     *
+     * @param chars the characters.
+     * @param offset the start of the value.
+     * @param length the length of the value.
+     * @return a {@code String} equal to the range, the same for all equal
+     * values.
+     */
+    public String intern(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return this.segmentFor(hash).intern(chars, offset, length, hash);
+    }
+
+    /**
+     * Returns the number of distinct values in the pool that have not been
+     * collected.
+     *
+     * @return the number of canonical instances.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Selects the segment of a hash code.
+     *
+     * @param hash the hash code of a value.
+     * @return the segment the value belongs to.
+     */
+    private Segment segmentFor(int hash) {
+        int spread = hash ^ (hash >>> 16);
+        return segments[spread & (SEGMENTS - 1)];
+    }
+
+    /**
+     * A part of the pool with its own lock.
+     */
+    private static final class Segment {
+
+        /**
+         * The canonical instances, or {@code null} for the empty slots. The
+         * slot of a collected instance stays occupied until it is reused or
+         * the table is rebuilt, so that the probe sequences are not broken.
+         */
+        private Entry[] table = new Entry[64];
+
+        /**
+         * The number of occupied slots, including the ones of collected
+         * instances.
+         */
+        private int used;
+
+        /**
+         * Looks up a value, adding it if it is not in the segment.
+         *
+         * @param s the value.
+         * @param hash the hash code of the value.
+         * @return the canonical instance.
+         */
+        synchronized String intern(String s, int hash) {
+            int mask = table.length - 1;
+            int i = slot(hash, mask);
+            int free = -1;
+            for (Entry entry; (entry = table[i]) != null; i = (i + 1) & mask) {
+                String candidate = entry.get();
+                if (candidate == null) {
+                    free = free < 0 ? i : free;
+                } else if (entry.hash == hash && candidate.equals(s)) {
+                    return candidate;
+                }
+            }
+            return this.insert(free < 0 ? i : free, s, hash);
+        }
+
+        /**
+         * Looks up the value of a range of characters, adding it if it is not
+         * in the segment.
+         *
+         * @param chars the characters.
+         * @param offset the start of the value.
+         * @param length the length of the value.
+         * @param hash the hash code of the value.
+         * @return the canonical instance.
+         */
+        synchronized String intern(char[] chars, int offset, int length, int hash) {
+            int mask = table.length - 1;
+            int i = slot(hash, mask);
+            int free = -1;
+            for (Entry entry; (entry = table[i]) != null; i = (i + 1) & mask) {
+                String candidate = entry.get();
+                if (candidate == null) {
+                    free = free < 0 ? i : free;
+                } else if (entry.hash == hash && matches(candidate, chars, offset, length)) {
+                    return candidate;
+                }
+            }
+            return this.insert(free < 0 ? i : free, new String(chars, offset, length), hash);
+        }
+
+        /**
+         * Returns the number of canonical instances that have not been
+         * collected.
+         *
+         * @return the size of the segment.
+         */
+        synchronized int size() {
+            int size = 0;
+            for (Entry entry : table) {
+                if (entry != null && entry.get() != null) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        /**
+         * Stores a new canonical instance in a free slot. When half of the
+         * slots are occupied the table is rebuilt without the collected
+         * instances, and doubled only if the remaining ones still occupy half
+         * of it.
+         *
+         * @param i the empty slot, or the slot of a collected instance, found
+         * for the value.
+         * @param s the value.
+         * @param hash the hash code of the value.
+         * @return {@code s}.
+         */
+        private String insert(int i, String s, int hash) {
+            if (table[i] == null) {
+                used++;
+            }
+            table[i] = new Entry(s, hash);
+            if (used * 2 > table.length) {
+                Entry[] old = table;
+                int live = 0;
+                for (Entry entry : old) {
+                    if (entry != null && entry.get() != null) {
+                        live++;
+                    }
+                }
+                table = new Entry[live * 2 > old.length / 2 ? old.length * 2 : old.length];
+                used = 0;
+                int mask = table.length - 1;
+                for (Entry entry : old) {
+                    if (entry != null && entry.get() != null) {
+                        int j = slot(entry.hash, mask);
+                        while (table[j] != null) {
+                            j = (j + 1) & mask;
+                        }
+                        table[j] = entry;
+                        used++;
+                    }
+                }
+            }
+            return s;
+        }
+
+        /**
+         * Returns the first slot probed for a hash code.
+         *
+         * @param hash the hash code.
+         * @param mask the size of the table minus one.
+         * @return the slot.
+         */
+        private static int slot(int hash, int mask) {
+            int h = hash * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        /**
+         * Tells whether a value is equal to a range of characters.
+         *
+         * @param s the value.
+         * @param chars the characters.
+         * @param offset the start of the range.
+         * @param length the length of the range.
+         * @return {@code true} if they have the same characters.
+         */
+        private static boolean matches(String s, char[] chars, int offset, int length) {
+            if (s.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (s.charAt(i) != chars[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A weak reference to a canonical instance, with its hash code so that
+     * the table can be rebuilt without the instance.
+     */
+    private static final class Entry extends WeakReference<String> {
+
+        /**
+         * The hash code of the instance.
+         */
+        final int hash;
+
+        /**
+         * Creates an entry.
+         *
+         * @param value the canonical instance.
+         * @param hash the hash code of the instance.
+         */
+        Entry(String value, int hash) {
+            super(value);
+            this.hash = hash;
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package it.unisa.diem.gruppo9.main;
 
+import it.unisa.diem.gruppo9.data.BackgroundContactLoader;
+import it.unisa.diem.gruppo9.data.JournalDataManager;
+import it.unisa.diem.gruppo9.interfaces.controller.PrimaryDisplayController;
+import it.unisa.diem.gruppo9.logic.ContactManager;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -60,7 +65,15 @@ public class BricoRubrica extends Application {
      * The {@code start} method is invoked by the JavaFX runtime to set up the
      * main {@link javafx.stage.Stage} of the application. It loads the FXML
      * file representing the primary user interface, creates a
-     * {@link javafx.scene.Scene}, and sets it on the stage.
+     * {@link javafx.scene.Scene}, and sets it on the stage. The
+     * {@link ContactManager} of the application is created here and saves
+     * its contacts through a {@link JournalDataManager}, so that each save
+     * writes only the changes made since the previous one.
+     * </p>
+     * <p>
+     * The contacts are loaded by a {@link BackgroundContactLoader} that
+     * starts here, while the primary view is shown, and fills the list in
+     * batches. The load is cancelled if the window is closed first.
      * </p>
      *
      * @param stage the primary stage for this application, provided by the
@@ -76,6 +89,17 @@ public class BricoRubrica extends Application {
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/it/unisa/diem/gruppo9/interfaces/view/PrimaryView.fxml"));
         Parent root = loader.load();
 
+        ContactManager contacts = new ContactManager();
+        JournalDataManager storage = new JournalDataManager(contacts);
+        contacts.setStorage(storage);
+        PrimaryDisplayController controller = loader.getController();
+        controller.setContacts(contacts);
+
+        BackgroundContactLoader contactLoader = new BackgroundContactLoader(contacts, storage::getVersion, storage::readContacts,
+                Platform::runLater);
+        contactLoader.start();
+        stage.setOnHidden(e -> contactLoader.cancel());
+
         Scene scene = new Scene(root);
 
         stage.setScene(scene);
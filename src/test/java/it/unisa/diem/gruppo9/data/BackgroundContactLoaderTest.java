@@ -0,0 +1,175 @@
+package it.unisa.diem.gruppo9.data;
+
+import it.unisa.diem.gruppo9.logic.Contact;
+import it.unisa.diem.gruppo9.logic.ContactManager;
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @file BackgroundContactLoaderTest.java
+ * @brief Unit test for the {@code BackgroundContactLoader} class
+ *
+ * The application thread is simulated by a queue of tasks that the test runs
+ * one at a time, so the batches can be observed between two runs.
+ *
+ * @see BackgroundContactLoader.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+public class BackgroundContactLoaderTest {
+
+    /**
+     * The tasks scheduled on the simulated application thread.
+     */
+    private final BlockingQueue<Runnable> applicationThread = new LinkedBlockingQueue<>();
+
+    /**
+     * Initializes resources before all tests.
+     */
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("\n\nStarting test BackgroundContactLoaderTest.java...\n\n");
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    public static void tearDownClass() {
+        System.out.println("\n\nFinished testing BackgroundContactLoaderTest.java\n\n");
+    }
+
+    /**
+     * Creates contacts in reverse order of surname.
+     *
+     * @param count the number of contacts.
+     * @return the contacts.
+     */
+    private static List<Contact> contacts(int count) {
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = count - 1; i >= 0; i--) {
+            contacts.add(new Contact(String.format("Surname%04d", i), "Name",
+                    new String[]{String.valueOf(i), "-", "-"}, new String[]{"-", "-", "-"}));
+        }
+        return contacts;
+    }
+
+    /**
+     * Runs the next task scheduled on the simulated application thread.
+     *
+     * @return {@code true} if no other task is scheduled after it.
+     */
+    private boolean runNext() throws InterruptedException {
+        Runnable task = applicationThread.poll(5, TimeUnit.SECONDS);
+        assertNotNull(task);
+        task.run();
+        return applicationThread.isEmpty();
+    }
+
+    /**
+     * @test Loads 250 contacts with a first page of 10 and batches of 100
+     *
+     * Expected Result: - The list grows by 10, 100, 100 and 40 contacts - At
+     * most one task is scheduled at a time - The first rows are the first
+     * contacts in sorted order - The future completes with the manager
+     */
+    @Test
+    public void testBatches() throws Exception {
+        System.out.println("Testing background loading in batches");
+        ContactManager manager = new ContactManager();
+        BackgroundContactLoader loader = new BackgroundContactLoader(manager, () -> contacts(250),
+                applicationThread::add, 10, 100);
+        CompletableFuture<ContactManager> done = loader.start();
+
+        int[] sizes = {10, 110, 210, 250};
+        for (int size : sizes) {
+            assertFalse(done.isDone());
+            this.runNext();
+            assertTrue(applicationThread.size() <= 1);
+            assertEquals(size, manager.getListOfContacts().size());
+        }
+        assertSame(manager, done.get(5, TimeUnit.SECONDS));
+        assertTrue(applicationThread.isEmpty());
+        for (int i = 0; i < 250; i++) {
+            assertEquals(String.format("Surname%04d", i), manager.getListOfContacts().get(i).getSurname());
+        }
+    }
+
+    /**
+     * @test Cancels the load after the first batch
+     *
+     * Expected Result: - Only the first batch is in the list - The future is
+     * cancelled
+     */
+    @Test
+    public void testCancel() throws Exception {
+        System.out.println("Testing cancelling the background loading");
+        ContactManager manager = new ContactManager();
+        BackgroundContactLoader loader = new BackgroundContactLoader(manager, () -> contacts(250),
+                applicationThread::add, 10, 100);
+        CompletableFuture<ContactManager> done = loader.start();
+        this.runNext();
+        loader.cancel();
+        this.runNext();
+
+        assertTrue(loader.isCancelled());
+        assertTrue(done.isCancelled());
+        assertEquals(10, manager.getListOfContacts().size());
+        assertTrue(applicationThread.isEmpty());
+    }
+
+    /**
+     * @test Loads the contacts of a journaled storage and saves
+     *
+     * Expected Result: - The loaded contacts are not recorded in the journal
+     * - The version of the files loaded is recorded - A missing file
+     * completes the future exceptionally
+     */
+    @Test
+    public void testJournalNotRecorded(@TempDir Path dir) throws Exception {
+        System.out.println("Testing background loading of a journaled storage");
+        Path snapshot = dir.resolve("rubrica.csv");
+        Path journal = dir.resolve("rubrica.csv.journal");
+        ContactManager source = new ContactManager();
+        JournalDataManager sourceStorage = new JournalDataManager(source, snapshot, journal, Long.MAX_VALUE);
+        source.addAll(contacts(30));
+        sourceStorage.saveContact();
+        long journalSize = Files.size(journal);
+
+        ContactManager manager = new ContactManager();
+        JournalDataManager storage = new JournalDataManager(manager, snapshot, journal, Long.MAX_VALUE);
+        CompletableFuture<ContactManager> done = new BackgroundContactLoader(manager, storage::getVersion,
+                storage::readContacts, applicationThread::add, 10, 100).start();
+        while (!this.runNext()) {
+        }
+        done.get(5, TimeUnit.SECONDS);
+        assertEquals(storage.getVersion(), manager.getDiskVersion());
+        storage.saveContact();
+        assertEquals(30, manager.getListOfContacts().size());
+        assertEquals(journalSize, Files.size(journal));
+
+        ContactManager empty = new ContactManager();
+        JournalDataManager missing = new JournalDataManager(empty, dir.resolve("missing.csv"),
+                dir.resolve("missing.csv.journal"), Long.MAX_VALUE);
+        CompletableFuture<ContactManager> failed = new BackgroundContactLoader(empty, missing::readContacts,
+                applicationThread::add).start();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof FileNotFoundException);
+        assertTrue(empty.getListOfContacts().isEmpty());
+    }
+}
@@ -0,0 +1,106 @@
+package it.unisa.diem.gruppo9.data;
+
+import it.unisa.diem.gruppo9.logic.Contact;
+import it.unisa.diem.gruppo9.logic.ContactManager;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @file BinaryDataManagerBenchmark.java
+ * @brief Compares the load time of the binary snapshot with the load time of
+ * "rubrica.csv".
+ *
+ * <p>
+ * This is not a unit test and is not run by the build. For 10k, 100k and 1M
+ * contacts (or the sizes given as arguments) it writes the same contacts as
+ * a CSV file and as a binary snapshot, then prints the time to load each
+ * into a new {@code ContactManager}. Each load is measured once, on a new
+ * manager, since the load at startup happens once. Run it with the test
+ * classpath and a large heap:
+ * {@code java -Xmx4g -cp target/classes:target/test-classes:<javafx jars>
+ * it.unisa.diem.gruppo9.data.BinaryDataManagerBenchmark [sizes...]}
+ * </p>
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-16
+ */
+public class BinaryDataManagerBenchmark {
+
+    private static final String[] SURNAMES = {"Rossi", "Russo", "Ferrari", "Esposito", "Bianchi", "Romano", "Colombo", "Ricci"};
+
+    private static final String[] NAMES = {"Mario", "Luca", "Giulia", "Francesca", "Marco", "Anna", "Nicolò", "Sara"};
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = {10_000, 100_000, 1_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        Path directory = Files.createTempDirectory("rubrica");
+        for (int size : sizes) {
+            Path csv = directory.resolve("rubrica.csv");
+            Path bin = directory.resolve("rubrica.bin");
+            List<Contact> contacts = generate(size);
+            try (CsvContactWriter writer = new CsvContactWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8))) {
+                writer.writeHeader();
+                for (Contact c : contacts) {
+                    writer.write(c);
+                }
+            }
+            new BinaryDataManager(new ContactManager(), bin).importCsv(csv);
+            contacts = null;
+            System.gc();
+
+            long start = System.nanoTime();
+            ContactManager fromCsv = loadCsv(csv);
+            long csvTime = System.nanoTime() - start;
+            System.gc();
+
+            start = System.nanoTime();
+            ContactManager fromBinary = new ContactManager();
+            new BinaryDataManager(fromBinary, bin).loadContact();
+            long binaryTime = System.nanoTime() - start;
+
+            System.out.printf("%9d contacts: csv %7.1f ms (%6.1f MB), binary %7.1f ms (%6.1f MB), %d/%d loaded%n",
+                    size, csvTime / 1e6, Files.size(csv) / 1048576.0, binaryTime / 1e6, Files.size(bin) / 1048576.0,
+                    fromCsv.getListOfContacts().size(), fromBinary.getListOfContacts().size());
+            Files.delete(csv);
+            Files.delete(bin);
+        }
+        Files.delete(directory);
+    }
+
+    private static ContactManager loadCsv(Path csv) throws IOException {
+        ContactManager manager = new ContactManager();
+        List<Contact> loaded = new ArrayList<>();
+        try (CsvContactReader reader = new CsvContactReader(Files.newBufferedReader(csv, StandardCharsets.UTF_8))) {
+            reader.skipRecord();
+            String[] fields = new String[CsvContactReader.FIELDS];
+            while (reader.readRecord(fields)) {
+                loaded.add(manager.createContact(fields[0], fields[1],
+                        new String[]{fields[2], fields[3], fields[4]},
+                        new String[]{fields[5], fields[6], fields[7]}));
+            }
+        }
+        manager.addAll(loaded);
+        return manager;
+    }
+
+    private static List<Contact> generate(int size) {
+        List<Contact> contacts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String surname = SURNAMES[i % SURNAMES.length];
+            contacts.add(new Contact(surname + (i / SURNAMES.length), NAMES[(i / 3) % NAMES.length],
+                    new String[]{String.valueOf(3330000000L + i), i % 4 == 0 ? String.valueOf(810000000 + i) : "-", "-"},
+                    new String[]{surname.toLowerCase() + i + "@example.com", "-", "-"}));
+        }
+        return contacts;
+    }
+}
@@ -0,0 +1,223 @@
+package it.unisa.diem.gruppo9.data;
+
+import it.unisa.diem.gruppo9.logic.Contact;
+import it.unisa.diem.gruppo9.logic.ContactManager;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @file BinaryDataManagerTest.java
+ * @brief Unit test for the {@code BinaryDataManager} class
+ *
+ * The test verifies that the contacts saved in a binary snapshot are loaded
+ * back unchanged and in order, that the conversion from and to CSV preserves
+ * the contacts, and that a file that is not a snapshot is rejected.
+ *
+ * @see BinaryDataManager.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-16
+ */
+public class BinaryDataManagerTest {
+
+    /**
+     * A temporary directory for the snapshot.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Initializes resources before all tests.
+     */
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("\n\nStarting test BinaryDataManagerTest.java...\n\n");
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    public static void tearDownClass() {
+        System.out.println("\n\nFinished testing BinaryDataManagerTest.java\n\n");
+    }
+
+    /**
+     * Returns the records of the contacts of a manager.
+     *
+     * @param manager the manager.
+     * @return the {@code toString()} of each contact, in order.
+     */
+    private static List<String> records(ContactManager manager) {
+        List<String> records = new ArrayList<>();
+        for (Contact c : manager.getListOfContacts()) {
+            records.add(c.toString());
+        }
+        return records;
+    }
+
+    /**
+     * @test Saves contacts with shared, accented and quoted values and loads
+     * them in a new manager
+     *
+     * Expected Result: - The loaded contacts have the same fields in the same
+     * order
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        System.out.println("Testing binary round trip");
+        Path file = directory.resolve("rubrica.bin");
+        ContactManager manager = new ContactManager();
+        manager.addContacts(new Contact("Rossi", "Mario", new String[]{"123", "-", "-"}, new String[]{"m@x.it", "-", "-"}));
+        manager.addContacts(new Contact("Àlvarez", "Nicolò", new String[]{"456", "789", "-"}, new String[]{"-", "-", "-"}));
+        manager.addContacts(new Contact("", "Anna;\"A\"", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"}));
+        manager.addContacts(new Contact("Rossi", "Mario", new String[]{"123", "-", "-"}, new String[]{"m@x.it", "-", "-"}));
+        new BinaryDataManager(manager, file).saveContact();
+
+        ContactManager loaded = new ContactManager();
+        new BinaryDataManager(loaded, file).loadContact();
+        assertEquals(records(manager), records(loaded));
+    }
+
+    /**
+     * @test Saves the contacts of a manager sorted with the rules of a
+     * language and maps the snapshot
+     *
+     * Expected Result: - The records are in the order of the manager, which
+     * differs from the order of the normalized keys - A manager with the same
+     * order loads them unchanged - The mapped snapshot finds the contacts by
+     * prefix of their surname
+     */
+    @Test
+    public void testManagerOrder() throws IOException {
+        System.out.println("Testing the order of a binary snapshot");
+        Path file = directory.resolve("rubrica.bin");
+        ContactManager manager = new ContactManager();
+        manager.setSortLocale(Locale.ITALIAN);
+        manager.addContacts(new Contact("De Luca", "Mario", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"}));
+        manager.addContacts(new Contact("Dea", "Anna", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"}));
+        new BinaryDataManager(manager, file).saveContact();
+
+        ContactManager loaded = new ContactManager();
+        loaded.setSortLocale(Locale.ITALIAN);
+        new BinaryDataManager(loaded, file).loadContact();
+        assertEquals(records(manager), records(loaded));
+
+        MappedContactStore store = new MappedContactStore(new ContactManager(), file);
+        assertEquals("Dea", store.get(0).getSurname());
+        assertEquals(2, store.search("de").size());
+        assertEquals("De Luca", store.search("de l").get(0).getSurname());
+        assertEquals("Dea", store.search("dea").get(0).getSurname());
+        store.close();
+    }
+
+    /**
+     * @test Imports a CSV file and exports it back
+     *
+     * Expected Result: - The exported file has the same records as the
+     * imported one, sorted
+     */
+    @Test
+    public void testCsvConversion() throws IOException {
+        System.out.println("Testing CSV import and export");
+        Path csv = directory.resolve("rubrica.csv");
+        Files.write(csv, (CsvContactWriter.HEADER + "\n"
+                + "Verdi;Luca;789;-;-;-;-;-\n"
+                + "Bianchi;Anna;456;-;-;a@b.it;-;-\n").getBytes(StandardCharsets.UTF_8));
+        BinaryDataManager storage = new BinaryDataManager(new ContactManager(), directory.resolve("rubrica.bin"));
+        storage.importCsv(csv);
+        Path exported = directory.resolve("export.csv");
+        storage.exportCsv(exported);
+
+        assertEquals(CsvContactWriter.HEADER + "\n"
+                + "Bianchi;Anna;456;-;-;a@b.it;-;-\n"
+                + "Verdi;Luca;789;-;-;-;-;-\n",
+                new String(Files.readAllBytes(exported), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @test Loads a snapshot of version 1, without the stored orders
+     *
+     * Expected Result: - The contacts are loaded unchanged - The snapshot
+     * cannot be mapped for search
+     */
+    @Test
+    public void testVersion1() throws IOException {
+        System.out.println("Testing a binary snapshot of version 1");
+        Path file = directory.resolve("rubrica.bin");
+        ContactManager manager = new ContactManager();
+        manager.addContacts(new Contact("Rossi", "Mario", new String[]{"123", "-", "-"}, new String[]{"m@x.it", "-", "-"}));
+        manager.addContacts(new Contact("Bianchi", "Anna", new String[]{"456", "-", "-"}, new String[]{"-", "-", "-"}));
+        new BinaryDataManager(manager, file).saveContact();
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        int count = data.getInt(8);
+        int records = BinaryDataManager.HEADER_SIZE + count * BinaryDataManager.RECORD_SIZE;
+        int table = records + 2 * count * Integer.BYTES;
+        ByteBuffer old = ByteBuffer.allocate(data.limit() - (table - records));
+        old.put(data.array(), 0, records).put(data.array(), table, data.limit() - table);
+        old.putInt(4, 1);
+        Files.write(file, old.array());
+
+        ContactManager loaded = new ContactManager();
+        new BinaryDataManager(loaded, file).loadContact();
+        assertEquals(records(manager), records(loaded));
+        assertThrows(IOException.class, () -> new MappedContactStore(new ContactManager(), file));
+    }
+
+    /**
+     * @test Saves a contact with fewer than three phone numbers and emails
+     * and loads a snapshot with a corrupt record
+     *
+     * Expected Result: - The missing values are loaded as empty slots "-" -
+     * An offset that is not the start of a string throws an IOException
+     */
+    @Test
+    public void testMissingValuesAndCorruption() throws IOException {
+        System.out.println("Testing missing values and corrupt records");
+        Path file = directory.resolve("rubrica.bin");
+        ContactManager manager = new ContactManager();
+        manager.addContacts(new Contact("Verdi", "Luca", new String[]{"789"}, new String[0]));
+        new BinaryDataManager(manager, file).saveContact();
+
+        ContactManager loaded = new ContactManager();
+        new BinaryDataManager(loaded, file).loadContact();
+        Contact c = loaded.getListOfContacts().get(0);
+        assertArrayEquals(new String[]{"789", "-", "-"}, c.getPhoneNumber());
+        assertArrayEquals(new String[]{"-", "-", "-"}, c.getEmail());
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        data.putInt(BinaryDataManager.HEADER_SIZE, 1);
+        Files.write(file, data.array());
+        ContactManager corrupt = new ContactManager();
+        assertThrows(IOException.class, () -> new BinaryDataManager(corrupt, file).loadContact());
+        assertTrue(corrupt.getListOfContacts().isEmpty());
+    }
+
+    /**
+     * @test Loads a file that is not a binary snapshot
+     *
+     * Expected Result: - An IOException is thrown and no contact is added
+     */
+    @Test
+    public void testRejectsOtherFiles() throws IOException {
+        System.out.println("Testing rejection of a non snapshot");
+        Path file = directory.resolve("rubrica.bin");
+        Files.write(file, (CsvContactWriter.HEADER + "\n").getBytes(StandardCharsets.UTF_8));
+        ContactManager manager = new ContactManager();
+        assertThrows(IOException.class, () -> new BinaryDataManager(manager, file).loadContact());
+        assertTrue(manager.getListOfContacts().isEmpty());
+    }
+}
@@ -0,0 +1,117 @@
+package it.unisa.diem.gruppo9.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @file CsvContactReaderBenchmark.java
+ * @brief Compares the streaming {@code CsvContactReader} with the previous
+ * {@code readLine}/{@code split} parsing.
+ *
+ * <p>
+ * This is not a unit test and is not run by the build. It generates an in
+ * memory "rubrica.csv" and prints, for both parsers, the throughput in MB/s
+ * and the bytes allocated per record, measured with
+ * {@code com.sun.management.ThreadMXBean}, looked up by reflection so that
+ * the class compiles with {@code --release 8}; on a JVM without it the
+ * allocations are printed as -1. Run it with the test classpath:
+ * {@code java -cp target/classes:target/test-classes:<javafx jars>
+ * it.unisa.diem.gruppo9.data.CsvContactReaderBenchmark [records]}
+ * </p>
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-15
+ */
+public class CsvContactReaderBenchmark {
+
+    private static final String[] SURNAMES = {"Rossi", "Russo", "Ferrari", "Esposito", "Bianchi", "Romano", "Colombo", "Ricci"};
+
+    private static final String[] NAMES = {"Mario", "Luca", "Giulia", "Francesca", "Marco", "Anna", "Nicolò", "Sara"};
+
+    public static void main(String[] args) throws IOException {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String csv = generate(records);
+        double megabytes = csv.getBytes(StandardCharsets.UTF_8).length / (1024.0 * 1024.0);
+        System.out.printf("%d records, %.1f MB%n", records, megabytes);
+
+        for (int round = 0; round < 5; round++) {
+            boolean last = round == 4;
+            measure("split   ", csv, records, megabytes, last, CsvContactReaderBenchmark::parseWithSplit);
+            measure("streaming", csv, records, megabytes, last, CsvContactReaderBenchmark::parseWithReader);
+        }
+    }
+
+    private interface Parser {
+
+        long parse(String csv) throws IOException;
+    }
+
+    private static void measure(String label, String csv, int records, double megabytes, boolean print, Parser parser) throws IOException {
+        long before = allocatedBytes();
+        long start = System.nanoTime();
+        long checksum = parser.parse(csv);
+        long elapsed = System.nanoTime() - start;
+        long allocated = before < 0 ? -records : allocatedBytes() - before;
+        if (print) {
+            System.out.printf("%s: %7.1f MB/s, %6.1f bytes/record (checksum %d)%n",
+                    label, megabytes / (elapsed / 1e9), (double) allocated / records, checksum);
+        }
+    }
+
+    private static long parseWithSplit(String csv) throws IOException {
+        long checksum = 0;
+        try (BufferedReader br = new BufferedReader(new StringReader(csv))) {
+            br.readLine();
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] fields = line.split(";");
+                String[] phoneNumber = {fields[2], fields[3], fields[4]};
+                String[] email = {fields[5], fields[6], fields[7]};
+                checksum += fields[0].length() + fields[1].length() + phoneNumber.length + email.length;
+            }
+        }
+        return checksum;
+    }
+
+    private static long parseWithReader(String csv) throws IOException {
+        long checksum = 0;
+        try (CsvContactReader reader = new CsvContactReader(new StringReader(csv))) {
+            reader.skipRecord();
+            String[] fields = new String[CsvContactReader.FIELDS];
+            while (reader.readRecord(fields)) {
+                String[] phoneNumber = {fields[2], fields[3], fields[4]};
+                String[] email = {fields[5], fields[6], fields[7]};
+                checksum += fields[0].length() + fields[1].length() + phoneNumber.length + email.length;
+            }
+        }
+        return checksum;
+    }
+
+    private static String generate(int records) {
+        StringBuilder sb = new StringBuilder(records * 64);
+        sb.append(CsvContactWriter.HEADER).append('\n');
+        for (int i = 0; i < records; i++) {
+            String surname = SURNAMES[i % SURNAMES.length];
+            sb.append(surname).append(i / SURNAMES.length).append(';')
+                    .append(NAMES[(i / 3) % NAMES.length]).append(';')
+                    .append(3330000000L + i).append(';')
+                    .append(i % 4 == 0 ? String.valueOf(810000000 + i) : "-").append(";-;")
+                    .append(surname.toLowerCase()).append(i).append("@example.com;-;-\n");
+        }
+        return sb.toString();
+    }
+
+    private static long allocatedBytes() {
+        try {
+            Method method = Class.forName("com.sun.management.ThreadMXBean").getMethod("getCurrentThreadAllocatedBytes");
+            return (Long) method.invoke(ManagementFactory.getThreadMXBean());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+}
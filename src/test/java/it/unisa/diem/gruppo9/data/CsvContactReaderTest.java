@@ -0,0 +1,202 @@
+package it.unisa.diem.gruppo9.data;
+
+import it.unisa.diem.gruppo9.logic.Contact;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @file CsvContactReaderTest.java
+ * @brief Unit test for the {@code CsvContactReader} and
+ * {@code CsvContactWriter} classes
+ *
+ * The tests cover: - Plain records with both line terminators - Quoted fields
+ * with delimiters and escaped quotes - Short records and blank lines - Records
+ * larger than the buffer - Writing and reading back a contact - Reading a
+ * file that is not valid UTF-8 with the platform charset
+ *
+ * @see CsvContactReader.java
+ * @see CsvContactWriter.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-15
+ */
+public class CsvContactReaderTest {
+
+    /**
+     * A temporary directory for the contact files.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Initializes resources before all tests.
+     */
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("\n\nStarting test CsvContactReaderTest.java...\n\n");
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    public static void tearDownClass() {
+        System.out.println("\n\nFinished testing CsvContactReaderTest.java\n\n");
+    }
+
+    /**
+     * @test Reads plain records terminated by \n and \r\n, and a last record
+     * without terminator
+     *
+     * Expected Result: - Every field is read - The placeholder is the shared
+     * constant - The end of the input is reported
+     */
+    @Test
+    public void testReadPlainRecords() throws IOException {
+        System.out.println("Testing plain records");
+        String csv = "Dylan;Bob;12345;-;-;bob@example.com;-;-\r\n"
+                + "Rossi;Mario;-;-;-;-;-;-\n"
+                + ";Alice;1;2;3;a;b;c";
+        CsvContactReader reader = new CsvContactReader(new StringReader(csv));
+        String[] fields = new String[CsvContactReader.FIELDS];
+
+        assertTrue(reader.readRecord(fields));
+        assertArrayEquals(new String[]{"Dylan", "Bob", "12345", "-", "-", "bob@example.com", "-", "-"}, fields);
+        assertSame(CsvContactReader.PLACEHOLDER, fields[3]);
+        assertTrue(reader.readRecord(fields));
+        assertEquals("Mario", fields[1]);
+        assertTrue(reader.readRecord(fields));
+        assertArrayEquals(new String[]{"", "Alice", "1", "2", "3", "a", "b", "c"}, fields);
+        assertFalse(reader.readRecord(fields));
+    }
+
+    /**
+     * @test Reads quoted fields, short records and blank lines with a buffer
+     * smaller than a record
+     *
+     * Expected Result: - Quoted delimiters and doubled quotes are unescaped -
+     * Missing fields are empty - Blank lines are skipped
+     */
+    @Test
+    public void testReadQuotedAndShortRecords() throws IOException {
+        System.out.println("Testing quoted and short records");
+        String csv = "\"Rossi; Bianchi\";\"Mario \"\"Super\"\"\";\"line\nbreak\";-;-;-;-;-\n"
+                + "\n\n"
+                + "Verdi;Luca\n";
+        CsvContactReader reader = new CsvContactReader(new StringReader(csv), 4);
+        String[] fields = new String[CsvContactReader.FIELDS];
+
+        assertTrue(reader.readRecord(fields));
+        assertEquals("Rossi; Bianchi", fields[0]);
+        assertEquals("Mario \"Super\"", fields[1]);
+        assertEquals("line\nbreak", fields[2]);
+        assertEquals("-", fields[7]);
+        assertTrue(reader.readRecord(fields));
+        assertArrayEquals(new String[]{"Verdi", "Luca", "", "", "", "", "", ""}, fields);
+        assertFalse(reader.readRecord(fields));
+    }
+
+    /**
+     * @test Writes contacts with special characters and reads them back
+     *
+     * Expected Result: - The header and the contacts are read back unchanged
+     */
+    @Test
+    public void testWriteAndReadBack() throws IOException {
+        System.out.println("Testing write and read back");
+        Contact contact = new Contact("\"Quoted\" Surname", "Na;me", new String[]{"1", "-", "-"}, new String[]{"a\"b@c.it", "-", "-"});
+        StringWriter out = new StringWriter();
+        CsvContactWriter writer = new CsvContactWriter(out);
+        writer.writeHeader();
+        writer.write(contact);
+        writer.flush();
+
+        CsvContactReader reader = new CsvContactReader(new StringReader(out.toString()));
+        String[] fields = new String[CsvContactReader.FIELDS];
+        assertTrue(reader.skipRecord());
+        assertTrue(reader.readRecord(fields));
+        assertEquals(contact.getSurname(), fields[0]);
+        assertEquals(contact.getName(), fields[1]);
+        assertEquals("a\"b@c.it", fields[5]);
+        assertFalse(reader.readRecord(fields));
+
+        Contact plain = new Contact("Dylan", "Bob", new String[]{"12345", "-", "-"}, new String[]{"-", "-", "-"});
+        out = new StringWriter();
+        new CsvContactWriter(out).write(plain);
+        assertEquals(plain.toString(), out.toString());
+    }
+
+    /**
+     * @test Reads a UTF-8 file and a file written in ISO-8859-1, as older
+     * versions did on most platforms
+     *
+     * Expected Result: - The UTF-8 file is read once, as UTF-8 - The other
+     * file is read again with the platform charset, which decodes its bytes
+     * as {@code new String} does
+     */
+    @Test
+    public void testReadWithFallback() throws IOException {
+        System.out.println("Testing charset fallback");
+        String csv = "Cognome;Nome\nCaf\u00e8;Nicol\u00f2\n";
+        Path utf8 = directory.resolve("utf8.csv");
+        Path legacy = directory.resolve("legacy.csv");
+        Files.write(utf8, csv.getBytes(StandardCharsets.UTF_8));
+        byte[] bytes = csv.getBytes(StandardCharsets.ISO_8859_1);
+        Files.write(legacy, bytes);
+
+        List<Charset> charsets = new ArrayList<>();
+        String[] fields = readFirst(utf8, charsets);
+        assertEquals(1, charsets.size());
+        assertEquals("Caf\u00e8", fields[0]);
+        assertEquals("Nicol\u00f2", fields[1]);
+
+        charsets.clear();
+        Charset platform = CsvContactReader.legacyCharset();
+        if (platform.equals(StandardCharsets.UTF_8)) {
+            assertThrows(IOException.class, () -> readFirst(legacy, charsets));
+            return;
+        }
+        fields = readFirst(legacy, charsets);
+        assertEquals(2, charsets.size());
+        assertEquals(platform, charsets.get(1));
+        String[] expected = new String(bytes, platform).split("[;\n]");
+        assertEquals(expected[2], fields[0]);
+        assertEquals(expected[3], fields[1]);
+    }
+
+    /**
+     * Reads the first record after the header with
+     * {@link CsvContactReader#readWithFallback}.
+     *
+     * @param file the contact file.
+     * @param charsets the list that receives the charset of each read.
+     * @return the fields of the record.
+     *
+     * @throws IOException if an error occurs during reading.
+     */
+    private static String[] readFirst(Path file, List<Charset> charsets) throws IOException {
+        return CsvContactReader.readWithFallback(charset -> {
+            charsets.add(charset);
+            String[] fields = new String[CsvContactReader.FIELDS];
+            try (CsvContactReader reader = new CsvContactReader(
+                    CsvContactReader.newReader(Files.newInputStream(file), charset))) {
+                assertTrue(reader.skipRecord());
+                assertTrue(reader.readRecord(fields));
+            }
+            return fields;
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package it.unisa.diem.gruppo9.data;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @file FileVersionTest.java
+ * @brief Unit test for the {@code FileVersion} class
+ *
+ * @see FileVersion.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+public class FileVersionTest {
+
+    /**
+     * Initializes resources before all tests.
+     */
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("\n\nStarting test FileVersionTest.java...\n\n");
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    public static void tearDownClass() {
+        System.out.println("\n\nFinished testing FileVersionTest.java\n\n");
+    }
+
+    /**
+     * @test Computes the version of a file before and after changes
+     *
+     * Expected Result: - An unchanged file has the same version - A change
+     * that keeps the size and the modification time changes the version - A
+     * missing file has a version too - Combined versions equal the version of
+     * the files together
+     */
+    @Test
+    public void testVersion(@TempDir Path dir) throws IOException {
+        System.out.println("Testing file versions");
+        Path file = dir.resolve("rubrica.csv");
+        Path missing = dir.resolve("rubrica.csv.journal");
+        Files.write(file, "Rossi;Mario".getBytes(StandardCharsets.UTF_8));
+        FileTime time = Files.getLastModifiedTime(file);
+        FileVersion version = FileVersion.of(file);
+        assertEquals(version, FileVersion.of(file));
+
+        Files.write(file, "Rossi;Marco".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, time);
+        assertNotEquals(version, FileVersion.of(file));
+
+        assertEquals(FileVersion.of(missing), FileVersion.of(missing));
+        assertNotEquals(FileVersion.of(missing), FileVersion.of(file));
+        assertEquals(FileVersion.of(file, missing), FileVersion.combine(FileVersion.of(file), FileVersion.of(missing)));
+    }
+
+    /**
+     * @test Compares the version of files with a recorded one
+     *
+     * Expected Result: - Unchanged files give no version - A change of the
+     * size, of the modification time or of the content alone gives the
+     * version computed from scratch - A checksum computed while writing gives
+     * the same version as reading the file
+     */
+    @Test
+    public void testIfChanged(@TempDir Path dir) throws IOException {
+        System.out.println("Testing file versions against a recorded one");
+        Path file = dir.resolve("rubrica.csv");
+        Path missing = dir.resolve("rubrica.csv.journal");
+        Files.write(file, "Rossi;Mario".getBytes(StandardCharsets.UTF_8));
+        FileTime time = Files.getLastModifiedTime(file);
+        FileVersion version = FileVersion.of(file, missing);
+        assertNull(FileVersion.ifChanged(version, file, missing));
+        assertEquals(version, FileVersion.ifChanged(null, file, missing));
+
+        Files.write(file, "Rossi;Marco".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, time);
+        assertEquals(FileVersion.of(file, missing), FileVersion.ifChanged(version, file, missing));
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(time.toMillis() + 2000));
+        assertEquals(FileVersion.of(file, missing), FileVersion.ifChanged(version, file, missing));
+
+        Files.write(file, "Rossi;Mario;".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, time);
+        assertEquals(FileVersion.of(file, missing), FileVersion.ifChanged(version, file, missing));
+        assertNotNull(FileVersion.ifChanged(FileVersion.of(file), file, missing));
+
+        CRC32 crc = new CRC32();
+        crc.update("Rossi;Mario;".getBytes(StandardCharsets.UTF_8));
+        assertEquals(FileVersion.of(file), FileVersion.of(file, crc.getValue()));
+        assertEquals(FileVersion.of(missing), FileVersion.of(missing, crc.getValue()));
+    }
+}
@@ -0,0 +1,261 @@
+package it.unisa.diem.gruppo9.data;
+
+import it.unisa.diem.gruppo9.logic.Contact;
+import it.unisa.diem.gruppo9.logic.ContactManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @file JournalDataManagerTest.java
+ * @brief Unit test for the {@code JournalDataManager} class
+ *
+ * The test verifies that the contacts saved through the journal are loaded
+ * back unchanged, before and after a compaction, that a journal left behind
+ * by a compaction is not applied a second time, and that loading again
+ * applies only the changes of the files.
+ *
+ * @see JournalDataManager.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-16
+ */
+public class JournalDataManagerTest {
+
+    /**
+     * A temporary directory for the snapshot and the journal.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Initializes resources before all tests.
+     */
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("\n\nStarting test JournalDataManagerTest.java...\n\n");
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    public static void tearDownClass() {
+        System.out.println("\n\nFinished testing JournalDataManagerTest.java\n\n");
+    }
+
+    /**
+     * Creates a manager that saves through a journal in the temporary
+     * directory.
+     *
+     * @param threshold the size of the journal above which it is compacted.
+     * @return the manager.
+     */
+    private ContactManager open(long threshold) {
+        ContactManager manager = new ContactManager();
+        manager.setStorage(new JournalDataManager(manager, directory.resolve("rubrica.csv"),
+                directory.resolve("rubrica.csv.journal"), threshold));
+        return manager;
+    }
+
+    /**
+     * Creates a contact with a phone number.
+     *
+     * @param surname the surname of the contact.
+     * @param name the name of the contact.
+     * @param phone the phone number of the contact.
+     * @return the contact.
+     */
+    private static Contact contact(String surname, String name, String phone) {
+        return new Contact(surname, name, new String[]{phone, "-", "-"}, new String[]{"-", "-", "-"});
+    }
+
+    /**
+     * Returns the records of the contacts of a manager.
+     *
+     * @param manager the manager.
+     * @return the {@code toString()} of each contact, in order.
+     */
+    private static List<String> records(ContactManager manager) {
+        List<String> records = new ArrayList<>();
+        for (Contact c : manager.getListOfContacts()) {
+            records.add(c.toString());
+        }
+        return records;
+    }
+
+    /**
+     * @test Saves additions and deletions through the journal and loads them
+     * in a new manager
+     *
+     * Expected Result: - Only the journal is written - The loaded contacts are
+     * the saved ones, including a deleted duplicate removed only once
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        System.out.println("Testing journal round trip");
+        ContactManager manager = this.open(JournalDataManager.DEFAULT_THRESHOLD);
+        Contact duplicate = contact("Rossi", "Mario", "123");
+        manager.addContacts(contact("Bianchi", "Anna", "456"));
+        manager.addContacts(duplicate);
+        manager.addContacts(contact("Rossi", "Mario", "123"));
+        manager.saveContact();
+        manager.deleteContact(duplicate);
+        manager.addContacts(contact("Verdi", "Luca", "789"));
+        manager.saveContact();
+
+        assertFalse(Files.exists(directory.resolve("rubrica.csv")));
+        assertTrue(Files.exists(directory.resolve("rubrica.csv.journal")));
+
+        ContactManager loaded = this.open(JournalDataManager.DEFAULT_THRESHOLD);
+        loaded.loadContact();
+        assertEquals(records(manager), records(loaded));
+        assertEquals(3, loaded.getListOfContacts().size());
+    }
+
+    /**
+     * @test Saves with a threshold that makes every journal compacted
+     *
+     * Expected Result: - After the compaction there is no journal - The
+     * loaded contacts are the saved ones
+     */
+    @Test
+    public void testCompaction() throws IOException {
+        System.out.println("Testing journal compaction");
+        ContactManager manager = new ContactManager();
+        JournalDataManager storage = new JournalDataManager(manager, directory.resolve("rubrica.csv"),
+                directory.resolve("rubrica.csv.journal"), 0);
+        manager.setStorage(storage);
+        for (int i = 0; i < 10; i++) {
+            manager.addContacts(contact("Surname" + i, "Name" + i, String.valueOf(i)));
+        }
+        manager.saveContact();
+        storage.awaitCompaction();
+        manager.deleteContact(manager.getListOfContacts().get(0));
+        manager.saveContact();
+        storage.awaitCompaction();
+
+        assertFalse(Files.exists(directory.resolve("rubrica.csv.journal")));
+        ContactManager loaded = this.open(JournalDataManager.DEFAULT_THRESHOLD);
+        loaded.loadContact();
+        assertEquals(records(manager), records(loaded));
+    }
+
+    /**
+     * @test Compacts a journal and then writes it back, as if the compaction
+     * had been interrupted before deleting it
+     *
+     * Expected Result: - The stale journal is ignored and no contact is
+     * loaded twice
+     */
+    @Test
+    public void testStaleJournal() throws IOException {
+        System.out.println("Testing stale journal");
+        ContactManager manager = new ContactManager();
+        JournalDataManager storage = new JournalDataManager(manager, directory.resolve("rubrica.csv"),
+                directory.resolve("rubrica.csv.journal"), Long.MAX_VALUE);
+        manager.setStorage(storage);
+        manager.addContacts(contact("Rossi", "Mario", "123"));
+        manager.addContacts(contact("Bianchi", "Anna", "456"));
+        manager.saveContact();
+        byte[] journal = Files.readAllBytes(directory.resolve("rubrica.csv.journal"));
+        storage.compact();
+        Files.write(directory.resolve("rubrica.csv.journal"), journal);
+
+        ContactManager loaded = this.open(JournalDataManager.DEFAULT_THRESHOLD);
+        loaded.loadContact();
+        assertEquals(records(manager), records(loaded));
+    }
+
+    /**
+     * @test Edits contacts in place, with and without a move, and saves
+     *
+     * Expected Result: - The reloaded contacts have the edited attributes -
+     * A contact with the same attributes as the previous content of an edited
+     * one is not deleted by the replay
+     */
+    @Test
+    public void testEdit() throws IOException {
+        System.out.println("Testing journaled in-place edits");
+        ContactManager manager = this.open(Long.MAX_VALUE);
+        Contact rossi = contact("Rossi", "Mario", "123");
+        Contact bianchi = contact("Bianchi", "Anna", "456");
+        manager.addContacts(rossi);
+        manager.addContacts(bianchi);
+        manager.saveContact();
+
+        manager.addContacts(contact("Rossi", "Mario", "123"));
+        manager.editContact(rossi, "Rossi", "Mario", new String[]{"999", "-", "-"}, new String[]{"-", "-", "-"});
+        manager.editContact(bianchi, "Verdi", "Anna", new String[]{"456", "-", "-"}, new String[]{"-", "-", "-"});
+        manager.saveContact();
+
+        ContactManager loaded = this.open(Long.MAX_VALUE);
+        loaded.loadContact();
+        assertEquals(records(manager), records(loaded));
+        assertEquals("[Rossi, Rossi, Verdi]", surnames(loaded));
+    }
+
+    /**
+     * @test Loads the same files twice, then again after another manager has
+     * changed them, with a contact added and not saved in the meantime
+     *
+     * Expected Result: - Loading unchanged files changes nothing - The
+     * changes of the files are applied, the other contacts keep their
+     * instances - The unsaved contact is kept - The applied changes are not
+     * saved again
+     */
+    @Test
+    public void testReload() throws IOException {
+        System.out.println("Testing reload of changed files");
+        ContactManager writer = this.open(Long.MAX_VALUE);
+        Contact rossi = contact("Rossi", "Mario", "123");
+        writer.addContacts(rossi);
+        writer.addContacts(contact("Bianchi", "Anna", "456"));
+        writer.saveContact();
+
+        ContactManager reader = this.open(Long.MAX_VALUE);
+        reader.loadContact();
+        Contact bianchi = reader.getListOfContacts().get(0);
+        int[] changes = {0};
+        reader.getListOfContacts().addListener((ListChangeListener<Contact>) c -> changes[0]++);
+        reader.loadContact();
+        assertEquals(0, changes[0]);
+        assertEquals(2, reader.getListOfContacts().size());
+
+        reader.addContacts(contact("Neri", "Paolo", "000"));
+        writer.deleteContact(rossi);
+        writer.addContacts(contact("Verdi", "Luca", "789"));
+        writer.saveContact();
+        reader.loadContact();
+        assertEquals("[Bianchi, Neri, Verdi]", surnames(reader));
+        assertSame(bianchi, reader.getListOfContacts().get(0));
+
+        reader.saveContact();
+        ContactManager loaded = this.open(Long.MAX_VALUE);
+        loaded.loadContact();
+        assertEquals(records(reader), records(loaded));
+    }
+
+    /**
+     * Returns the surnames of the contacts of a manager.
+     *
+     * @param manager the manager.
+     * @return the surnames, in order.
+     */
+    private static String surnames(ContactManager manager) {
+        List<String> surnames = new ArrayList<>();
+        for (Contact c : manager.getListOfContacts()) {
+            surnames.add(c.getSurname());
+        }
+        return surnames.toString();
+    }
+}
@@ -0,0 +1,128 @@
+package it.unisa.diem.gruppo9.data;
+
+import it.unisa.diem.gruppo9.logic.Contact;
+import it.unisa.diem.gruppo9.logic.ContactManager;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @file MappedContactStoreTest.java
+ * @brief Unit test for the {@code MappedContactStore} class
+ *
+ * The test verifies that the mapped store returns the contacts of the
+ * snapshot in order, creating only the requested ones, and that its prefix
+ * search returns the same contacts as a linear filter.
+ *
+ * @see MappedContactStore.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-16
+ */
+public class MappedContactStoreTest {
+
+    /**
+     * A temporary directory for the snapshot.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Initializes resources before all tests.
+     */
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("\n\nStarting test MappedContactStoreTest.java...\n\n");
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    public static void tearDownClass() {
+        System.out.println("\n\nFinished testing MappedContactStoreTest.java\n\n");
+    }
+
+    /**
+     * Writes a snapshot with the given surnames.
+     *
+     * @param surnames the surnames of the contacts.
+     * @return the manager holding the saved contacts.
+     */
+    private ContactManager snapshot(String... surnames) throws IOException {
+        ContactManager manager = new ContactManager();
+        for (int i = 0; i < surnames.length; i++) {
+            manager.addContacts(new Contact(surnames[i], "Name" + i,
+                    new String[]{String.valueOf(i), "-", "-"}, new String[]{"-", "-", "-"}));
+        }
+        new BinaryDataManager(manager, directory.resolve("rubrica.bin")).saveContact();
+        return manager;
+    }
+
+    /**
+     * @test Opens a snapshot and requests some rows
+     *
+     * Expected Result: - The rows have the contents and the order of the saved
+     * contacts - Only the requested rows are created - The same row returns
+     * the same contact - A closed store keeps its contacts, refuses new
+     * requests and lets the snapshot be saved again
+     */
+    @Test
+    public void testLazyRows() throws IOException {
+        System.out.println("Testing lazy rows");
+        ContactManager manager = this.snapshot("Rossi", "Bianchi", "Verdi", "Esposito", "Romano");
+        MappedContactStore store = new MappedContactStore(new ContactManager(), directory.resolve("rubrica.bin"));
+
+        assertEquals(5, store.size());
+        assertEquals(0, store.materializedCount());
+        assertEquals(manager.getListOfContacts().get(3).toString(), store.asList().get(3).toString());
+        assertEquals(manager.getListOfContacts().get(0).toString(), store.get(0).toString());
+        assertSame(store.get(3), store.asList().get(3));
+        assertEquals(2, store.materializedCount());
+
+        Contact row = store.get(3);
+        store.close();
+        assertEquals(manager.getListOfContacts().get(3).toString(), row.toString());
+        assertThrows(IllegalStateException.class, () -> store.get(3));
+        assertThrows(IllegalStateException.class, () -> store.search("ros"));
+        assertDoesNotThrow(() -> this.snapshot("Verdi"));
+    }
+
+    /**
+     * @test Searches prefixes with different case and accents
+     *
+     * Expected Result: - The matching contacts are returned in order - The
+     * names are searched too, also of the contacts with an empty surname - A
+     * prefix with no match returns an empty list
+     */
+    @Test
+    public void testSearch() throws IOException {
+        System.out.println("Testing mapped search");
+        this.snapshot("Rossi", "Russo", "Rossini", "Ròssa", "Bianchi", "Verdi");
+        MappedContactStore store = new MappedContactStore(new ContactManager(), directory.resolve("rubrica.bin"));
+
+        List<Contact> found = store.search("ROS");
+        assertEquals(3, found.size());
+        assertEquals("Ròssa", found.get(0).getSurname());
+        assertEquals("Rossi", found.get(1).getSurname());
+        assertEquals("Rossini", found.get(2).getSurname());
+        assertTrue(store.search("z").isEmpty());
+        assertEquals(3, store.materializedCount());
+
+        store.close();
+        this.snapshot("Rossi", "", "Bianchi", "");
+        store = new MappedContactStore(new ContactManager(), directory.resolve("rubrica.bin"));
+        found = store.search("name");
+        assertEquals(4, found.size());
+        assertEquals("", found.get(0).getSurname());
+        assertEquals("Name3", store.search("NAME3").get(0).getName());
+        assertEquals(1, store.search("ross").size());
+        store.close();
+    }
+}
@@ -0,0 +1,122 @@
+package it.unisa.diem.gruppo9.data;
+
+import it.unisa.diem.gruppo9.logic.Contact;
+import it.unisa.diem.gruppo9.logic.ContactManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @file ParallelContactLoaderTest.java
+ * @brief Unit test for the {@code ParallelContactLoader} class
+ *
+ * The test verifies that parsing a file in several chunks gives the same
+ * contacts in the same order as parsing it in one chunk, including records
+ * with quoted newlines and contacts that compare equal, and that a file that
+ * is not valid UTF-8 is read with the platform charset.
+ *
+ * @see ParallelContactLoader.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-15
+ */
+public class ParallelContactLoaderTest {
+
+    /**
+     * A temporary directory for the contact file.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Initializes resources before all tests.
+     */
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("\n\nStarting test ParallelContactLoaderTest.java...\n\n");
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    public static void tearDownClass() {
+        System.out.println("\n\nFinished testing ParallelContactLoaderTest.java\n\n");
+    }
+
+    /**
+     * @test Loads the same file in 1 and in several chunks
+     *
+     * Expected Result: - Both loads return every contact of the file - The
+     * contacts have the same fields in the same order
+     */
+    @Test
+    public void testSameResultAsSingleChunk() throws IOException {
+        System.out.println("Testing parallel load");
+        Path file = directory.resolve("rubrica.csv");
+        String[] surnames = {"Rossi", "Bianchi", "Verdi", "Esposito"};
+        int records = 2000;
+        try (CsvContactWriter writer = new CsvContactWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.writeHeader();
+            for (int i = 0; i < records; i++) {
+                String name = i % 7 == 0 ? "Name\n\"" + (i % 5) + "\"" : "Name" + (i % 5);
+                writer.write(new Contact(surnames[i % surnames.length], name,
+                        new String[]{String.valueOf(i), "-", "-"}, new String[]{"-", "-", "-"}));
+            }
+        }
+
+        ContactManager manager = new ContactManager();
+        List<Contact> sequential = new ParallelContactLoader(manager).load(file, 1);
+        List<Contact> parallel = new ParallelContactLoader(manager).load(file, 13);
+
+        assertEquals(records, sequential.size());
+        assertEquals(records, parallel.size());
+        for (int i = 0; i < records; i++) {
+            assertEquals(sequential.get(i).toString(), parallel.get(i).toString());
+        }
+    }
+
+    /**
+     * @test Loads in several chunks a file written in ISO-8859-1, whose
+     * invalid UTF-8 is in the last chunk only
+     *
+     * Expected Result: - Every chunk is read with the platform charset, as
+     * {@code ContactManager.readContacts} reads the file
+     */
+    @Test
+    public void testLegacyCharset() throws IOException {
+        System.out.println("Testing parallel load of a legacy file");
+        Path file = directory.resolve("rubrica.csv");
+        StringBuilder csv = new StringBuilder("Cognome;Nome;Telefono1;Telefono2;Telefono3;Email1;Email2;Email3\n");
+        int records = 500;
+        for (int i = 0; i < records; i++) {
+            String surname = i == records - 1 ? "Caf\u00e8" : "Rossi";
+            csv.append(surname).append(";Name").append(i).append(";").append(i).append(";-;-;-;-;-\n");
+        }
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.ISO_8859_1);
+        Files.write(file, bytes);
+        Charset platform = CsvContactReader.legacyCharset();
+        if (platform.equals(StandardCharsets.UTF_8)) {
+            assertThrows(IOException.class, () -> new ParallelContactLoader(new ContactManager()).load(file, 7));
+            return;
+        }
+
+        List<Contact> parallel = new ParallelContactLoader(new ContactManager()).load(file, 7);
+
+        assertEquals(records, parallel.size());
+        String legacySurname = new String("Caf\u00e8".getBytes(StandardCharsets.ISO_8859_1), platform);
+        long decoded = parallel.stream().filter(c -> c.getSurname().equals(legacySurname)).count();
+        assertEquals(1, decoded);
+        assertEquals(records - 1, parallel.stream().filter(c -> c.getSurname().equals("Rossi")).count());
+    }
+}
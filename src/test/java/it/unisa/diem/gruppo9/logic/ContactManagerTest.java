@@ -1,14 +1,34 @@
 package it.unisa.diem.gruppo9.logic;
 
+import it.unisa.diem.gruppo9.data.DataManager;
+import it.unisa.diem.gruppo9.data.FileVersion;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.AfterAll;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -116,6 +136,98 @@ public class ContactManagerTest {
         assertEquals(1, contacts.size());
     }
 
+    /**
+     * @test Tests that addContacts inserts the contact in its sorted position
+     * with a single add change.
+     *
+     * Expected Result: - The contact is placed between the contacts that
+     * surround it in the sorted order. - Listeners receive exactly one change,
+     * a one-element addition, and no permutation.
+     */
+    @Test
+    public void testAddContactsSingleChange() {
+        System.out.println("Testing adding contact with a single change");
+        Contact contact1 = new Contact("Dylan", "Bob", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact contact2 = new Contact("Rossi", "Mario", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact contact3 = new Contact("Lennon", "John", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        contactManager.addContacts(contact1);
+        contactManager.addContacts(contact2);
+
+        ObservableList<Contact> contacts = contactManager.getListOfContacts();
+        List<ListChangeListener.Change<? extends Contact>> changes = new ArrayList<>();
+        contacts.addListener((ListChangeListener.Change<? extends Contact> change) -> {
+            while (change.next()) {
+                assertFalse(change.wasPermutated());
+                assertTrue(change.wasAdded());
+                assertEquals(1, change.getAddedSize());
+                assertEquals(1, change.getFrom());
+                changes.add(change);
+            }
+        });
+        contactManager.addContacts(contact3);
+
+        assertEquals(1, changes.size());
+        assertEquals(contact1, contacts.get(0));
+        assertEquals(contact3, contacts.get(1));
+        assertEquals(contact2, contacts.get(2));
+    }
+
+    /**
+     * @test Tests the addAll method merging a collection into a non empty
+     * list.
+     *
+     * Expected Result: - All the contacts are in the list in sorted order,
+     * equal contacts in the order they were added. - Listeners receive a
+     * single change.
+     */
+    @Test
+    public void testAddAll() {
+        System.out.println("Testing adding a collection of contacts");
+        Contact contact1 = new Contact("Dylan", "Bob", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact contact2 = new Contact("Rossi", "Mario", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact contact3 = new Contact("Lennon", "John", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact contact4 = new Contact("Dylan", "Bob", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact contact5 = new Contact("Bianchi", "Luca", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        contactManager.addContacts(contact1);
+        contactManager.addContacts(contact2);
+
+        ObservableList<Contact> contacts = contactManager.getListOfContacts();
+        int[] changes = {0};
+        contacts.addListener((ListChangeListener.Change<? extends Contact> change) -> changes[0]++);
+        contactManager.addAll(Arrays.asList(contact3, null, contact4, contact5, contact1));
+
+        assertEquals(1, changes[0]);
+        assertEquals(5, contacts.size());
+        assertEquals(contact5, contacts.get(0));
+        assertEquals(contact1, contacts.get(1));
+        assertEquals(contact4, contacts.get(2));
+        assertEquals(contact3, contacts.get(3));
+        assertEquals(contact2, contacts.get(4));
+        assertEquals(1, contactManager.searchContact("Lenn").size());
+    }
+
+    /**
+     * @test Applies the contacts read from a file, then the contacts of the
+     * same file with more rows
+     *
+     * Expected Result: - Contacts that sort equal keep the file order - The
+     * rows added to the file are added after them, in file order
+     */
+    @Test
+    public void testApplyLoadedFileOrder() throws IOException {
+        System.out.println("Testing applyLoaded keeps the file order");
+        List<Contact> read = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            read.add(new Contact("Rossi", "Mario", new String[]{String.valueOf(1000 + i * 7919), "-", "-"},
+                    new String[]{"-", "-", "-"}));
+        }
+        contactManager.applyLoaded(FileVersion.of(Paths.get("missing.csv")), read.subList(0, 8));
+        assertEquals(read.subList(0, 8), contactManager.getListOfContacts());
+
+        contactManager.applyLoaded(FileVersion.of(Paths.get("missing.csv"), Paths.get("missing.csv")), read);
+        assertEquals(read, contactManager.getListOfContacts());
+    }
+
     /**
      * @test Tests the deleteContact method deleting an existing contact. -
      * Attempting to delete a non-existent contact.
@@ -133,6 +245,37 @@ public class ContactManagerTest {
         assertEquals(0, contacts.size());
     }
 
+    /**
+     * @test Tests the deleteContact method among contacts with identical name
+     * and surname.
+     *
+     * Expected Result: - Only the given instance is removed. - The remaining
+     * contacts keep their sorted order.
+     */
+    @Test
+    public void testDeleteContactIdentity() {
+        System.out.println("Testing deleting contact by identity");
+        Contact contact1 = new Contact("Dylan", "Bob", new String[]{"12345", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact contact2 = new Contact("Dylan", "Bob", new String[]{"67890", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact contact3 = new Contact("Rossi", "Mario", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact contact4 = new Contact("Bianchi", "Luca", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        contactManager.addContacts(contact1);
+        contactManager.addContacts(contact2);
+        contactManager.addContacts(contact3);
+        contactManager.addContacts(contact4);
+        assertNotEquals(contact1.getId(), contact2.getId());
+
+        contactManager.deleteContact(contact2);
+        ObservableList<Contact> contacts = contactManager.getListOfContacts();
+        assertEquals(3, contacts.size());
+        assertEquals(contact4, contacts.get(0));
+        assertEquals(contact1, contacts.get(1));
+        assertEquals(contact3, contacts.get(2));
+
+        contactManager.deleteContact(contact2);
+        assertEquals(3, contacts.size());
+    }
+
     /**
      * @test Tests the deleteContact method deleting a non-existent contact.
      *
@@ -186,6 +329,152 @@ public class ContactManagerTest {
         assertEquals(0, result.size());
     }
 
+    /**
+     * @test Tests the searchContact method with several matches, after a
+     * deletion.
+     *
+     * Expected Result: - Every contact whose name or surname starts with the
+     * substring is returned once, in sorted order. - A deleted contact is no
+     * longer returned.
+     */
+    @Test
+    public void testSearchContactIndexed() {
+        System.out.println("Testing search contact with several matches");
+        Contact contact1 = new Contact("Rossi", "Mario", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact contact2 = new Contact("Marini", "Luca", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact contact3 = new Contact("Marchi", "Marco", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact contact4 = new Contact("Bianchi", "Anna", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        contactManager.addContacts(contact1);
+        contactManager.addContacts(contact2);
+        contactManager.addContacts(contact3);
+        contactManager.addContacts(contact4);
+
+        ObservableList<Contact> result = contactManager.searchContact("Mar");
+        assertEquals(3, result.size());
+        assertEquals(contact3, result.get(0));
+        assertEquals(contact2, result.get(1));
+        assertEquals(contact1, result.get(2));
+
+        contactManager.deleteContact(contact2);
+        result = contactManager.searchContact("Mar");
+        assertEquals(2, result.size());
+        assertFalse(result.contains(contact2));
+    }
+
+    /**
+     * @test Tests the searchContact method ignoring case and accents.
+     *
+     * Expected Result: - The contact is found whatever the case and the
+     * accents of the substring.
+     */
+    @Test
+    public void testSearchContactNormalized() {
+        System.out.println("Testing search contact ignoring case and accents");
+        Contact contact = new Contact("Esposito", "Nicolò", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        contactManager.addContacts(contact);
+
+        assertEquals(1, contactManager.searchContact("nicolo").size());
+        assertEquals(1, contactManager.searchContact("NICOLÒ").size());
+        assertEquals(1, contactManager.searchContact("esp").size());
+        assertEquals(0, contactManager.searchContact("nicola").size());
+    }
+
+    /**
+     * @test Tests a search session with extended, shortened and stale queries.
+     *
+     * Expected Result: - Every query returns the same result as searchContact,
+     * whether it narrows the previous result or not. - A contact added after
+     * the previous query is found by the next one. - A query that becomes a
+     * phone number or an email address finds the contacts by their numbers
+     * or addresses.
+     */
+    @Test
+    public void testSearchSession() {
+        System.out.println("Testing search session");
+        Contact contact1 = new Contact("Rossi", "Mario", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact contact2 = new Contact("Marini", "Luca", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact contact3 = new Contact("Marchi", "Marco", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        contactManager.addContacts(contact1);
+        contactManager.addContacts(contact2);
+        contactManager.addContacts(contact3);
+
+        SearchSession session = contactManager.openSearchSession();
+        assertEquals(contactManager.searchContact("M"), session.search("M"));
+        assertEquals(contactManager.searchContact("Mar"), session.search("Mar"));
+        assertEquals(contactManager.searchContact("Marc"), session.search("Marc"));
+        assertEquals(1, session.search("Marc").size());
+        assertEquals(3, session.search("Ma").size());
+
+        Contact contact4 = new Contact("Martini", "Carla", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        contactManager.addContacts(contact4);
+        ObservableList<Contact> result = session.search("Mart");
+        assertEquals(1, result.size());
+        assertEquals(contact4, result.get(0));
+
+        Contact contact5 = new Contact("Verdi", "Anna", new String[]{"+39 333 1234567", "-", "-"}, new String[]{"-", "-", "-"});
+        contactManager.addContacts(contact5);
+        assertTrue(session.search("+").isEmpty());
+        assertEquals(contactManager.searchContact("+39"), session.search("+39"));
+        assertEquals(1, session.search("+39").size());
+        assertTrue(session.search("00").isEmpty());
+        assertEquals(1, session.search("0039 333").size());
+
+        Contact contact6 = new Contact("Bianchi", "Anna", new String[]{"-", "-", "-"}, new String[]{"ross@acme.it", "-", "-"});
+        contactManager.addContacts(contact6);
+        assertEquals(contact1, session.search("ross").get(0));
+        assertEquals(contactManager.searchContact("ross@"), session.search("ross@"));
+        assertEquals(contact6, session.search("ross@").get(0));
+        assertEquals(1, session.search("ross@acme").size());
+    }
+
+    /**
+     * @test Runs a search session on a background thread while contacts are
+     * added and deleted
+     *
+     * Expected Result: - No search fails - Every result is sorted and made of
+     * matching contacts - The last search finds every matching contact
+     */
+    @Test
+    public void testSearchSessionInBackground() throws Exception {
+        System.out.println("Testing search session on a background thread");
+        SearchSession session = contactManager.openSearchSession();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread searcher = new Thread(() -> {
+            String[] queries = {"m", "ma", "mar", "b", "mari"};
+            while (done.getCount() > 0) {
+                for (String query : queries) {
+                    try {
+                        List<Contact> result = session.search(query);
+                        for (int i = 0; i < result.size(); i++) {
+                            if (!result.get(i).getSurnameKey().startsWith(query)
+                                    || (i > 0 && contactManager.getComparator().compare(result.get(i - 1), result.get(i)) > 0)) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }
+        });
+        searcher.start();
+        List<Contact> added = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Contact c = new Contact((i % 2 == 0 ? "Mari" : "Bianchi") + i, "Name", new String[]{"-", "-", "-"},
+                    new String[]{"-", "-", "-"});
+            contactManager.addContacts(c);
+            added.add(c);
+            if (i % 3 == 0) {
+                contactManager.deleteContact(added.remove(added.size() / 2));
+            }
+        }
+        done.countDown();
+        searcher.join(10_000);
+        assertEquals(0, errors.get());
+        assertEquals(contactManager.searchContact("mari"), session.search("mari"));
+    }
+
     /**
      * @test Tests the createContact method with valid contact.
      *
@@ -319,4 +608,276 @@ public class ContactManagerTest {
         System.out.println("Testing load contact list");
         assertDoesNotThrow(() -> contactManager.loadContact());
     }
+
+    /**
+     * @test Creates contacts in compact mode and searches them
+     *
+     * Expected Result: - The created contacts are packed - The pool of the
+     * field values is still available - The contacts stay packed once indexed
+     * and loaded, and their attributes are decoded without being kept - The
+     * contacts are sorted and found as usual
+     */
+    @Test
+    public void testCompactMode() {
+        System.out.println("Testing compact mode");
+        contactManager.setCompact(true);
+        Contact verdi = contactManager.createContact("Verdi", "Luca", new String[]{"1", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact bianchi = contactManager.createContact("Bianchi", "Anna", new String[]{"2", "-", "-"}, new String[]{"-", "-", "-"});
+        assertTrue(verdi.isPacked());
+        assertNotNull(contactManager.getStringPool());
+
+        contactManager.addContacts(verdi);
+        contactManager.addLoaded(Arrays.asList(bianchi));
+        assertTrue(verdi.isPacked());
+        assertTrue(bianchi.isPacked());
+        assertNotSame(bianchi.getName(), bianchi.getName());
+        assertSame(bianchi, contactManager.getListOfContacts().get(0));
+        assertEquals(1, contactManager.searchContact("ver").size());
+        assertEquals("Verdi;Luca;1;-;-;-;-;-\n", verdi.toString());
+    }
+
+    /**
+     * @test Requests three saves while the first one is blocked in the
+     * storage
+     *
+     * Expected Result: - The second and third requests share one queued save
+     * - The storage is invoked twice in total - No save is in progress at the
+     * end
+     */
+    @Test
+    public void testSaveContactAsyncCoalesces() throws Exception {
+        System.out.println("Testing asynchronous save");
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger saves = new AtomicInteger();
+        contactManager.setStorage(new DataManager() {
+            @Override
+            public void saveContact() throws IOException {
+                saves.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+
+            @Override
+            public ContactManager loadContact() {
+                return contactManager;
+            }
+        });
+
+        CompletableFuture<Void> first = contactManager.saveContactAsync();
+        CompletableFuture<Void> second = contactManager.saveContactAsync();
+        CompletableFuture<Void> third = contactManager.saveContactAsync();
+        assertNotSame(first, second);
+        assertSame(second, third);
+        assertTrue(contactManager.isSaving());
+
+        release.countDown();
+        third.get(5, TimeUnit.SECONDS);
+        assertTrue(first.isDone());
+        assertEquals(2, saves.get());
+        assertFalse(contactManager.isSaving());
+    }
+
+    /**
+     * @test Loads in parallel with a storage selected and during a background
+     * load
+     *
+     * Expected Result: - The load is delegated to the storage - No load is
+     * made while the background load runs
+     */
+    @Test
+    public void testLoadContactParallelGuards() throws Exception {
+        System.out.println("Testing the guards of the parallel load");
+        AtomicInteger loads = new AtomicInteger();
+        contactManager.setStorage(new DataManager() {
+            @Override
+            public void saveContact() {
+            }
+
+            @Override
+            public ContactManager loadContact() {
+                loads.incrementAndGet();
+                return contactManager;
+            }
+        });
+        assertSame(contactManager, contactManager.loadContactParallel());
+        assertEquals(1, loads.get());
+
+        CompletableFuture<Void> background = new CompletableFuture<>();
+        contactManager.setBackgroundLoad(background);
+        contactManager.loadContactParallel();
+        assertEquals(1, loads.get());
+        background.complete(null);
+        contactManager.loadContactParallel();
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * @test Saves the contact file while a background load is adding the
+     * contacts
+     *
+     * Expected Result: - Both the synchronous and the asynchronous save are
+     * refused with an IOException - The saves succeed once the load is done
+     */
+    @Test
+    public void testSaveDuringBackgroundLoad() throws Exception {
+        System.out.println("Testing saves during a background load");
+        CompletableFuture<Void> background = new CompletableFuture<>();
+        contactManager.setBackgroundLoad(background);
+        assertThrows(IOException.class, () -> contactManager.saveContact());
+        CompletableFuture<Void> refused = contactManager.saveContactAsync();
+        assertTrue(refused.isCompletedExceptionally());
+        assertFalse(contactManager.isSaving());
+
+        background.complete(null);
+        assertDoesNotThrow(() -> contactManager.saveContact());
+        contactManager.saveContactAsync().get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @test Edits a contact in place while an asynchronous save is running
+     *
+     * Expected Result: - The file contains the attributes of the contact at
+     * the time the save was requested
+     */
+    @Test
+    public void testSaveContactAsyncSnapshot() throws Exception {
+        System.out.println("Testing asynchronous save of edited contacts");
+        Contact contact = new Contact("Dylan", "Bob", new String[]{"12345", "-", "-"}, new String[]{"bob.dylan@example.com", "-", "-"});
+        contactManager.addContacts(contact);
+
+        CompletableFuture<Void> save = contactManager.saveContactAsync();
+        contact.setName("Robert");
+        save.get(5, TimeUnit.SECONDS);
+        String content = new String(Files.readAllBytes(Paths.get("rubrica.csv")), StandardCharsets.UTF_8);
+        assertTrue(content.contains("Bob"));
+        assertFalse(content.contains("Robert"));
+
+        contactManager.deleteContact(contact);
+        contactManager.saveContact();
+    }
+
+    /**
+     * @test Adds contacts that are the same person with different case,
+     * accents and phone number formats, with both duplicate policies
+     *
+     * Expected Result: - With the flag policy the duplicates are added and
+     * flagged - A bulk addition reports its duplicates - With the reject
+     * policy the duplicates are not added - A contact deleted is no longer a
+     * duplicate
+     */
+    @Test
+    public void testDuplicates() {
+        System.out.println("Testing duplicate detection");
+        Contact rossi = new Contact("Rossi", "Nicolò", new String[]{"+39 333 1234567", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact sameRossi = new Contact("ROSSI", "nicolo", new String[]{"-", "00393331234567", "-"}, new String[]{"a@b.it", "-", "-"});
+        Contact otherRossi = new Contact("Rossi", "Nicolò", new String[]{"3330000000", "-", "-"}, new String[]{"-", "-", "-"});
+        contactManager.addContacts(rossi);
+        assertFalse(contactManager.isDuplicate(rossi));
+        assertSame(rossi, contactManager.findDuplicate(sameRossi));
+        assertNull(contactManager.findDuplicate(otherRossi));
+
+        contactManager.addContacts(sameRossi);
+        assertTrue(contactManager.isDuplicate(rossi));
+        assertTrue(contactManager.isDuplicate(sameRossi));
+
+        Contact bianchi = new Contact("Bianchi", "Anna", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact sameBianchi = new Contact("Bianchi", "Anna", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact thirdRossi = new Contact("Rossi", "Nicolo", new String[]{"393331234567", "-", "-"}, new String[]{"-", "-", "-"});
+        assertEquals(2, contactManager.addAll(Arrays.asList(bianchi, otherRossi, sameBianchi, thirdRossi)));
+        assertEquals(2, contactManager.getLastDuplicates());
+        assertEquals(6, contactManager.getListOfContacts().size());
+
+        contactManager.setDuplicatePolicy(DuplicatePolicy.REJECT);
+        Contact rejected = new Contact("Bianchi", "Anna", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        contactManager.addContacts(rejected);
+        assertEquals(1, contactManager.addAll(Arrays.asList(
+                new Contact("Verdi", "Luca", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"}),
+                new Contact("Rossi", "Nicolò", new String[]{"3330000000", "-", "-"}, new String[]{"-", "-", "-"}))));
+        assertEquals(7, contactManager.getListOfContacts().size());
+        assertFalse(contactManager.getListOfContacts().contains(rejected));
+
+        contactManager.deleteContact(sameBianchi);
+        assertFalse(contactManager.isDuplicate(bianchi));
+    }
+
+    /**
+     * @test Edits a contact and searches it by phone number and email
+     *
+     * Expected Result: - The edited contact is in its new sorted position -
+     * The searches find it under its new attributes only - A search for the
+     * digits of a number finds its contacts - An edit that makes a duplicate
+     * is undone under the REJECT policy
+     */
+    @Test
+    public void testEditContact() {
+        System.out.println("Testing editContact and phone search");
+        Contact rossi = new Contact("Rossi", "Mario", new String[]{"+39 333 1234567", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact bianchi = new Contact("Bianchi", "Anna", new String[]{"089 961111", "-", "-"}, new String[]{"-", "-", "-"});
+        contactManager.addAll(Arrays.asList(rossi, bianchi));
+        assertEquals(rossi, contactManager.searchContact("333 123").get(0));
+        assertEquals(bianchi, contactManager.searchPhoneSuffix("1111").get(0));
+        assertEquals(rossi, contactManager.lookupPhoneNumber("0039 3331234567").get(0));
+
+        assertTrue(contactManager.editContact(rossi, "Amato", "Mario", new String[]{"02 4567", "-", "-"},
+                new String[]{"-", "m.amato@acme.it", "-"}));
+        assertEquals(rossi, contactManager.searchContact("amato@").get(0));
+        assertEquals(rossi, contactManager.searchEmail("ACME").get(0));
+        assertTrue(contactManager.searchContact("acme").isEmpty());
+        assertEquals(rossi, contactManager.getListOfContacts().get(0));
+        assertTrue(contactManager.searchContact("Rossi").isEmpty());
+        assertTrue(contactManager.searchPhoneNumber("3331234").isEmpty());
+        assertEquals(rossi, contactManager.searchContact("Amato").get(0));
+        assertEquals(rossi, contactManager.searchContact("024567").get(0));
+
+        contactManager.setDuplicatePolicy(DuplicatePolicy.REJECT);
+        assertFalse(contactManager.editContact(rossi, "Bianchi", "Anna", new String[]{"089961111", "-", "-"},
+                new String[]{"-", "-", "-"}));
+        assertEquals("Amato", rossi.getSurname());
+        assertEquals(2, contactManager.getListOfContacts().size());
+        assertThrows(RuntimeException.class, () -> contactManager.editContact(rossi, "", "",
+                new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"}));
+    }
+
+    /**
+     * @test Edits contacts in place with and without a change of their sort
+     * key
+     *
+     * Expected Result: - An edit that keeps the order does not change the
+     * list and updates the observable values of the contact - An edit that
+     * changes the order moves the contact with one removal and one insertion
+     * - The edit listeners receive the contact before and after every edit
+     */
+    @Test
+    public void testEditInPlace() {
+        System.out.println("Testing in-place editContact");
+        Contact bianchi = new Contact("Bianchi", "Anna", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact rossi = new Contact("Rossi", "Mario", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact verdi = new Contact("Verdi", "Luca", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        contactManager.addAll(Arrays.asList(bianchi, rossi, verdi));
+        List<String> edits = new ArrayList<>();
+        contactManager.addEditListener((before, after) -> edits.add(before.getSurname() + ">" + after.getSurname()));
+        List<String> changes = new ArrayList<>();
+        contactManager.getListOfContacts().addListener((ListChangeListener<Contact>) change -> {
+            while (change.next()) {
+                changes.add((change.wasRemoved() ? "-" : "+") + change.getFrom());
+            }
+        });
+        String[] phones = {"333", "-", "-"};
+
+        ReadOnlyStringProperty phoneText = rossi.phoneNumberTextProperty();
+        assertTrue(contactManager.editContact(rossi, "Rossini", "Mario", phones, new String[]{"-", "-", "-"}));
+        assertTrue(changes.isEmpty());
+        assertEquals("333\n-\n-", phoneText.get());
+        assertEquals("Rossini", rossi.surnameProperty().get());
+        assertEquals(rossi, contactManager.searchContact("Rossini").get(0));
+
+        assertTrue(contactManager.editContact(rossi, "Zanetti", "Mario", phones, new String[]{"-", "-", "-"}));
+        assertEquals(Arrays.asList("-1", "+2"), changes);
+        assertEquals(Arrays.asList(bianchi, verdi, rossi), contactManager.getListOfContacts());
+        assertEquals(Arrays.asList("Rossi>Rossini", "Rossini>Zanetti"), edits);
+        assertFalse(contactManager.isEditing());
+    }
 }
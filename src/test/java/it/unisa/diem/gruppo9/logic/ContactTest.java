@@ -343,6 +343,25 @@ public class ContactTest {
         assertEquals("inWonderland", contact.getSurname());
     }
 
+    /**
+     * @test Verify the normalized keys of {@code name} and {@code surname}.
+     * Expected Result:
+     * - the keys are lower case and without accents, "Nicolò" becomes "nicolo"
+     * - the keys are updated by the setters
+     */
+    @Test
+    public void testNormalizedKeys() {
+        System.out.println("Testing normalized keys...");
+        assertEquals("bob", contact.getNameKey());
+        assertEquals("dylan", contact.getSurnameKey());
+        contact.setName("Nicolò");
+        contact.setSurname("D'Àmbrosio");
+        assertEquals("nicolo", contact.getNameKey());
+        assertEquals("d'ambrosio", contact.getSurnameKey());
+        assertEquals("Nicolò", contact.getName());
+        assertNull(Contact.normalize(null));
+    }
+
     /**
      * @test Verify the {@code setPhoneNumber}.
      * Expected Result:
@@ -481,4 +500,89 @@ public class ContactTest {
         assertEquals(expectedString, singleSurnameContact.toString());
     }
 
+    /**
+     * @test Packs a contact with accented and empty attributes, reads it and
+     * edits it
+     *
+     * Expected Result: - The getters and {@code toString()} return the same
+     * values as before packing - A decoded attribute is not kept, so the
+     * contact stays packed - Setting an attribute unpacks the contact and
+     * keeps the other attributes
+     */
+    @Test
+    public void testPackedContact() {
+        System.out.println("Testing packed contact...");
+        Contact contact = new Contact("Nicolò", "", new String[]{"123", "-", "-"}, new String[]{"n@x.it", "-", "-"});
+        String expected = contact.toString();
+        contact.pack();
+
+        assertTrue(contact.isPacked());
+        assertEquals("Nicolò", contact.getSurname());
+        assertNotSame(contact.getSurname(), contact.getSurname());
+        assertArrayEquals(new String[]{"123", "-", "-"}, contact.getPhoneNumber());
+        assertTrue(contact.isPacked());
+        assertEquals("", contact.getName());
+        assertEquals("nicolo", contact.getSurnameKey());
+        assertEquals(expected, contact.toString());
+
+        contact.setSurname("Rossi");
+        assertFalse(contact.isPacked());
+        assertEquals("Rossi;;123;-;-;n@x.it;-;-\n", contact.toString());
+    }
+
+    /**
+     * @test Hashes the content of contacts, packed and not
+     *
+     * Expected Result: - A packed contact has the hash it had before packing,
+     * also with accents and characters outside the BMP - Contacts with the
+     * same attributes have the same hash - Moving characters between
+     * attributes or changing one changes the hash
+     */
+    @Test
+    public void testContentHash() {
+        System.out.println("Testing content hash...");
+        Contact contact = new Contact("Nicolò", "\uD83D\uDE00", new String[]{"123", "-", "-"}, new String[]{"n@x.it", "-", "-"});
+        long hash = contact.contentHash();
+        contact.pack();
+        assertTrue(contact.isPacked());
+        assertEquals(hash, contact.contentHash());
+        assertEquals(hash, new Contact("Nicolò", "\uD83D\uDE00", new String[]{"123", "-", "-"},
+                new String[]{"n@x.it", "-", "-"}).contentHash());
+
+        Contact ab = new Contact("ab", "c", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        Contact bc = new Contact("a", "bc", new String[]{"-", "-", "-"}, new String[]{"-", "-", "-"});
+        assertNotEquals(ab.contentHash(), bc.contentHash());
+        long before = ab.contentHash();
+        ab.setEmail(new String[]{"-", "-", "a@x.it"});
+        assertNotEquals(before, ab.contentHash());
+    }
+
+    /**
+     * @test Reads the observable values of a contact and edits it
+     *
+     * Expected Result: - The values are those of the getters, with one phone
+     * number or email per line - The same property is returned every time -
+     * The setters update the properties already returned
+     */
+    @Test
+    public void testCellValues() {
+        System.out.println("Testing observable cell values...");
+        Contact contact = new Contact("Rossi", "Mario", new String[]{"123", "-", "-"}, new String[]{"m@x.it", "-", "-"});
+        contact.pack();
+
+        assertEquals("Rossi", contact.surnameProperty().get());
+        assertEquals("Mario", contact.nameProperty().get());
+        assertEquals("123\n-\n-", contact.phoneNumberTextProperty().get());
+        assertEquals("m@x.it\n-\n-", contact.emailTextProperty().get());
+        assertSame(contact.phoneNumberTextProperty(), contact.phoneNumberTextProperty());
+
+        contact.setSurname("Bianchi");
+        contact.setName("Anna");
+        contact.setPhoneNumber(new String[]{"456", "789", "-"});
+        contact.setEmail(new String[]{"-", "-", "a@x.it"});
+        assertEquals("Bianchi", contact.surnameProperty().get());
+        assertEquals("Anna", contact.nameProperty().get());
+        assertEquals("456\n789\n-", contact.phoneNumberTextProperty().get());
+        assertEquals("-\n-\na@x.it", contact.emailTextProperty().get());
+    }
 }
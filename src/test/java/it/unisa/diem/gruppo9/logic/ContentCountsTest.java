@@ -0,0 +1,82 @@
+package it.unisa.diem.gruppo9.logic;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @file ContentCountsTest.java
+ * @brief Unit test for the {@code ContentCounts} class
+ *
+ * The test verifies that the counts follow the additions and removals of a
+ * {@code HashMap}, across growth and deletions within probe sequences.
+ *
+ * @see ContentCounts.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+public class ContentCountsTest {
+
+    /**
+     * Initializes resources before all tests.
+     */
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("\n\nStarting test ContentCountsTest.java...\n\n");
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    public static void tearDownClass() {
+        System.out.println("\n\nFinished testing ContentCountsTest.java\n\n");
+    }
+
+    /**
+     * @test Adds and removes random hashes, some colliding in the table
+     *
+     * Expected Result: - Every count is the one of a {@code HashMap} -
+     * Removing a missing hash changes nothing - The difference of two
+     * multisets has the hashes counted more in the first
+     */
+    @Test
+    public void testCounts() {
+        System.out.println("Testing content counts");
+        ContentCounts counts = new ContentCounts();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(18);
+        for (int i = 0; i < 20_000; i++) {
+            long key = random.nextInt(2_000) * 1024L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.containsKey(key), counts.remove(key));
+                expected.computeIfPresent(key, (k, n) -> n == 1 ? null : n - 1);
+            } else {
+                assertEquals((int) expected.merge(key, 1, Integer::sum), counts.add(key));
+            }
+        }
+        for (long key = 0; key < 2_000 * 1024L; key += 1024) {
+            assertEquals((int) expected.getOrDefault(key, 0), counts.count(key));
+        }
+
+        ContentCounts other = new ContentCounts();
+        other.add(1);
+        other.add(2);
+        other.add(2);
+        counts.clear();
+        assertTrue(counts.isEmpty());
+        counts.add(2);
+        counts.add(3);
+        ContentCounts difference = other.minus(counts);
+        assertEquals(1, difference.count(1));
+        assertEquals(1, difference.count(2));
+        assertEquals(0, difference.count(3));
+        assertTrue(counts.minus(counts).isEmpty());
+    }
+}
@@ -0,0 +1,157 @@
+package it.unisa.diem.gruppo9.logic;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @file EmailIndexTest.java
+ * @brief Unit test for the {@code EmailIndex} class
+ *
+ * The test verifies the substring search against a scan of the contacts,
+ * while contacts are added and removed.
+ *
+ * @see EmailIndex.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+public class EmailIndexTest {
+
+    private static final String[] USERS = {"rossi", "m.rossi", "bianchi", "anna.verdi", "luca_nicolo", "info"};
+
+    private static final String[] DOMAINS = {"acme.it", "gmail.com", "libero.it", "unisa.it", "studenti.unisa.it"};
+
+    /**
+     * Initializes resources before all tests.
+     */
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("\n\nStarting test EmailIndexTest.java...\n\n");
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    public static void tearDownClass() {
+        System.out.println("\n\nFinished testing EmailIndexTest.java\n\n");
+    }
+
+    /**
+     * Creates a contact with some email addresses.
+     *
+     * @param emails the email addresses, up to three.
+     * @return the contact.
+     */
+    private static Contact contact(String... emails) {
+        String[] email = {"-", "-", "-"};
+        System.arraycopy(emails, 0, email, 0, emails.length);
+        return new Contact("Rossi", "Mario", new String[]{"-", "-", "-"}, email);
+    }
+
+    /**
+     * @test Searches parts of the addresses of all the slots
+     *
+     * Expected Result: - The user part and the domain part are found - The
+     * search ignores case - The second and third slots are searched - A
+     * contact is returned once - Strings that are not contained are not found
+     * even if all their trigrams are
+     */
+    @Test
+    public void testSearch() {
+        System.out.println("Testing email search");
+        EmailIndex index = new EmailIndex();
+        Contact mario = contact("Mario.Rossi@acme.it", "rossi@gmail.com");
+        Contact anna = contact("-", "-", "anna@acme.it");
+        index.add(mario);
+        index.add(anna);
+
+        assertEquals(1, index.search("rossi@").size());
+        assertEquals(2, index.search("@ACME.it").size());
+        assertEquals(anna, index.search("anna@").get(0));
+        assertEquals(2, index.search("it").size());
+        assertTrue(index.search("mario.rossi@gmail.com").isEmpty());
+        assertTrue(index.search("-").isEmpty());
+        assertTrue(index.matches(anna, "@acme"));
+        assertFalse(index.matches(anna, "gmail"));
+
+        index.remove(mario);
+        assertTrue(index.search("rossi").isEmpty());
+        assertEquals(1, index.search("@acme.it").size());
+    }
+
+    /**
+     * @test Compares the search with a scan while contacts are added,
+     * removed, added again and edited
+     *
+     * Expected Result: - Every search returns the contacts of the scan
+     */
+    @Test
+    public void testAgainstScan() {
+        System.out.println("Testing email search against a scan of the contacts");
+        Random random = new Random(42);
+        EmailIndex index = new EmailIndex();
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String[] emails = new String[1 + random.nextInt(3)];
+            for (int j = 0; j < emails.length; j++) {
+                emails[j] = USERS[random.nextInt(USERS.length)] + random.nextInt(100) + "@"
+                        + DOMAINS[random.nextInt(DOMAINS.length)];
+            }
+            Contact c = contact(emails);
+            contacts.add(c);
+            index.add(c);
+        }
+        this.check(index, contacts, random);
+        List<Contact> removed = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Contact c = contacts.remove(random.nextInt(contacts.size()));
+            index.remove(c);
+            removed.add(c);
+        }
+        this.check(index, contacts, random);
+        for (int i = 0; i < 300; i++) {
+            Contact c = removed.get(i);
+            index.add(c);
+            contacts.add(c);
+            Contact edited = contacts.get(random.nextInt(contacts.size()));
+            index.remove(edited);
+            edited.setEmail(new String[]{USERS[random.nextInt(USERS.length)] + "@" + DOMAINS[random.nextInt(DOMAINS.length)]});
+            index.add(edited);
+        }
+        this.check(index, contacts, random);
+    }
+
+    /**
+     * Compares random searches with a scan of the contacts.
+     *
+     * @param index the index.
+     * @param contacts the indexed contacts.
+     * @param random the source of the strings searched.
+     */
+    private void check(EmailIndex index, List<Contact> contacts, Random random) {
+        for (int i = 0; i < 200; i++) {
+            String email = USERS[random.nextInt(USERS.length)] + random.nextInt(100) + "@"
+                    + DOMAINS[random.nextInt(DOMAINS.length)];
+            int start = random.nextInt(email.length());
+            String s = email.substring(start, Math.min(email.length(), start + 1 + random.nextInt(8)));
+            Set<Contact> expected = new HashSet<>();
+            for (Contact c : contacts) {
+                for (String e : c.getEmail()) {
+                    if (!e.equals("-") && e.contains(s)) {
+                        expected.add(c);
+                    }
+                }
+            }
+            assertEquals(expected, new HashSet<>(index.search(s)), s);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package it.unisa.diem.gruppo9.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @file FuzzyIndexTest.java
+ * @brief Unit test for the {@code FuzzyIndex} class
+ *
+ * The test verifies that typos are tolerated within the allowed distance and
+ * that the results are ranked by distance.
+ *
+ * @see FuzzyIndex.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+public class FuzzyIndexTest {
+
+    private final NameAndSurnameComparator order = new NameAndSurnameComparator();
+
+    /**
+     * Initializes resources before all tests.
+     */
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("\n\nStarting test FuzzyIndexTest.java...\n\n");
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    public static void tearDownClass() {
+        System.out.println("\n\nFinished testing FuzzyIndexTest.java\n\n");
+    }
+
+    /**
+     * Creates a contact.
+     *
+     * @param surname the surname.
+     * @param name the name.
+     * @param email the first email address.
+     * @return the contact.
+     */
+    private static Contact contact(String surname, String name, String email) {
+        return new Contact(surname, name, new String[]{"-", "-", "-"}, new String[]{email, "-", "-"});
+    }
+
+    /**
+     * @test Searches names with typos
+     *
+     * Expected Result: - A missing, a wrong and a swapped letter are found -
+     * The exact match ranks first - A prefix matches with no errors - Every
+     * word of the search must match - Short words allow no errors - The
+     * email user parts are matched through the email index, with one error
+     */
+    @Test
+    public void testTypos() {
+        System.out.println("Testing fuzzy search with typos");
+        EmailIndex emails = new EmailIndex();
+        FuzzyIndex index = new FuzzyIndex(emails);
+        Contact rossi = contact("Rossi", "Mario", "mario.rossi@acme.it");
+        Contact rosi = contact("Rosi", "Anna", "-");
+        Contact russo = contact("Russo", "Luca", "-");
+        Contact bianchi = contact("Bianchi", "Nicolò", "nbianchi@gmail.com");
+        for (Contact c : Arrays.asList(rossi, rosi, russo, bianchi)) {
+            emails.add(c);
+            index.add(c);
+        }
+
+        assertEquals(Arrays.asList(rosi, rossi), index.search("Rosi", 10, order));
+        assertEquals(Arrays.asList(rossi, rosi), index.search("Rossi", 10, order));
+        assertEquals(Arrays.asList(rossi), index.search("Rossi", 1, order));
+        assertEquals(index.search("Rosi", 10, order), FuzzyIndex.best(index.scores("Rosi"), 10, order));
+        assertEquals(Arrays.asList(bianchi), index.search("Bainchi", 10, order));
+        assertEquals(Arrays.asList(bianchi), index.search("nicolo bianci", 10, order));
+        assertEquals(Arrays.asList(rossi), index.search("Ross Maro", 10, order));
+        assertEquals(Arrays.asList(bianchi), index.search("nbianchi", 10, order));
+        assertEquals(Arrays.asList(rossi), index.search("mario.rosi", 10, order));
+        assertEquals(Arrays.asList(rossi), index.search("rossi mari.rossi", 10, order));
+        assertTrue(index.search("mari.rosi", 10, order).isEmpty());
+        assertTrue(index.search("Ra", 10, order).isEmpty());
+        assertTrue(index.search("Verdi", 10, order).isEmpty());
+        assertTrue(index.search("", 10, order).isEmpty());
+    }
+
+    /**
+     * @test Removes contacts and limits the number of results
+     *
+     * Expected Result: - A removed contact is not found - Its terms still
+     * find the other contacts having them - At most k contacts are returned,
+     * the closest ones
+     */
+    @Test
+    public void testRemoveAndTopK() {
+        System.out.println("Testing fuzzy search after removals and with top-k");
+        FuzzyIndex index = new FuzzyIndex();
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Contact c = contact(i % 2 == 0 ? "Esposito" : "Esposti", "Name" + i, "-");
+            contacts.add(c);
+            index.add(c);
+        }
+        List<Contact> top = index.search("Esposito", 5, order);
+        assertEquals(5, top.size());
+        for (Contact c : top) {
+            assertEquals("Esposito", c.getSurname());
+        }
+        for (int i = 0; i < 50; i += 2) {
+            index.remove(contacts.get(i));
+        }
+        top = index.search("Esposito", 100, order);
+        assertEquals(25, top.size());
+        for (Contact c : top) {
+            assertEquals("Esposti", c.getSurname());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package it.unisa.diem.gruppo9.logic;
 
+import java.util.Locale;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -193,4 +194,32 @@ public class NameAndSurnameComparatorTest {
         assertEquals(0, result, "Contacts with identical names and surnames should be considered equal.");
     }
 
+    /**
+     * @test Compares contacts with the collation mode for the Italian locale
+     * Verify that the collation keys give the same results as the default mode
+     * on the cases above and that they are recomputed after an edit
+     *
+     * Expected Result: - the results agree with the default comparator - the
+     * order changes after the surname is edited
+     */
+    @Test
+    public void testCompareCollationMode() {
+        System.out.println("Testing collation mode");
+        NameAndSurnameComparator italian = new NameAndSurnameComparator(Locale.ITALIAN);
+        contact1 = new Contact("Dylan", "Bob", emptyPhoneNumbers, emptyEmails);
+        contact2 = new Contact("inWonderland", "Alice", emptyPhoneNumbers, emptyEmails);
+        Contact contact3 = new Contact(null, "Élodie", emptyPhoneNumbers, emptyEmails);
+        Contact contact4 = new Contact("dylan", "bob", emptyPhoneNumbers, emptyEmails);
+
+        assertTrue(italian.compare(contact1, contact2) < 0);
+        assertTrue(italian.compare(contact3, contact1) > 0);
+        assertTrue(italian.compare(contact3, contact2) < 0);
+        assertEquals(0, italian.compare(contact1, contact4));
+
+        contact1.setSurname("Zanetti");
+        assertTrue(italian.compare(contact1, contact2) > 0);
+        assertEquals(comparator, new NameAndSurnameComparator());
+        assertNotEquals(comparator, italian);
+    }
+
 }
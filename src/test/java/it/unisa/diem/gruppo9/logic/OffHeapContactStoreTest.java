@@ -0,0 +1,213 @@
+package it.unisa.diem.gruppo9.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @file OffHeapContactStoreTest.java
+ * @brief Unit test for the {@code OffHeapContactStore} class
+ *
+ * The test verifies that the off-heap store keeps the same contacts in the
+ * same order as a {@code ContactManager} through additions, deletions and
+ * searches, and that the compaction reclaims the space of the deleted
+ * records.
+ *
+ * @see OffHeapContactStore.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-17
+ */
+public class OffHeapContactStoreTest {
+
+    /**
+     * Initializes resources before all tests.
+     */
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("\n\nStarting test OffHeapContactStoreTest.java...\n\n");
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    public static void tearDownClass() {
+        System.out.println("\n\nFinished testing OffHeapContactStoreTest.java\n\n");
+    }
+
+    /**
+     * Creates a contact with a phone number.
+     *
+     * @param surname the surname of the contact.
+     * @param name the name of the contact.
+     * @param phone the phone number of the contact.
+     * @return the contact.
+     */
+    private static Contact contact(String surname, String name, String phone) {
+        return new Contact(surname, name, new String[]{phone, "-", "-"}, new String[]{"-", "-", "-"});
+    }
+
+    /**
+     * Returns the records of a list of contacts.
+     *
+     * @param contacts the contacts.
+     * @return the {@code toString()} of each contact, in order.
+     */
+    private static List<String> records(List<Contact> contacts) {
+        List<String> records = new ArrayList<>();
+        for (Contact c : contacts) {
+            records.add(c.toString());
+        }
+        return records;
+    }
+
+    /**
+     * @test Applies the same additions, deletions and searches to a store and
+     * to a {@code ContactManager}
+     *
+     * Expected Result: - The contacts are the same, in the same order - The
+     * deleted contact is the given one among equal contacts - A contact is
+     * not added twice - The searches return the same contacts
+     */
+    @Test
+    public void testSameSemanticsAsContactManager() {
+        System.out.println("Testing off-heap store semantics");
+        OffHeapContactStore store = new OffHeapContactStore();
+        ContactManager manager = new ContactManager();
+        Contact first = contact("Rossi", "Mario", "1");
+        Contact second = contact("Rossi", "Mario", "2");
+        List<Contact> batch = new ArrayList<>();
+        batch.add(contact("Verdi", "Luca", "3"));
+        batch.add(contact("Àlvarez", "Nicolò", "4"));
+        batch.add(contact("", "Anna", "5"));
+
+        for (Contact c : new Contact[]{second, first, contact("Bianchi", "Anna", "6")}) {
+            store.add(c);
+            manager.addContacts(c);
+        }
+        store.addAll(batch);
+        manager.addAll(batch);
+        store.add(first);
+        assertEquals(records(manager.getListOfContacts()), records(store.asList()));
+
+        store.delete(first);
+        manager.deleteContact(first);
+        assertEquals(records(manager.getListOfContacts()), records(store.asList()));
+        assertEquals(second.getId(), store.search("rossi").get(0).getId());
+
+        for (String s : new String[]{"ANNA", "alv", "r", "x", ""}) {
+            assertEquals(records(manager.searchContact(s)), records(store.search(s)));
+        }
+    }
+
+    /**
+     * @test Adds many contacts to small slabs and deletes most of them
+     *
+     * Expected Result: - The slabs are compacted - The remaining contacts keep
+     * their attributes, order and identifiers - They are still found by
+     * surname and by name
+     */
+    @Test
+    public void testCompaction() {
+        System.out.println("Testing off-heap compaction");
+        OffHeapContactStore store = new OffHeapContactStore(4096);
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            contacts.add(contact(String.format("Surname%04d", i), "Name", String.valueOf(i)));
+        }
+        store.addAll(contacts);
+        long before = store.getOffHeapBytes();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 10 != 0) {
+                store.delete(contacts.get(i));
+            }
+        }
+
+        assertTrue(store.getOffHeapBytes() < before / 2);
+        assertEquals(100, store.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(contacts.get(i * 10).toString(), store.get(i).toString());
+            assertEquals(contacts.get(i * 10).getId(), store.get(i).getId());
+        }
+        assertEquals(10, store.search("surname00").size());
+        assertEquals(100, store.search("name").size());
+        store.delete(contacts.get(0));
+        assertEquals(9, store.search("surname00").size());
+    }
+
+    /**
+     * @test Searches a store with and without surnames against a scan, after
+     * bulk and single additions
+     *
+     * Expected Result: - Every search returns the contacts of the scan, in
+     * order - The contacts added in bulk are returned as the same instances
+     */
+    @Test
+    public void testSearchAgainstScan() {
+        System.out.println("Testing off-heap search against a scan");
+        Random random = new Random(42);
+        String[] surnames = {"Rossi", "Russo", "", "Bianchi", "Rosa", "Àlvarez"};
+        String[] names = {"Mario", "Rosa", "Anna", "Alvise", "Bianca", "Luca"};
+        OffHeapContactStore store = new OffHeapContactStore(4096);
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Contact c = contact(surnames[random.nextInt(surnames.length)], names[random.nextInt(names.length)],
+                    String.valueOf(i));
+            contacts.add(c);
+            if (i % 5 == 0) {
+                store.add(c);
+            }
+        }
+        List<Contact> batch = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            if (i % 5 != 0) {
+                batch.add(contacts.get(i));
+            }
+        }
+        store.addAll(batch);
+        for (Contact c : store.asList()) {
+            assertSame(contacts.get(Integer.parseInt(c.getPhoneNumber()[0])), c);
+        }
+
+        for (String s : new String[]{"r", "ro", "ros", "rosa", "a", "al", "bianc", "luca", "", "x"}) {
+            List<Contact> expected = new ArrayList<>();
+            for (Contact c : store.asList()) {
+                if (c.getNameKey().startsWith(s) || c.getSurnameKey().startsWith(s)) {
+                    expected.add(c);
+                }
+            }
+            assertEquals(records(expected), records(store.search(s)), s);
+        }
+    }
+
+    /**
+     * @test Observes the list view of the store while adding and deleting
+     *
+     * Expected Result: - An addition and a deletion are reported at their
+     * positions
+     */
+    @Test
+    public void testListChanges() {
+        System.out.println("Testing off-heap list changes");
+        OffHeapContactStore store = new OffHeapContactStore();
+        Contact rossi = contact("Rossi", "Mario", "1");
+        store.add(rossi);
+        List<String> changes = new ArrayList<>();
+        store.asList().addListener((ListChangeListener<Contact>) change -> {
+            while (change.next()) {
+                changes.add((change.wasAdded() ? "+" : "-") + change.getFrom());
+            }
+        });
+        store.add(contact("Bianchi", "Anna", "2"));
+        store.delete(rossi);
+
+        assertEquals("[+0, -1]", changes.toString());
+    }
+}
@@ -0,0 +1,181 @@
+package it.unisa.diem.gruppo9.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @file PhoneIndexTest.java
+ * @brief Unit test for the {@code PhoneIndex} class
+ *
+ * The test verifies the exact, suffix and infix lookups against a scan of the
+ * contacts, while contacts are added one at a time, in bulk and removed.
+ *
+ * @see PhoneIndex.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-18
+ */
+public class PhoneIndexTest {
+
+    /**
+     * Initializes resources before all tests.
+     */
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("\n\nStarting test PhoneIndexTest.java...\n\n");
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    public static void tearDownClass() {
+        System.out.println("\n\nFinished testing PhoneIndexTest.java\n\n");
+    }
+
+    /**
+     * Creates a contact with some phone numbers.
+     *
+     * @param phones the phone numbers, up to three.
+     * @return the contact.
+     */
+    private static Contact contact(String... phones) {
+        String[] phoneNumber = {"-", "-", "-"};
+        System.arraycopy(phones, 0, phoneNumber, 0, phones.length);
+        return new Contact("Rossi", "Mario", phoneNumber, new String[]{"-", "-", "-"});
+    }
+
+    /**
+     * Returns the contacts with a phone number that contains some digits, by
+     * scanning them.
+     *
+     * @param contacts the contacts.
+     * @param digits the digits.
+     * @param suffixOnly {@code true} to match only the ends of the numbers.
+     * @return the matching contacts.
+     */
+    private static Set<Contact> scan(List<Contact> contacts, String digits, boolean suffixOnly) {
+        Set<Contact> result = new HashSet<>();
+        for (Contact c : contacts) {
+            for (String phone : c.getPhoneNumber()) {
+                String number = PhoneIndex.normalizeNumber(phone);
+                if (suffixOnly ? number.endsWith(digits) : number.contains(digits)) {
+                    result.add(c);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @test Looks up numbers written in different formats
+     *
+     * Expected Result: - "+39" and "0039" numbers are the same number - The
+     * country code is not stripped - Spaces and dashes are ignored - A
+     * number is found by the suffix and infix searches as it was written -
+     * The empty slots ("-") are not indexed
+     */
+    @Test
+    public void testLookup() {
+        System.out.println("Testing lookup");
+        PhoneIndex index = new PhoneIndex();
+        Contact mario = contact("+39 333 1234567", "089-961111");
+        Contact luca = contact("0039 3331234567");
+        index.add(mario);
+        index.add(luca);
+
+        assertEquals(new HashSet<>(Arrays.asList(mario, luca)), new HashSet<>(index.lookup("393331234567")));
+        assertEquals(1, index.lookup("089 961111").size());
+        assertTrue(index.lookup("3331234567").isEmpty());
+        assertEquals(2, index.searchInfix("0039 3331234567").size());
+        assertEquals(2, index.searchSuffix("0039 333 1234567").size());
+        assertTrue(index.lookup("-").isEmpty());
+        assertTrue(index.searchInfix("-").isEmpty());
+    }
+
+    /**
+     * @test Searches suffixes and infixes of the numbers
+     *
+     * Expected Result: - The suffix search finds the numbers ending with the
+     * digits - The infix search finds the numbers containing them - A contact
+     * is returned once even if several numbers match
+     */
+    @Test
+    public void testSearch() {
+        System.out.println("Testing suffix and infix search");
+        PhoneIndex index = new PhoneIndex();
+        Contact mario = contact("+39 333 1234567", "089 1234567");
+        Contact luca = contact("02 4567123");
+        index.add(mario);
+        index.add(luca);
+
+        assertEquals(1, index.searchSuffix("1234567").size());
+        assertEquals(mario, index.searchSuffix("4567").get(0));
+        assertEquals(2, index.searchInfix("4567").size());
+        assertEquals(luca, index.searchSuffix("123").get(0));
+        assertTrue(index.searchSuffix("999").isEmpty());
+        assertTrue(index.matches(mario, "0891"));
+        assertFalse(index.matches(luca, "0891"));
+    }
+
+    /**
+     * @test Compares the searches with a scan while contacts are added one at
+     * a time, in bulk and removed
+     *
+     * Expected Result: - Every search returns the contacts of the scan, also
+     * after the pending suffixes are merged and the index is rebuilt
+     */
+    @Test
+    public void testAgainstScan() {
+        System.out.println("Testing search against a scan of the contacts");
+        Random random = new Random(42);
+        PhoneIndex index = new PhoneIndex();
+        List<Contact> contacts = new ArrayList<>();
+        List<Contact> bulk = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Contact c = contact(String.valueOf(3_000_000 + random.nextInt(1_000_000)),
+                    "0" + random.nextInt(100_000));
+            contacts.add(c);
+            if (i < 2000) {
+                index.add(c);
+            } else {
+                bulk.add(c);
+            }
+        }
+        index.addAll(bulk);
+        this.check(index, contacts, random);
+
+        for (int i = 0; i < 2500; i++) {
+            index.remove(contacts.remove(contacts.size() - 1));
+        }
+        this.check(index, contacts, random);
+        Contact c = contact("0" + random.nextInt(100_000));
+        contacts.add(c);
+        index.add(c);
+        this.check(index, contacts, random);
+    }
+
+    /**
+     * Compares random searches with a scan of the contacts.
+     *
+     * @param index the index.
+     * @param contacts the indexed contacts.
+     * @param random the source of the digits searched.
+     */
+    private void check(PhoneIndex index, List<Contact> contacts, Random random) {
+        for (int i = 0; i < 200; i++) {
+            String digits = String.valueOf(random.nextInt(i < 100 ? 1000 : 100_000));
+            assertEquals(scan(contacts, digits, true), new HashSet<>(index.searchSuffix(digits)), digits);
+            assertEquals(scan(contacts, digits, false), new HashSet<>(index.searchInfix(digits)), digits);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package it.unisa.diem.gruppo9.logic;
+
+import it.unisa.diem.gruppo9.data.CsvContactReader;
+import it.unisa.diem.gruppo9.data.CsvContactWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @file StringPoolTest.java
+ * @brief Unit test for the {@code StringPool} class
+ *
+ * The test verifies that the pool returns one instance for equal values, and
+ * measures the memory taken by the strings of a realistic address book with
+ * and without the pool.
+ *
+ * @see StringPool.java
+ *
+ * @author gruppo9
+ * @version 1.0
+ * @date 2024-12-16
+ */
+public class StringPoolTest {
+
+    private static final String[] SURNAMES = {"Rossi", "Russo", "Ferrari", "Esposito", "Bianchi", "Romano", "Colombo",
+        "Ricci", "Marino", "Greco", "Bruno", "Gallo", "Conti", "De Luca", "Costa", "Giordano", "Mancini", "Rizzo"};
+
+    private static final String[] NAMES = {"Mario", "Luca", "Giulia", "Francesca", "Marco", "Anna", "Nicolò", "Sara",
+        "Giuseppe", "Chiara", "Andrea", "Elena", "Paolo", "Laura"};
+
+    private static final String[] DOMAINS = {"gmail.com", "libero.it", "unisa.it", "hotmail.it"};
+
+    /**
+     * Initializes resources before all tests.
+     */
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("\n\nStarting test StringPoolTest.java...\n\n");
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    public static void tearDownClass() {
+        System.out.println("\n\nFinished testing StringPoolTest.java\n\n");
+    }
+
+    /**
+     * @test Interns equal values given as strings and as character ranges
+     *
+     * Expected Result: - Equal values return the same instance - Different
+     * values return different instances - The pool grows past its initial
+     * capacity
+     */
+    @Test
+    public void testIntern() {
+        System.out.println("Testing intern");
+        StringPool pool = new StringPool();
+        String rossi = pool.intern(new String("Rossi"));
+        assertSame(rossi, pool.intern(new String("Rossi")));
+        assertSame(rossi, pool.intern("xRossiy".toCharArray(), 1, 5));
+        assertNotSame(rossi, pool.intern("Russo"));
+        assertNull(pool.intern(null));
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            values.add(pool.intern(String.valueOf(i)));
+        }
+        assertEquals(10_002, pool.size());
+        assertSame(pool.intern("1234"), pool.intern("x1234".toCharArray(), 1, 4));
+    }
+
+    /**
+     * @test Interns values that are no longer used afterwards
+     *
+     * Expected Result: - The values no longer referenced are collected and
+     * leave the pool - The values still referenced keep their instance - The
+     * slots of the collected values are reused
+     */
+    @Test
+    public void testCollected() throws InterruptedException {
+        System.out.println("Testing collection of unused values");
+        StringPool pool = new StringPool();
+        String rossi = pool.intern(new String("Rossi"));
+        for (int i = 0; i < 10_000; i++) {
+            pool.intern(String.valueOf(i));
+        }
+        for (int i = 0; i < 20 && pool.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.size());
+        assertSame(rossi, pool.intern(new String("Rossi")));
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            values.add(pool.intern(String.valueOf(i)));
+        }
+        assertEquals(10_001, pool.size());
+        assertSame(values.get(1234), pool.intern("x1234".toCharArray(), 1, 4));
+    }
+
+    /**
+     * @test Reads the same address book with and without the pool and
+     * estimates the memory of the distinct strings referenced by the contacts
+     *
+     * Expected Result: - The fields are the same - The pooled contacts take
+     * less than half of the memory for their strings
+     */
+    @Test
+    public void testBytesPerContact() throws IOException {
+        System.out.println("Testing bytes per contact");
+        int records = 20_000;
+        String csv = generate(records);
+
+        List<Contact> plain = new ArrayList<>();
+        try (CsvContactReader reader = new CsvContactReader(new StringReader(csv))) {
+            reader.skipRecord();
+            String[] fields = new String[CsvContactReader.FIELDS];
+            while (reader.readRecord(fields)) {
+                plain.add(new Contact(fields[0], fields[1], new String[]{fields[2], fields[3], fields[4]},
+                        new String[]{fields[5], fields[6], fields[7]}));
+            }
+        }
+        ContactManager manager = new ContactManager();
+        List<Contact> pooled = new ArrayList<>();
+        try (CsvContactReader reader = new CsvContactReader(new StringReader(csv), manager.getStringPool())) {
+            reader.skipRecord();
+            String[] fields = new String[CsvContactReader.FIELDS];
+            while (reader.readRecord(fields)) {
+                pooled.add(manager.createContact(fields[0], fields[1], new String[]{fields[2], fields[3], fields[4]},
+                        new String[]{fields[5], fields[6], fields[7]}));
+            }
+        }
+
+        for (int i = 0; i < records; i++) {
+            assertEquals(plain.get(i).toString(), pooled.get(i).toString());
+        }
+        double before = (double) stringBytes(plain) / records;
+        double after = (double) stringBytes(pooled) / records;
+        System.out.printf("String bytes per contact: %.1f without pool, %.1f with pool%n", before, after);
+        assertTrue(after < before / 2);
+    }
+
+    /**
+     * Estimates the memory of the distinct {@code String} instances referenced
+     * by contacts, with compact strings: a 24-byte {@code String} and a byte
+     * array of 16 bytes plus one per character, each aligned to 8 bytes.
+     *
+     * @param contacts the contacts.
+     * @return the estimated number of bytes.
+     */
+    private static long stringBytes(List<Contact> contacts) {
+        Set<String> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Contact c : contacts) {
+            seen.add(c.getName());
+            seen.add(c.getSurname());
+            seen.add(c.getNameKey());
+            seen.add(c.getSurnameKey());
+            Collections.addAll(seen, c.getPhoneNumber());
+            Collections.addAll(seen, c.getEmail());
+        }
+        long bytes = 0;
+        for (String s : seen) {
+            bytes += 24 + ((16 + s.length() + 7) & ~7);
+        }
+        return bytes;
+    }
+
+    /**
+     * Generates an address book with common names and surnames, most phone
+     * and email slots empty and a few shared emails.
+     *
+     * @param records the number of contacts.
+     * @return the content of the contact file.
+     */
+    private static String generate(int records) throws IOException {
+        StringWriter out = new StringWriter();
+        try (CsvContactWriter writer = new CsvContactWriter(out)) {
+            writer.writeHeader();
+            for (int i = 0; i < records; i++) {
+                String surname = SURNAMES[i % SURNAMES.length];
+                String name = NAMES[(i / SURNAMES.length) % NAMES.length];
+                String email = i % 3 == 0 ? "info@" + DOMAINS[i % DOMAINS.length] : "-";
+                writer.write(new Contact(surname, name,
+                        new String[]{String.valueOf(3330000000L + i), "-", "-"},
+                        new String[]{email, "-", "-"}));
+            }
+        }
+        return out.toString();
+    }
+}